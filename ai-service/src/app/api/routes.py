@@ -1,10 +1,28 @@
-from fastapi import APIRouter, HTTPException, UploadFile, File
+from typing import Optional
+import redis
+from fastapi import APIRouter, HTTPException, UploadFile, File, Form
 from celery.result import AsyncResult
-from app.worker import celery_app, process_ocr_task, task_diff_text, task_summarize_text, task_check_clo_plo, task_diff, task_extract_syllabus_json, task_compare_json_syllabus
+from app.worker import REDIS_URL, celery_app, process_ocr_task, task_diff_text, task_summarize_text, task_check_clo_plo, task_diff, task_extract_syllabus_json, task_compare_json_syllabus
 from app.schemas.ai_schema import CloPloCheckRequest, SummaryRequest, DiffRequest, CompareSyllabusJsonRequest
 
 router = APIRouter()
 
+_redis = redis.Redis.from_url(REDIS_URL)
+# Giữ id đã nhận lâu hơn thời gian core-service có thể gửi lại (hết hạn task bên core-service: 1 ngày)
+SUBMITTED_ID_TTL_SECONDS = 2 * 24 * 3600
+
+
+def submit_once(task, args, task_id: Optional[str]):
+    """
+    Gửi task Celery. task_id do core-service sinh và lưu trước khi gọi: lần gửi lại cùng id
+    (core-service chết trước khi ghi nhận response) không tạo job thứ hai.
+    """
+    if not task_id:
+        return task.delay(*args).id
+    if not _redis.set(f"smd:ai:submitted:{task_id}", 1, nx=True, ex=SUBMITTED_ID_TTL_SECONDS):
+        return task_id
+    return task.apply_async(args=args, task_id=task_id).id
+
 @router.get("/task-status/{task_id}")
 async def get_task_status(task_id: str):
     task_result = AsyncResult(task_id, app=celery_app)
@@ -70,15 +88,15 @@ async def check_clo_plo_async(
 
 
 @router.post("/extract-syllabus-json")
-async def extract_syllabus_json(file: UploadFile = File(...)):
+async def extract_syllabus_json(file: UploadFile = File(...), task_id: Optional[str] = Form(None)):
     """
     Upfile để trích xuất
     """
     content = await file.read()
     if not content: 
         raise HTTPException(400, "File rỗng")
-    task = task_extract_syllabus_json.delay(content, file.filename)
-    return {"task_id": task.id, "message": "Đang OCR và trích xuất thông tin..."}
+    created_id = submit_once(task_extract_syllabus_json, (content, file.filename), task_id)
+    return {"task_id": created_id, "message": "Đang OCR và trích xuất thông tin..."}
 
 
 @router.post("/syllabus/compare-json")
@@ -1,6 +1,8 @@
 import os
 import asyncio
+import requests
 from celery import Celery
+from celery.signals import task_postrun
 from app.services.llm_service import LLMService 
 from app.services import syllabus_service
 from app.services.file_reader import ocr_mixed_file
@@ -23,6 +25,27 @@ celery_app.conf.update(
     task_track_started=True,
 )
 
+CORE_CALLBACK_URL = os.getenv("CORE_CALLBACK_URL", "")
+AI_CALLBACK_TOKEN = os.getenv("AI_CALLBACK_TOKEN", "")
+
+@task_postrun.connect
+def notify_core_service(task_id=None, task=None, retval=None, state=None, **kwargs):
+    """
+    Báo core-service khi task kết thúc (cùng format với /task-status).
+    Lỗi khi gọi callback được bỏ qua: core-service có reconciler poll lại.
+    """
+    if not CORE_CALLBACK_URL:
+        return
+    try:
+        requests.post(
+            CORE_CALLBACK_URL,
+            json={"task_id": task_id, "status": state, "result": retval if isinstance(retval, (dict, list, str)) else str(retval)},
+            headers={"X-AI-Callback-Token": AI_CALLBACK_TOKEN},
+            timeout=5,
+        )
+    except Exception as e:
+        print(f"[CALLBACK] Không gửi được callback cho task {task_id}: {e}")
+
 def save_temp_file(content_bytes, filename, task_id):
     temp_path = f"/tmp/{task_id}_{filename}"
     with open(temp_path, "wb") as f:
@@ -0,0 +1,49 @@
+package com.smd.core.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * HTTP client cho AI service (Python).
+ * JDK HttpClient giữ connection pool, I/O chạy trên virtual threads nên một AI service
+ * bị treo không giữ thread của Tomcat quá total-timeout.
+ */
+@Configuration
+public class AiClientConfig {
+
+    @Bean(name = "aiClientExecutor", destroyMethod = "close")
+    public ExecutorService aiClientExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @Bean(name = "aiRestClient")
+    public RestClient aiRestClient(RestClient.Builder builder,
+                                   @Qualifier("aiClientExecutor") ExecutorService aiClientExecutor,
+                                   @Value("${ai-service.url}") String aiServiceUrl,
+                                   @Value("${ai-service.connect-timeout:PT2S}") Duration connectTimeout,
+                                   @Value("${ai-service.read-timeout:PT30S}") Duration readTimeout) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(connectTimeout)
+                .executor(aiClientExecutor)
+                .build();
+
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient, aiClientExecutor);
+        requestFactory.setReadTimeout(readTimeout);
+
+        // Không thêm interceptor: interceptor buộc RestClient buffer toàn bộ request body
+        return builder
+                .baseUrl(aiServiceUrl)
+                .requestFactory(requestFactory)
+                .build();
+    }
+}
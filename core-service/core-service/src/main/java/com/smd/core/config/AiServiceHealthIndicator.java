@@ -0,0 +1,30 @@
+package com.smd.core.config;
+
+import com.smd.core.service.AiServiceGateway;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+/**
+ * /actuator/health -> "aiService": DEGRADED khi circuit breaker của AI service không CLOSED.
+ * DEGRADED không làm health tổng thể DOWN, các chức năng không dùng AI vẫn hoạt động.
+ */
+@Component("aiService")
+@RequiredArgsConstructor
+public class AiServiceHealthIndicator implements HealthIndicator {
+
+    public static final Status DEGRADED = new Status("DEGRADED", "AI service calls are failing fast");
+
+    private final AiServiceGateway aiServiceGateway;
+
+    @Override
+    public Health health() {
+        Health.Builder builder = aiServiceGateway.isDegraded() ? Health.status(DEGRADED) : Health.up();
+        return builder
+                .withDetail("circuit", aiServiceGateway.getCircuitState().name())
+                .withDetail("failureRate", aiServiceGateway.getFailureRate())
+                .build();
+    }
+}
@@ -0,0 +1,79 @@
+package com.smd.core.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Bounded executors cho các pipeline chạy nền.
+ * Khi hàng đợi đầy, task bị bỏ qua (có log) thay vì chặn request thread.
+ */
+@Configuration
+@EnableAsync
+@Slf4j
+public class AsyncConfig {
+
+    @Bean(name = "documentExtractionExecutor")
+    public ThreadPoolTaskExecutor documentExtractionExecutor(
+            @Value("${document.extraction.pool-size:2}") int poolSize,
+            @Value("${document.extraction.queue-capacity:100}") int queueCapacity) {
+        return boundedExecutor("doc-extract-", poolSize, queueCapacity);
+    }
+
+    // Rendering is CPU/memory heavy: keep it on its own small pool
+    @Bean(name = "documentRenderExecutor")
+    public ThreadPoolTaskExecutor documentRenderExecutor(
+            @Value("${document.preview.pool-size:1}") int poolSize,
+            @Value("${document.preview.queue-capacity:50}") int queueCapacity) {
+        return boundedExecutor("doc-render-", poolSize, queueCapacity);
+    }
+
+    // Notifications must not be dropped: when saturated the publishing thread creates them itself
+    @Bean(name = "notificationExecutor")
+    public ThreadPoolTaskExecutor notificationExecutor(
+            @Value("${notification.async.pool-size:2}") int poolSize,
+            @Value("${notification.async.queue-capacity:200}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = boundedExecutor("notify-", poolSize, queueCapacity);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+
+    // Follower fan-out can be large: separate pool so it never delays workflow notifications.
+    // Saturated: execute() throws and NotificationFanoutService stores the fan-out in notification_fanout_job
+    @Bean(name = "notificationFanoutExecutor")
+    public ThreadPoolTaskExecutor notificationFanoutExecutor(
+            @Value("${notification.fanout.pool-size:2}") int poolSize,
+            @Value("${notification.fanout.queue-capacity:500}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = boundedExecutor("notify-fanout-", poolSize, queueCapacity);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+
+    // SSE push: reads new notifications and writes them to open streams (Redis listener thread runs it when saturated)
+    @Bean(name = "notificationPushExecutor")
+    public ThreadPoolTaskExecutor notificationPushExecutor(
+            @Value("${notification.sse.pool-size:4}") int poolSize,
+            @Value("${notification.sse.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = boundedExecutor("notify-push-", poolSize, queueCapacity);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+
+    private ThreadPoolTaskExecutor boundedExecutor(String threadNamePrefix, int poolSize, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler((task, pool) ->
+                log.warn("Executor {} is saturated, dropping task", threadNamePrefix));
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
@@ -5,6 +5,7 @@ import com.smd.core.repository.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
@@ -14,6 +15,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Random;
+import java.util.stream.Collectors;
 
 @Component
 @RequiredArgsConstructor
@@ -36,6 +38,7 @@ public class DatabaseSeeder implements CommandLineRunner {
     // 3. Syllabus Core Repositories
     private final SyllabusRepository syllabusRepository;
     private final AiTaskRepository aiTaskRepository;
+    private final AiTaskResultRepository aiTaskResultRepository;
 
     // 4. Syllabus Detail Repositories
     private final MaterialRepository materialRepository;
@@ -52,6 +55,7 @@ public class DatabaseSeeder implements CommandLineRunner {
     private final WorkflowStepRepository workflowStepRepository;
     private final SyllabusWorkflowHistoryRepository workflowHistoryRepository;
     private final SyllabusAuditLogRepository auditLogRepository;
+    private final AuditLogRollupJdbcRepository auditLogRollupRepository;
 
     // 7. System Repositories (THÊM MỚI)
     private final ReportRepository reportRepository;
@@ -597,7 +601,8 @@ public class DatabaseSeeder implements CommandLineRunner {
         if (itDept == null || itDept.getHeadOfDepartment() == null) return;
         
         // 1. Tương tác: Trưởng bộ môn comment vào đề cương đang chờ duyệt
-        List<Syllabus> pendingSyllabi = syllabusRepository.findByCurrentStatus(Syllabus.SyllabusStatus.PENDING_REVIEW);
+        List<Syllabus> pendingSyllabi = syllabusRepository.findByCurrentStatus(
+                Syllabus.SyllabusStatus.PENDING_REVIEW, Pageable.unpaged()).getContent();
         User head = itDept.getHeadOfDepartment();
 
         for (Syllabus s : pendingSyllabi) {
@@ -684,23 +689,23 @@ public class DatabaseSeeder implements CommandLineRunner {
         for (Syllabus s : allSyllabi) {
             // Randomly assign AI tasks
             if (rand.nextBoolean()) {
-                aiTaskRepository.save(AITask.builder()
+                AITask task = aiTaskRepository.save(AITask.builder()
                         .syllabus(s)
                         .taskType(AITask.TaskType.GENERATE_CLO)
                         .status(AITask.TaskStatus.SUCCESS)
-                        .resultSummary("AI created 5 CLOs successfully.")
                         .createdAt(LocalDateTime.now().minusDays(5))
                         .build());
+                saveSeedResult(task, "AI created 5 CLOs successfully.");
             }
             
             if (s.getCurrentStatus() == Syllabus.SyllabusStatus.DRAFT && rand.nextBoolean()) {
-                aiTaskRepository.save(AITask.builder()
+                AITask task = aiTaskRepository.save(AITask.builder()
                         .syllabus(s)
                         .taskType(AITask.TaskType.GRAMMAR_CHECK)
                         .status(AITask.TaskStatus.SUCCESS)
-                        .resultSummary("Found 3 typo errors in Description.")
                         .createdAt(LocalDateTime.now().minusDays(1))
                         .build());
+                saveSeedResult(task, "Found 3 typo errors in Description.");
             }
 
             if (s.getCurrentStatus() == Syllabus.SyllabusStatus.PENDING_REVIEW) {
@@ -715,6 +720,15 @@ public class DatabaseSeeder implements CommandLineRunner {
         log.info("   + Created AI Tasks for random syllabi");
     }
 
+    private void saveSeedResult(AITask task, String summary) {
+        aiTaskResultRepository.save(AITaskResult.builder()
+                .task(task)
+                .outcome(AITaskResult.Outcome.SUCCESS)
+                .summary(summary)
+                .completedAt(task.getCreatedAt())
+                .build());
+    }
+
     private void initCourseSubscriptions() {
         log.info("   + Seeding Course Subscriptions...");
         
@@ -992,6 +1006,13 @@ public class DatabaseSeeder implements CommandLineRunner {
                 .build());
 
         auditLogRepository.saveAll(logs);
+        // Rollup thống kê (log ghi qua JPA không đi qua AuditLogWriter)
+        auditLogRollupRepository.add(logs.stream()
+                .filter(auditLog -> auditLogRollupRepository.isCounted(auditLog.getTimestamp()))
+                .collect(Collectors.groupingBy(
+                        auditLog -> AuditLogRollupJdbcRepository.RollupKey.of(
+                                auditLog.getTimestamp(), auditLog.getActionType(), auditLog.getPerformedByRole()),
+                        Collectors.counting())));
         log.info("   + Created Audit Logs.");
     }
 }
\ No newline at end of file
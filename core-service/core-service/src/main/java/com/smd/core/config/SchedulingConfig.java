@@ -0,0 +1,12 @@
+package com.smd.core.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Bật @Scheduled cho các background job (dọn file upload, reconcile...)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,146 @@
+package com.smd.core.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.StatementCallback;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLWarning;
+import java.util.List;
+
+/**
+ * Các thay đổi schema / migrate dữ liệu mà ddl-auto=update không tự làm được; mỗi câu lệnh phải idempotent.
+ *
+ * Chạy khi mọi singleton đã tạo xong (EntityManagerFactory đã chạy ddl-auto) nhưng trước khi web server,
+ * @Scheduled và listener Redis khởi động: node này chưa nhận request nào trong lúc migrate (chuyển bảng
+ * notifications sang partition giữ ACCESS EXCLUSIVE suốt lúc chép), và chạy trước DatabaseSeeder.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SchemaUpgradeRunner implements SmartInitializingSingleton {
+
+    private static final List<String> STATEMENTS = List.of(
+            // Hibernate 6 tạo CHECK constraint cho cột enum và không cập nhật khi enum có giá trị mới (QUEUED, DISPATCHING)
+            "ALTER TABLE ai_task DROP CONSTRAINT IF EXISTS ai_task_status_check",
+
+            // result_summary cũ chứa Celery ID (task đang chạy) hoặc kết quả (task đã xong):
+            // tách sang external_task_id và bảng ai_task_result
+            "UPDATE ai_task SET external_task_id = result_summary WHERE external_task_id IS NULL " +
+                    "AND status IN ('PENDING', 'PROCESSING') AND length(result_summary) <= 64",
+            // Parse JSON từng dòng: một dòng hỏng không làm hỏng cả lệnh. Dòng hỏng được bỏ qua ở đây, đếm
+            // (WARNING trong log) và được chép dạng text ở lệnh sau
+            "DO $$ DECLARE r record; doc jsonb; bad integer := 0; BEGIN " +
+                    "FOR r IN SELECT t.ai_task_id, t.status, t.result_summary, t.created_at FROM ai_task t " +
+                    "WHERE t.status IN ('SUCCESS', 'FAILURE') AND t.result_summary LIKE '{%' " +
+                    "AND NOT EXISTS (SELECT 1 FROM ai_task_result x WHERE x.ai_task_id = t.ai_task_id) LOOP " +
+                    "BEGIN doc := r.result_summary::jsonb; " +
+                    "EXCEPTION WHEN others THEN bad := bad + 1; CONTINUE; END; " +
+                    "UPDATE ai_task SET external_task_id = doc ->> 'task_id' " +
+                    "WHERE ai_task_id = r.ai_task_id AND external_task_id IS NULL; " +
+                    "INSERT INTO ai_task_result (ai_task_id, outcome, summary, error, payload, completed_at) VALUES (r.ai_task_id, " +
+                    "CASE WHEN r.status = 'FAILURE' OR lower(doc -> 'result' ->> 'status') = 'failed' THEN 'FAILED' ELSE 'SUCCESS' END, " +
+                    "COALESCE(doc -> 'result' ->> 'summary', doc -> 'result' ->> 'text'), " +
+                    "COALESCE(doc ->> 'error', doc -> 'result' ->> 'error'), " +
+                    "CASE WHEN jsonb_typeof(doc -> 'result') = 'object' THEN doc -> 'result' END, " +
+                    "r.created_at) ON CONFLICT (ai_task_id) DO NOTHING; " +
+                    "END LOOP; " +
+                    "IF bad > 0 THEN RAISE WARNING 'ai_task.result_summary: % rows are not valid JSON, migrated as text', bad; END IF; " +
+                    "END $$",
+            "INSERT INTO ai_task_result (ai_task_id, outcome, summary, error, completed_at) " +
+                    "SELECT ai_task_id, CASE WHEN status = 'FAILURE' THEN 'FAILED' ELSE 'SUCCESS' END, " +
+                    "CASE WHEN status = 'SUCCESS' THEN result_summary END, " +
+                    "CASE WHEN status = 'FAILURE' THEN result_summary END, created_at " +
+                    "FROM ai_task WHERE status IN ('SUCCESS', 'FAILURE') AND result_summary IS NOT NULL " +
+                    "ON CONFLICT (ai_task_id) DO NOTHING",
+            "UPDATE ai_task SET result_summary = NULL WHERE result_summary IS NOT NULL " +
+                    "AND (external_task_id = result_summary " +
+                    "OR ai_task_id IN (SELECT ai_task_id FROM ai_task_result))",
+
+            // Cột @Version mới: các dòng cũ bắt đầu từ 0 (Hibernate không tăng được version NULL)
+            "UPDATE syllabus SET lock_version = 0 WHERE lock_version IS NULL",
+
+            // status_changed_at mới: lấy lần chuyển trạng thái gần nhất trong lịch sử, không có thì updated_at
+            "UPDATE syllabus s SET status_changed_at = date_trunc('microseconds', COALESCE(" +
+                    "(SELECT MAX(h.action_time) FROM syllabus_workflow_history h WHERE h.syllabus_id = s.syllabus_id), " +
+                    "s.updated_at, s.created_at)) WHERE s.status_changed_at IS NULL",
+
+            // notifications -> bảng partition theo tháng (created_at). Chỉ chạy khi bảng còn là bảng thường
+            // (lần đầu Hibernate tạo, hoặc DB cũ), trước khi node nhận request: khóa bảng (node cũ còn chạy trong
+            // lúc deploy phải chờ, không mất dòng),
+            // tạo bảng partition cùng cột với bảng hiện tại (LIKE: giữ cả cột thêm sau này), chép dữ liệu,
+            // bỏ bảng cũ rồi đổi tên. PostgreSQL 15 không cho identity trên bảng partition nên id lấy từ
+            // sequence riêng; PK phải chứa khóa partition. Partition các tháng sau do NotificationPartitionService tạo trước.
+            "DO $$ DECLARE m date; BEGIN " +
+                    "IF EXISTS (SELECT 1 FROM pg_class WHERE oid = to_regclass('notifications') AND relkind = 'r') THEN " +
+                    "LOCK TABLE notifications IN ACCESS EXCLUSIVE MODE; " +
+                    "UPDATE notifications SET is_read = false WHERE is_read IS NULL; " +
+                    "UPDATE notifications SET created_at = now() WHERE created_at IS NULL; " +
+                    "CREATE SEQUENCE IF NOT EXISTS notifications_id_seq; " +
+                    "PERFORM setval('notifications_id_seq', COALESCE((SELECT MAX(notification_id) FROM notifications), 0) + 1, false); " +
+                    "CREATE TABLE notifications_partitioned (LIKE notifications INCLUDING DEFAULTS) PARTITION BY RANGE (created_at); " +
+                    "ALTER TABLE notifications_partitioned ALTER COLUMN notification_id SET DEFAULT nextval('notifications_id_seq'); " +
+                    "ALTER TABLE notifications_partitioned ADD PRIMARY KEY (notification_id, created_at); " +
+                    "m := date_trunc('month', COALESCE((SELECT MIN(created_at) FROM notifications), now()))::date; " +
+                    "WHILE m <= (date_trunc('month', GREATEST(now(), (SELECT MAX(created_at) FROM notifications))) + interval '3 months')::date LOOP " +
+                    "EXECUTE format('CREATE TABLE %I PARTITION OF notifications_partitioned FOR VALUES FROM (%L) TO (%L)', " +
+                    "'notifications_p' || to_char(m, 'YYYYMM'), m, (m + interval '1 month')::date); " +
+                    "m := (m + interval '1 month')::date; " +
+                    "END LOOP; " +
+                    "INSERT INTO notifications_partitioned SELECT * FROM notifications; " +
+                    "DROP TABLE notifications; " +
+                    "ALTER TABLE notifications_partitioned RENAME TO notifications; " +
+                    "ALTER SEQUENCE notifications_id_seq OWNED BY notifications.notification_id; " +
+                    "ALTER TABLE notifications ADD CONSTRAINT fk_notifications_user FOREIGN KEY (user_id) REFERENCES \"user\" (user_id); " +
+                    "ALTER TABLE notifications ADD CONSTRAINT fk_notifications_syllabus FOREIGN KEY (syllabus_id) REFERENCES syllabus (syllabus_id); " +
+                    "CREATE INDEX idx_notifications_user_id ON notifications (user_id, notification_id); " +
+                    "CREATE INDEX idx_notifications_user_feed ON notifications (user_id, created_at DESC, notification_id DESC); " +
+                    "END IF; END $$",
+
+            // Notification gộp (coalescing): dòng cũ và dòng insert bằng JDBC tính là 1 sự kiện.
+            // ADD COLUMN IF NOT EXISTS: không phụ thuộc vào việc ddl-auto đã thêm cột trước khi bảng được chuyển partition
+            "ALTER TABLE notifications ADD COLUMN IF NOT EXISTS group_count integer NOT NULL DEFAULT 1",
+            "ALTER TABLE notifications ALTER COLUMN group_count SET DEFAULT 1",
+            "UPDATE notifications SET group_count = 1 WHERE group_count IS NULL",
+
+            // Feed keyset dùng idx_notifications_user_feed (user_id, created_at DESC, notification_id DESC)
+            "DROP INDEX IF EXISTS idx_notifications_user_created",
+
+            // Rollup audit log theo giờ: lần đầu nâng cấp ghi cutover rồi dựng rollup từ log trước cutover,
+            // cộng vào số đã ghi (nếu có) trong cùng transaction. Log từ cutover trở đi được cộng lúc ghi.
+            // Node khởi động đồng thời chờ trên khóa của dòng state_id = 1 rồi không làm gì.
+            "DO $$ BEGIN " +
+                    "INSERT INTO audit_log_rollup_state (state_id, cutover) VALUES (1, LOCALTIMESTAMP) " +
+                    "ON CONFLICT (state_id) DO NOTHING; " +
+                    "IF FOUND THEN " +
+                    "INSERT INTO audit_log_hourly_rollup (bucket_hour, action_type, performed_by_role, log_count) " +
+                    "SELECT date_trunc('hour', timestamp), action_type, COALESCE(performed_by_role, 'UNKNOWN'), COUNT(*) " +
+                    "FROM syllabus_audit_logs WHERE timestamp < LOCALTIMESTAMP " +
+                    "GROUP BY 1, 2, 3 " +
+                    "ON CONFLICT (bucket_hour, action_type, performed_by_role) " +
+                    "DO UPDATE SET log_count = audit_log_hourly_rollup.log_count + EXCLUDED.log_count; " +
+                    "END IF; END $$"
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (String sql : STATEMENTS) {
+            try {
+                jdbcTemplate.execute((StatementCallback<Void>) statement -> {
+                    statement.execute(sql);
+                    // RAISE WARNING trong khối DO (số dòng bị bỏ qua...)
+                    for (SQLWarning w = statement.getWarnings(); w != null; w = w.getNextWarning()) {
+                        log.warn("Schema upgrade: {}", w.getMessage());
+                    }
+                    return null;
+                });
+            } catch (Exception e) {
+                log.warn("Schema upgrade statement failed ({}): {}", sql, e.getMessage());
+            }
+        }
+    }
+}
@@ -2,10 +2,12 @@ package com.smd.core.config;
 
 import com.smd.core.filter.JwtAuthenticationFilter;
 import com.smd.core.service.CustomUserDetailsService;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
@@ -18,6 +20,9 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.AndRequestMatcher;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.DispatcherTypeRequestMatcher;
 import org.springframework.security.config.Customizer;
 
 @Configuration
@@ -38,9 +43,14 @@ public class SecurityConfig {
         http
             .csrf(csrf -> csrf.disable())
             .authorizeHttpRequests(auth -> auth
+                // Async dispatch của SSE stream: request gốc đã được xác thực bằng JWT
+                .requestMatchers(new AndRequestMatcher(new DispatcherTypeRequestMatcher(DispatcherType.ASYNC),
+                        AntPathRequestMatcher.antMatcher("/api/notifications/stream"))).permitAll()
                 // Public endpoints
                 .requestMatchers("/api/auth/**").permitAll()
                 .requestMatchers("/error").permitAll()
+                // Callback từ AI service, xác thực bằng X-AI-Callback-Token
+                .requestMatchers(HttpMethod.POST, "/api/ai/callback").permitAll()
 
                 // --- dung prometheus ---
                 .requestMatchers("/actuator/**").permitAll() 
@@ -49,6 +59,7 @@ public class SecurityConfig {
                 // CẬP NHẬT: Chỉ cho phép ADMIN truy cập các API quản lý hệ thống
                 .requestMatchers("/api/users/**").hasRole("ADMIN")
                 .requestMatchers("/api/audit-logs/**").hasRole("ADMIN")
+                .requestMatchers("/api/ai/bulk").hasAnyRole("ADMIN", "ACADEMIC_AFFAIRS", "HEAD_OF_DEPARTMENT")
                 // Swagger UI endpoints
                 .requestMatchers("/swagger-ui/**", "/v3/api-docs/**", "/swagger-ui.html").permitAll()
                 // All other requests need authentication
@@ -1,24 +1,33 @@
 package com.smd.core.controller;
 
+import com.smd.core.dto.AiBulkItemResult;
+import com.smd.core.dto.AiBulkRequest;
+import com.smd.core.dto.AiStatusResponse;
 import com.smd.core.dto.AiTaskResponse;
+import com.smd.core.dto.AiTaskResultResponse;
 import com.smd.core.entity.AITask;
 import com.smd.core.service.AiClientService;
+import com.smd.core.service.AiTaskReconciler;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.parameters.RequestBody;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/ai")
 @RequiredArgsConstructor
 public class AiController {
 
     private final AiClientService aiService;
+    private final AiTaskReconciler aiTaskReconciler;
     
 
     // API 1: Upload File để Tóm tắt
@@ -34,10 +43,20 @@ public class AiController {
         // Gọi service xử lý
         AITask task = aiService.requestSummarize(file, syllabusId);
         
-        // Trả về Task (Lúc này resultSummary đang chứa ID của Celery, Status là PENDING)
+        // Trả về Task (externalTaskId là ID của Celery, Status là PENDING)
         return ResponseEntity.ok(task);
     }
 
+    // API 1b: Tóm tắt tài liệu đã upload của Syllabus (không cần upload lại)
+    @Operation(summary = "Gửi tài liệu đã lưu của Syllabus để AI tóm tắt (Async)")
+    @PostMapping("/syllabuses/{syllabusId}/summarize")
+    public ResponseEntity<AITask> summarizeStoredDocument(
+            @Parameter(description = "ID của Syllabus")
+            @PathVariable Long syllabusId
+    ) {
+        return ResponseEntity.ok(aiService.summarizeStoredDocument(syllabusId));
+    }
+
     // API 2: Kiểm tra kết quả và trả về full response từ AI
     @Operation(summary = "Kiểm tra trạng thái và lấy kết quả đầy đủ từ AI")
     @GetMapping("/tasks/{id}")
@@ -50,6 +69,36 @@ public class AiController {
         return ResponseEntity.ok(fullResult);
     }
 
+    // API 2b: Kết quả dạng có cấu trúc (outcome, summary, error, payload)
+    @Operation(summary = "Lấy kết quả AI task dạng có cấu trúc")
+    @GetMapping("/tasks/{id}/result")
+    public ResponseEntity<AiTaskResultResponse> getStructuredTaskResult(
+            @Parameter(description = "ID của AI Task")
+            @PathVariable Long id
+    ) {
+        return ResponseEntity.ok(aiService.getTaskResult(id));
+    }
+
+    // API Bulk: xếp hàng tóm tắt / trích xuất cho nhiều syllabus (lane BULK, chạy dần theo budget)
+    @Operation(summary = "Xếp hàng xử lý AI cho danh sách Syllabus (bulk)")
+    @PostMapping("/bulk")
+    public ResponseEntity<List<AiBulkItemResult>> submitBulk(
+            @Valid @org.springframework.web.bind.annotation.RequestBody AiBulkRequest request
+    ) {
+        return ResponseEntity.accepted().body(aiService.submitBulk(request.getSyllabusIds(), request.getTaskType()));
+    }
+
+    // Callback: AI service báo task hoàn thành (xác thực bằng shared token, không dùng JWT)
+    @Operation(summary = "Callback từ AI Service khi task hoàn thành")
+    @PostMapping("/callback")
+    public ResponseEntity<Void> taskCallback(
+            @RequestHeader(value = "X-AI-Callback-Token", required = false) String token,
+            @org.springframework.web.bind.annotation.RequestBody AiStatusResponse body
+    ) {
+        aiTaskReconciler.handleCallback(token, body);
+        return ResponseEntity.accepted().build();
+    }
+
     // API Mới: Upload file để trích xuất thông tin
     @Operation(summary = "Upload file PDF/Word để AI trích xuất Syllabus JSON (Async)")
     @PostMapping(value = "/extract-syllabus", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
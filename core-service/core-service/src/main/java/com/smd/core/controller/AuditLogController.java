@@ -1,6 +1,8 @@
 package com.smd.core.controller;
 
 import com.smd.core.dto.AuditLogResponse;
+import com.smd.core.dto.AuditLogSeriesPoint;
+import com.smd.core.dto.AuditLogSeriesPoint.Granularity;
 import com.smd.core.dto.ResponseWrapper;
 import com.smd.core.entity.SyllabusAuditLog;
 import com.smd.core.service.AuditLogService;
@@ -336,7 +338,8 @@ public class AuditLogController {
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(
         summary = "Get audit logs statistics",
-        description = "Retrieve statistical information about audit logs including counts by action type. Admin only."
+        description = "Retrieve statistical information about audit logs including counts by action type and role, " +
+                      "read from hourly rollups (time windows are rounded down to the hour). Admin only."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Statistics retrieved successfully"),
@@ -364,6 +367,60 @@ public class AuditLogController {
         }
     }
     
+    /**
+     * Get audit log counts over time (Admin only)
+     */
+    @GetMapping("/statistics/timeseries")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(
+        summary = "Get audit log time series",
+        description = "Number of audit logs per hour or day in [from, to), read from hourly rollups. " +
+                      "Optionally filtered by action type and role. Admin only."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Time series retrieved successfully"),
+        @ApiResponse(responseCode = "403", description = "Access denied"),
+        @ApiResponse(responseCode = "400", description = "Invalid date range")
+    })
+    public ResponseEntity<ResponseWrapper<List<AuditLogSeriesPoint>>> getAuditLogSeries(
+            @Parameter(description = "Start (ISO format: 2024-01-01T00:00:00)")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "End, exclusive (ISO format: 2024-02-01T00:00:00)")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Bucket size: HOUR or DAY (default: HOUR)")
+            @RequestParam(defaultValue = "HOUR") Granularity granularity,
+            @Parameter(description = "Only this action type (optional)")
+            @RequestParam(required = false) String actionType,
+            @Parameter(description = "Only this role (optional)")
+            @RequestParam(required = false) String role
+    ) {
+        try {
+            if (!from.isBefore(to)) {
+                return ResponseEntity.badRequest().body(new ResponseWrapper<>(
+                    false,
+                    "Start date must be before end date",
+                    null
+                ));
+            }
+            
+            List<AuditLogSeriesPoint> series = auditLogService.getAuditLogSeries(from, to, granularity, actionType, role);
+            
+            return ResponseEntity.ok(new ResponseWrapper<>(
+                true,
+                String.format("Found %d data points", series.size()),
+                series
+            ));
+            
+        } catch (Exception e) {
+            log.error("✗ Error retrieving audit log time series", e);
+            return ResponseEntity.internalServerError().body(new ResponseWrapper<>(
+                false,
+                "Failed to retrieve time series: " + e.getMessage(),
+                null
+            ));
+        }
+    }
+    
     /**
      * Get audit logs by academic year (Admin only)
      */
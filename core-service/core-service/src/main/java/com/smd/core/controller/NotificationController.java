@@ -1,24 +1,32 @@
 package com.smd.core.controller;
 
+import com.smd.core.dto.MarkReadRequest;
+import com.smd.core.dto.NotificationFeedResponse;
+import com.smd.core.dto.NotificationPreferences;
 import com.smd.core.dto.NotificationResponse;
 import com.smd.core.dto.NotificationStats;
 import com.smd.core.service.NotificationService;
+import com.smd.core.service.NotificationStreamService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/notifications")
@@ -28,6 +36,7 @@ import java.util.List;
 public class NotificationController {
     
     private final NotificationService notificationService;
+    private final NotificationStreamService notificationStreamService;
 
     @GetMapping
     @Operation(
@@ -55,6 +64,41 @@ public class NotificationController {
         return ResponseEntity.ok(notifications);
     }
 
+    @GetMapping("/feed")
+    @Operation(
+        summary = "Get notification feed (cursor-paginated)",
+        description = "Newest first. Pass nextCursor from the previous response as cursor to get the next page; " +
+                     "hasMore=false means the end of the feed. No total count is computed unless includeTotal=true, " +
+                     "in which case it is returned in the X-Total-Count header."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Feed page retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    public ResponseEntity<NotificationFeedResponse> getNotificationFeed(
+            @Parameter(description = "Cursor returned by the previous page (omit for the first page)")
+            @RequestParam(required = false) String cursor,
+            
+            @Parameter(description = "Page size (max 100)", example = "20")
+            @RequestParam(defaultValue = "20") int limit,
+            
+            @Parameter(description = "Also return the total number of notifications in X-Total-Count")
+            @RequestParam(defaultValue = "false") boolean includeTotal,
+            
+            @Parameter(hidden = true)
+            @AuthenticationPrincipal UserDetails userDetails) {
+        
+        NotificationFeedResponse feed = notificationService.getNotificationFeed(
+            userDetails, cursor, Math.max(1, Math.min(limit, 100)));
+        if (includeTotal) {
+            return ResponseEntity.ok()
+                .header("X-Total-Count", String.valueOf(notificationService.countNotifications(userDetails)))
+                .body(feed);
+        }
+        return ResponseEntity.ok(feed);
+    }
+
     @GetMapping("/unread")
     @Operation(
         summary = "Get unread notifications",
@@ -74,6 +118,28 @@ public class NotificationController {
         return ResponseEntity.ok(notifications);
     }
 
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(
+        summary = "Stream notifications (Server-Sent Events)",
+        description = "Pushes each new notification as a 'notification' event whose id is the notification ID. " +
+                     "Reconnect with the Last-Event-ID header to receive what was missed. " +
+                     "Returns 503 when the server has too many open streams; clients should then fall back to polling."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Stream opened"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized"),
+        @ApiResponse(responseCode = "503", description = "Connection limit reached")
+    })
+    public SseEmitter streamNotifications(
+            @Parameter(description = "ID of the last notification received, to resume after a reconnect")
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+            
+            @Parameter(hidden = true)
+            @AuthenticationPrincipal UserDetails userDetails) {
+        
+        return notificationStreamService.connect(userDetails.getUsername(), lastEventId);
+    }
+
     @GetMapping("/stats")
     @Operation(
         summary = "Get notification statistics",
@@ -91,6 +157,41 @@ public class NotificationController {
         return ResponseEntity.ok(stats);
     }
 
+    @GetMapping("/preferences")
+    @Operation(
+        summary = "Get notification preferences",
+        description = "Get the current user's notification delivery preferences"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Preferences retrieved successfully"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    public ResponseEntity<NotificationPreferences> getPreferences(
+            @Parameter(hidden = true)
+            @AuthenticationPrincipal UserDetails userDetails) {
+        
+        return ResponseEntity.ok(notificationService.getPreferences(userDetails.getUsername()));
+    }
+
+    @PutMapping("/preferences")
+    @Operation(
+        summary = "Update notification preferences",
+        description = "With digestEnabled, comment notifications are no longer delivered one by one " +
+                     "but collected into a single daily digest notification"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Preferences updated successfully"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    public ResponseEntity<NotificationPreferences> updatePreferences(
+            @RequestBody NotificationPreferences preferences,
+            
+            @Parameter(hidden = true)
+            @AuthenticationPrincipal UserDetails userDetails) {
+        
+        return ResponseEntity.ok(notificationService.updatePreferences(userDetails.getUsername(), preferences));
+    }
+
     @PutMapping("/{id}/read")
     @Operation(
         summary = "Mark notification as read",
@@ -113,6 +214,28 @@ public class NotificationController {
         return ResponseEntity.noContent().build();
     }
 
+    @PutMapping("/read")
+    @Operation(
+        summary = "Mark several notifications as read",
+        description = "Marks up to 500 notifications of the current user as read in one request. " +
+                     "IDs of other users' or already-read notifications are ignored. Returns the number marked; " +
+                     "with write-behind enabled this is the number accepted, and they are stored within seconds."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Notifications marked as read"),
+        @ApiResponse(responseCode = "400", description = "Empty or too large request"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    public ResponseEntity<Map<String, Integer>> markManyAsRead(
+            @Valid @RequestBody MarkReadRequest request,
+            
+            @Parameter(hidden = true)
+            @AuthenticationPrincipal UserDetails userDetails) {
+        
+        int marked = notificationService.markAsRead(request.getNotificationIds(), userDetails);
+        return ResponseEntity.ok(Map.of("marked", marked));
+    }
+
     @PutMapping("/read-all")
     @Operation(
         summary = "Mark all notifications as read",
@@ -5,7 +5,10 @@ import com.smd.core.dto.*;
 import com.smd.core.entity.Syllabus;
 import com.smd.core.entity.SyllabusAuditLog;
 import com.smd.core.entity.SyllabusWorkflowHistory;
+import com.smd.core.exception.InvalidDataException;
 import com.smd.core.service.AuditLogService;
+import com.smd.core.service.DocumentPreviewService;
+import com.smd.core.service.IdempotencyService;
 import com.smd.core.service.SyllabusService;
 import com.smd.core.service.WorkflowService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -18,6 +21,14 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -27,7 +38,10 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @RestController
@@ -43,6 +57,15 @@ public class SyllabusController {
     @Autowired
     private AuditLogService auditLogService;
 
+    @Autowired
+    private DocumentPreviewService documentPreviewService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Value("${document.preview.max-age:PT1H}")
+    private Duration previewMaxAge;
+
     @PostMapping
     public ResponseEntity<?> create(@RequestBody Syllabus syllabus) {
         return ResponseEntity.ok(syllabusService.createSyllabus(syllabus));
@@ -53,7 +76,7 @@ public class SyllabusController {
     public ResponseEntity<SyllabusResponse> getDetail(@PathVariable Long id) {
         Syllabus syllabus = syllabusService.getSyllabusById(id);
         // Convert Entity -> DTO
-        return ResponseEntity.ok(SyllabusResponse.fromEntity(syllabus));
+        return ResponseEntity.ok(SyllabusResponse.fromEntity(syllabus, syllabusService.getLatestAiSummary(id)));
     }
     
     // --- ENDPOINT MỚI: Trả về SyllabusDetailResponse với đầy đủ thông tin ---
@@ -79,24 +102,34 @@ public class SyllabusController {
     public ResponseEntity<List<SyllabusResponse>> search(@RequestParam String keyword) {
         // 1. Lấy danh sách Entity từ Service
         List<Syllabus> list = syllabusService.search(keyword);
+        Map<Long, String> aiSummaries = syllabusService.getLatestAiSummaries(list);
         
         // 2. Convert từng Entity sang DTO
         List<SyllabusResponse> response = list.stream()
-                .map(SyllabusResponse::fromEntity)
+                .map(s -> SyllabusResponse.fromEntity(s, aiSummaries.get(s.getSyllabusId())))
                 .collect(Collectors.toList());
         
         // 3. Trả về danh sách DTO
         return ResponseEntity.ok(response);
     }
+
+    @GetMapping("/search/content")
+    @Operation(summary = "Search inside uploaded syllabus documents", description = "Returns matching pages with a highlighted snippet")
+    public ResponseEntity<List<SyllabusContentHit>> searchContent(
+            @RequestParam String keyword,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(syllabusService.searchContent(keyword, Math.min(Math.max(limit, 1), 100)));
+    }
     
     @GetMapping
     public ResponseEntity<List<SyllabusResponse>> getAll() { // 1. Sửa kiểu trả về
         // 2. Lấy danh sách Entity từ Service
         List<Syllabus> list = syllabusService.getAllSyllabuses();
+        Map<Long, String> aiSummaries = syllabusService.getLatestAiSummaries(list);
         
         // 3. Convert từng Entity sang DTO
         List<SyllabusResponse> response = list.stream()
-                .map(SyllabusResponse::fromEntity)
+                .map(s -> SyllabusResponse.fromEntity(s, aiSummaries.get(s.getSyllabusId())))
                 .collect(Collectors.toList());
         
         // 4. Trả về danh sách DTO
@@ -220,7 +253,34 @@ public class SyllabusController {
         
         SyllabusUploadResponse response = syllabusService.getPdfInfo(id);
         return ResponseEntity.ok(response);
-    }    
+    }
+
+    @GetMapping("/{id}/preview")
+    @Operation(
+        summary = "Get preview image of the syllabus document",
+        description = "Returns a PNG thumbnail of one of the first pages of the uploaded PDF. Supports If-None-Match (ETag)."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Preview image",
+            content = @Content(mediaType = MediaType.IMAGE_PNG_VALUE)),
+        @ApiResponse(responseCode = "304", description = "Not modified"),
+        @ApiResponse(responseCode = "404", description = "No preview available (yet)")
+    })
+    public ResponseEntity<Resource> getPreview(
+            @Parameter(description = "Syllabus ID", required = true)
+            @PathVariable Long id,
+            @Parameter(description = "Page number (1-based)")
+            @RequestParam(defaultValue = "1") int page) {
+
+        DocumentPreviewPage preview = documentPreviewService.getPreviewPage(id, page);
+
+        // ETag = hash của file gốc + trang, nên 304 được trả tự động khi client đã có ảnh
+        return ResponseEntity.ok()
+            .eTag(preview.getContentHash() + "-" + preview.getPageNumber())
+            .cacheControl(CacheControl.maxAge(previewMaxAge).cachePrivate())
+            .contentType(MediaType.IMAGE_PNG)
+            .body(new FileSystemResource(preview.getFile()));
+    }
     // ==================== VERSIONING ENDPOINTS ====================
     
     @PostMapping("/create-with-dto")
@@ -245,7 +305,8 @@ public class SyllabusController {
         syllabus.setVersionNotes(request.getVersionNotes());
         
         Syllabus created = syllabusService.createSyllabus(syllabus);
-        SyllabusResponse response = SyllabusResponse.fromEntity(created);
+        SyllabusResponse response = SyllabusResponse.fromEntity(created,
+                syllabusService.getLatestAiSummary(created.getSyllabusId()));
         
         return ResponseEntity.ok(response);
     }
@@ -272,7 +333,8 @@ public class SyllabusController {
             request.getCopyCLOs()
         );
         
-        SyllabusResponse response = SyllabusResponse.fromEntity(newVersion);
+        SyllabusResponse response = SyllabusResponse.fromEntity(newVersion,
+                syllabusService.getLatestAiSummary(newVersion.getSyllabusId()));
         return ResponseEntity.ok(response);
     }
     
@@ -330,7 +392,8 @@ public class SyllabusController {
             @RequestParam String academicYear) {
         
         Syllabus latest = syllabusService.getLatestVersion(courseId, academicYear);
-        SyllabusResponse response = SyllabusResponse.fromEntity(latest);
+        SyllabusResponse response = SyllabusResponse.fromEntity(latest,
+                syllabusService.getLatestAiSummary(latest.getSyllabusId()));
         
         return ResponseEntity.ok(response);
     }
@@ -353,15 +416,14 @@ public class SyllabusController {
     public ResponseEntity<WorkflowTransitionResponse> submitForReview(
             @PathVariable Long id,
             @RequestBody(required = false) WorkflowTransitionRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @AuthenticationPrincipal UserDetails userDetails) {
         
-        if (request == null) {
-            request = new WorkflowTransitionRequest();
-        }
-        request.setSyllabusId(id);
+        WorkflowTransitionRequest transition = request != null ? request : new WorkflowTransitionRequest();
+        transition.setSyllabusId(id);
         
-        WorkflowTransitionResponse response = workflowService.submitForReview(request, userDetails.getUsername());
-        return ResponseEntity.ok(response);
+        return idempotent(idempotencyKey, userDetails, "submitForReview:" + id,
+                () -> workflowService.submitForReview(transition, userDetails.getUsername()));
     }
     
     @PostMapping("/{id}/hod-approve")
@@ -380,15 +442,14 @@ public class SyllabusController {
     public ResponseEntity<WorkflowTransitionResponse> hodApprove(
             @PathVariable Long id,
             @RequestBody(required = false) WorkflowTransitionRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @AuthenticationPrincipal UserDetails userDetails) {
         
-        if (request == null) {
-            request = new WorkflowTransitionRequest();
-        }
-        request.setSyllabusId(id);
+        WorkflowTransitionRequest transition = request != null ? request : new WorkflowTransitionRequest();
+        transition.setSyllabusId(id);
         
-        WorkflowTransitionResponse response = workflowService.approveByHOD(request, userDetails.getUsername());
-        return ResponseEntity.ok(response);
+        return idempotent(idempotencyKey, userDetails, "approveByHOD:" + id,
+                () -> workflowService.approveByHOD(transition, userDetails.getUsername()));
     }
     
     @PostMapping("/{id}/hod-reject")
@@ -407,15 +468,14 @@ public class SyllabusController {
     public ResponseEntity<WorkflowTransitionResponse> hodReject(
             @PathVariable Long id,
             @RequestBody(required = false) WorkflowTransitionRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @AuthenticationPrincipal UserDetails userDetails) {
         
-        if (request == null) {
-            request = new WorkflowTransitionRequest();
-        }
-        request.setSyllabusId(id);
+        WorkflowTransitionRequest transition = request != null ? request : new WorkflowTransitionRequest();
+        transition.setSyllabusId(id);
         
-        WorkflowTransitionResponse response = workflowService.rejectByHOD(request, userDetails.getUsername());
-        return ResponseEntity.ok(response);
+        return idempotent(idempotencyKey, userDetails, "rejectByHOD:" + id,
+                () -> workflowService.rejectByHOD(transition, userDetails.getUsername()));
     }
     
     @PostMapping("/{id}/aa-approve")
@@ -434,15 +494,14 @@ public class SyllabusController {
     public ResponseEntity<WorkflowTransitionResponse> aaApprove(
             @PathVariable Long id,
             @RequestBody(required = false) WorkflowTransitionRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @AuthenticationPrincipal UserDetails userDetails) {
         
-        if (request == null) {
-            request = new WorkflowTransitionRequest();
-        }
-        request.setSyllabusId(id);
+        WorkflowTransitionRequest transition = request != null ? request : new WorkflowTransitionRequest();
+        transition.setSyllabusId(id);
         
-        WorkflowTransitionResponse response = workflowService.approveByAA(request, userDetails.getUsername());
-        return ResponseEntity.ok(response);
+        return idempotent(idempotencyKey, userDetails, "approveByAA:" + id,
+                () -> workflowService.approveByAA(transition, userDetails.getUsername()));
     }
     
     @PostMapping("/{id}/aa-reject")
@@ -461,15 +520,14 @@ public class SyllabusController {
     public ResponseEntity<WorkflowTransitionResponse> aaReject(
             @PathVariable Long id,
             @RequestBody(required = false) WorkflowTransitionRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @AuthenticationPrincipal UserDetails userDetails) {
         
-        if (request == null) {
-            request = new WorkflowTransitionRequest();
-        }
-        request.setSyllabusId(id);
+        WorkflowTransitionRequest transition = request != null ? request : new WorkflowTransitionRequest();
+        transition.setSyllabusId(id);
         
-        WorkflowTransitionResponse response = workflowService.rejectByAA(request, userDetails.getUsername());
-        return ResponseEntity.ok(response);
+        return idempotent(idempotencyKey, userDetails, "rejectByAA:" + id,
+                () -> workflowService.rejectByAA(transition, userDetails.getUsername()));
     }
     
     @PostMapping("/{id}/principal-approve")
@@ -488,15 +546,14 @@ public class SyllabusController {
     public ResponseEntity<WorkflowTransitionResponse> principalApprove(
             @PathVariable Long id,
             @RequestBody(required = false) WorkflowTransitionRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @AuthenticationPrincipal UserDetails userDetails) {
         
-        if (request == null) {
-            request = new WorkflowTransitionRequest();
-        }
-        request.setSyllabusId(id);
+        WorkflowTransitionRequest transition = request != null ? request : new WorkflowTransitionRequest();
+        transition.setSyllabusId(id);
         
-        WorkflowTransitionResponse response = workflowService.approveByPrincipal(request, userDetails.getUsername());
-        return ResponseEntity.ok(response);
+        return idempotent(idempotencyKey, userDetails, "approveByPrincipal:" + id,
+                () -> workflowService.approveByPrincipal(transition, userDetails.getUsername()));
     }
     
     @PostMapping("/{id}/principal-reject")
@@ -515,15 +572,52 @@ public class SyllabusController {
     public ResponseEntity<WorkflowTransitionResponse> principalReject(
             @PathVariable Long id,
             @RequestBody(required = false) WorkflowTransitionRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @AuthenticationPrincipal UserDetails userDetails) {
         
-        if (request == null) {
-            request = new WorkflowTransitionRequest();
-        }
-        request.setSyllabusId(id);
+        WorkflowTransitionRequest transition = request != null ? request : new WorkflowTransitionRequest();
+        transition.setSyllabusId(id);
         
-        WorkflowTransitionResponse response = workflowService.rejectByPrincipal(request, userDetails.getUsername());
-        return ResponseEntity.ok(response);
+        return idempotent(idempotencyKey, userDetails, "rejectByPrincipal:" + id,
+                () -> workflowService.rejectByPrincipal(transition, userDetails.getUsername()));
+    }
+    
+    @PostMapping("/workflow/batch")
+    @Operation(
+        summary = "Apply one workflow action to many syllabuses",
+        description = "Submit, approve or reject a list of syllabuses in one request. The acting role is derived from " +
+                     "the user's roles (or given explicitly when several roles can perform the action). " +
+                     "Each syllabus is reported separately; ineligible ones do not fail the batch.",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Batch processed, see per-item results"),
+        @ApiResponse(responseCode = "400", description = "Empty or too large batch, or ambiguous role"),
+        @ApiResponse(responseCode = "403", description = "User has no role that can perform the action"),
+        @ApiResponse(responseCode = "409", description = "A request with the same Idempotency-Key is still in progress")
+    })
+    public ResponseEntity<List<WorkflowBatchItemResult>> transitionBatch(
+            @Valid @RequestBody WorkflowBatchRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        
+        return idempotent(idempotencyKey, userDetails, "batch:" + request.getAction() + ":" + request.getSyllabusIds(),
+                () -> workflowService.transitionBatch(
+                        request.getSyllabusIds(), request.getAction(), request.getRole(),
+                        request.getComment(), userDetails.getUsername()));
+    }
+    
+    /**
+     * Chạy transition với Idempotency-Key (nếu có): request lặp lại với cùng key trả về response đã lưu,
+     * header Idempotent-Replayed cho biết response được phát lại
+     */
+    private <T> ResponseEntity<T> idempotent(String idempotencyKey, UserDetails userDetails,
+                                             String fingerprint, Supplier<T> action) {
+        IdempotencyService.Result<T> result = idempotencyService.execute(
+                "workflow:" + userDetails.getUsername(), idempotencyKey, fingerprint, action);
+        return ResponseEntity.ok()
+                .header("Idempotent-Replayed", String.valueOf(result.replayed()))
+                .body(result.body());
     }
     
     @GetMapping("/{id}/workflow-history")
@@ -543,24 +637,54 @@ public class SyllabusController {
         return ResponseEntity.ok(history);
     }
     
+    @GetMapping("/workflow/inbox")
+    @Operation(
+        summary = "Get pending counts for the current reviewer",
+        description = "Dashboard badges: PENDING_REVIEW of the HOD's department, PENDING_APPROVAL for Academic Affairs, " +
+                     "APPROVED (awaiting publication) for the Principal. Counts not relevant to the user's roles are null.",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Counts retrieved successfully"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    public ResponseEntity<WorkflowInboxResponse> getInboxCounts(
+            @AuthenticationPrincipal UserDetails userDetails) {
+        
+        return ResponseEntity.ok(workflowService.getInboxCounts(userDetails.getUsername()));
+    }
+    
     @GetMapping("/by-status/{status}")
     @Operation(
         summary = "Get syllabuses by status",
-        description = "Get all syllabuses with a specific status. Results are filtered based on user role: " +
-                     "LECTURER sees only their own, HOD sees their department's, AA/ADMIN see all.",
+        description = "Get syllabuses with a specific status, most recently updated first. Results are filtered based on user role: " +
+                     "LECTURER sees only their own, HOD sees their department's, AA/ADMIN see all. " +
+                     "The response is one page; the total is returned in the X-Total-Count header.",
         security = @SecurityRequirement(name = "bearerAuth")
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Syllabuses retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Negative page"),
         @ApiResponse(responseCode = "401", description = "Unauthorized")
     })
     public ResponseEntity<List<Syllabus>> getSyllabusesByStatus(
             @PathVariable String status,
+            @Parameter(description = "Page number (0-indexed)", example = "0")
+            @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Page size (1-100)", example = "100")
+            @RequestParam(defaultValue = "100") int size,
             @AuthenticationPrincipal UserDetails userDetails) {
         
+        if (page < 0) {
+            throw new InvalidDataException("page must not be negative");
+        }
         Syllabus.SyllabusStatus syllabusStatus = Syllabus.SyllabusStatus.valueOf(status.toUpperCase());
-        List<Syllabus> syllabuses = workflowService.getSyllabusesByStatus(syllabusStatus, userDetails.getUsername());
-        return ResponseEntity.ok(syllabuses);
+        Pageable pageable = PageRequest.of(page, Math.max(1, Math.min(size, 100)),
+                Sort.by(Sort.Direction.DESC, "updatedAt").and(Sort.by(Sort.Direction.DESC, "syllabusId")));
+        Page<Syllabus> syllabuses = workflowService.getSyllabusesByStatus(syllabusStatus, userDetails.getUsername(), pageable);
+        return ResponseEntity.ok()
+                .header("X-Total-Count", String.valueOf(syllabuses.getTotalElements()))
+                .body(syllabuses.getContent());
     }
     
     // ==================== AUDIT LOG ENDPOINTS ====================
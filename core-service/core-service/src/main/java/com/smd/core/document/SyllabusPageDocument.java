@@ -0,0 +1,41 @@
+package com.smd.core.document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Field;
+import org.springframework.data.elasticsearch.annotations.FieldType;
+
+/**
+ * Một trang nội dung của file syllabus (PDF/Word) trong Elasticsearch.
+ * Id = "{syllabusId}-{pageNumber}" để re-extract ghi đè đúng document.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(indexName = "syllabus_pages")
+public class SyllabusPageDocument {
+
+    @Id
+    private String id;
+
+    @Field(type = FieldType.Long)
+    private Long syllabusId;
+
+    @Field(type = FieldType.Integer)
+    private Integer pageNumber;
+
+    @Field(type = FieldType.Integer)
+    private Integer startOffset;
+
+    @Field(type = FieldType.Text, analyzer = "standard")
+    private String content;
+
+    public static String idOf(Long syllabusId, int pageNumber) {
+        return syllabusId + "-" + pageNumber;
+    }
+}
@@ -0,0 +1,20 @@
+package com.smd.core.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Kết quả xếp hàng AI cho một syllabus trong bulk request
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AiBulkItemResult {
+    private Long syllabusId;
+    private Long aiTaskId;   // null nếu lỗi
+    private String status;   // QUEUED, hoặc trạng thái của task được dùng lại
+    private String error;
+}
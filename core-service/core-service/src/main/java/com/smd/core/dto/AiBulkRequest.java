@@ -0,0 +1,21 @@
+package com.smd.core.dto;
+
+import com.smd.core.entity.AITask;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AiBulkRequest {
+
+    @NotEmpty(message = "syllabusIds is required")
+    private List<Long> syllabusIds;
+
+    // IMPROVE_CONTENT (tóm tắt, mặc định) hoặc EXTRACT_SYLLABUS
+    private AITask.TaskType taskType;
+}
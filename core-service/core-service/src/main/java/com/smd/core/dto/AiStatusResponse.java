@@ -1,11 +1,10 @@
 package com.smd.core.dto;
 
 import lombok.Data;
-import java.util.Map;
 
 @Data
 public class AiStatusResponse {
     private String task_id;
     private String status; // SUCCESS, PENDING, FAILURE
-    private Map<String, Object> result; // Kết quả tóm tắt nằm trong này
+    private Object result; // Kết quả của worker: thường là object, có thể là chuỗi lỗi
 }
\ No newline at end of file
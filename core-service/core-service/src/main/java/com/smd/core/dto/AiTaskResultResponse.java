@@ -0,0 +1,28 @@
+package com.smd.core.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Kết quả AI task dạng có cấu trúc (đọc từ ai_task_result)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AiTaskResultResponse {
+    private Long aiTaskId;
+    private String externalTaskId;   // Celery task id
+    private String taskType;
+    private String status;           // Trạng thái AITask
+    private String outcome;          // SUCCESS / FAILED, null khi chưa xong
+    private String summary;
+    private String error;
+    private Map<String, Object> payload;
+    private LocalDateTime completedAt;
+}
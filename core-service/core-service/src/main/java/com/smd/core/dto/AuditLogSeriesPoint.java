@@ -0,0 +1,24 @@
+package com.smd.core.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Một điểm của chuỗi thời gian số audit log (đọc từ rollup theo giờ)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditLogSeriesPoint {
+
+    public enum Granularity { HOUR, DAY }
+
+    // Đầu giờ / đầu ngày
+    private LocalDateTime bucket;
+    private long count;
+}
@@ -0,0 +1,17 @@
+package com.smd.core.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.file.Path;
+
+/**
+ * Ảnh preview đã render của một trang tài liệu
+ */
+@Data
+@AllArgsConstructor
+public class DocumentPreviewPage {
+    private String contentHash;
+    private Integer pageNumber;
+    private Path file;
+}
@@ -0,0 +1,16 @@
+package com.smd.core.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response đã lưu cho một Idempotency-Key (Redis)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotentResponse {
+    private String fingerprint;  // Request gốc (action + syllabus), key dùng lại cho request khác bị từ chối
+    private Object body;
+}
@@ -0,0 +1,19 @@
+package com.smd.core.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MarkReadRequest {
+
+    @NotEmpty(message = "notificationIds is required")
+    @Size(max = 500, message = "At most 500 notifications per request")
+    private List<Long> notificationIds;
+}
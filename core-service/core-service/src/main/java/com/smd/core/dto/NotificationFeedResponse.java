@@ -0,0 +1,16 @@
+package com.smd.core.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationFeedResponse {
+    private List<NotificationResponse> items;
+    // Truyền lại qua ?cursor= để lấy trang tiếp theo; null = hết
+    private String nextCursor;
+    private Boolean hasMore;
+}
@@ -0,0 +1,12 @@
+package com.smd.core.dto;
+
+import lombok.*;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationPreferences {
+    // Gộp các notification loại digest (vd. bình luận) thành một bản tin mỗi ngày
+    private Boolean digestEnabled;
+}
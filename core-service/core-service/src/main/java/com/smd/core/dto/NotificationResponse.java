@@ -20,6 +20,7 @@ public class NotificationResponse {
     private String actionUrl;
     private String triggeredBy;
     private LocalDateTime createdAt;
+    private Integer groupCount;
     
     // Syllabus info
     private Long syllabusId;
@@ -38,7 +39,8 @@ public class NotificationResponse {
             .readAt(notification.getReadAt())
             .actionUrl(notification.getActionUrl())
             .triggeredBy(notification.getTriggeredBy())
-            .createdAt(notification.getCreatedAt());
+            .createdAt(notification.getCreatedAt())
+            .groupCount(notification.getGroupCount() != null ? notification.getGroupCount() : 1);
 
         if (notification.getSyllabus() != null) {
             Syllabus syllabus = notification.getSyllabus();
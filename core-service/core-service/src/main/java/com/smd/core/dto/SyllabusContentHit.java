@@ -0,0 +1,21 @@
+package com.smd.core.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Kết quả tìm kiếm trong nội dung file syllabus, kèm vị trí trang để hiển thị snippet
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SyllabusContentHit {
+    private Long syllabusId;
+    private Integer pageNumber;
+    private Integer startOffset;
+    private String snippet;
+    private Float score;
+}
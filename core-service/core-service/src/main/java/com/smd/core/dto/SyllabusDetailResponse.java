@@ -49,7 +49,8 @@ public class SyllabusDetailResponse {
                 Syllabus syllabus,
                 List<SessionPlan> sessionPlans,
                 List<Assessment> assessments,
-                List<Material> materials) {
+                List<Material> materials,
+                String aiSummary) {
         
         Long syllabusId = syllabus.getSyllabusId();
         
@@ -108,12 +109,6 @@ public class SyllabusDetailResponse {
                 .collect(Collectors.toList());
         }
         
-        // Get AI summary from latest AI task
-        String aiSummary = null;
-        if (syllabus.getAiTasks() != null && !syllabus.getAiTasks().isEmpty()) {
-                aiSummary = syllabus.getAiTasks().get(syllabus.getAiTasks().size() - 1).getResultSummary();
-        }
-        
         // Build and return response
         return SyllabusDetailResponse.builder()
                 .id(syllabusId)
@@ -0,0 +1,18 @@
+package com.smd.core.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Thông tin file tài liệu của syllabus (không load cả entity)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SyllabusDocumentRef {
+    private Long syllabusId;
+    private String filePath;
+    private String fileName;
+    private String contentHash;
+}
@@ -38,7 +38,8 @@ public class SyllabusResponse {
     private Integer credit;
     private String type;
     
-    public static SyllabusResponse fromEntity(Syllabus syllabus) {
+    // aiSummary được đọc riêng (AiTaskResultStore.latestSummary), không đi qua Syllabus.aiTasks
+    public static SyllabusResponse fromEntity(Syllabus syllabus, String aiSummary) {
         return SyllabusResponse.builder()
                 .syllabusId(syllabus.getSyllabusId())
                 .courseId(syllabus.getCourse().getCourseId())
@@ -66,8 +67,7 @@ public class SyllabusResponse {
                 .pdfUploadedAt(syllabus.getPdfUploadedAt())
                 .programId(syllabus.getProgram() != null ? syllabus.getProgram().getProgramId() : null)
                 .programName(syllabus.getProgram() != null ? syllabus.getProgram().getProgramName() : null)
-                .aiSumary((syllabus.getAiTasks() != null && !syllabus.getAiTasks().isEmpty())?
-            syllabus.getAiTasks().get(syllabus.getAiTasks().size() - 1).getResultSummary(): null)
+                .aiSumary(aiSummary)
                 .build();
     }
 }
@@ -0,0 +1,21 @@
+package com.smd.core.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Kết quả chuyển trạng thái của một syllabus trong batch
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WorkflowBatchItemResult {
+    private Long syllabusId;
+    private boolean success;
+    private String previousStatus;
+    private String newStatus;
+    private String error;
+}
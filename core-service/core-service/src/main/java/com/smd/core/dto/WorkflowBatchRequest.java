@@ -0,0 +1,27 @@
+package com.smd.core.dto;
+
+import com.smd.core.service.WorkflowTransitions;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WorkflowBatchRequest {
+
+    @NotEmpty(message = "syllabusIds is required")
+    private List<Long> syllabusIds;
+
+    @NotNull(message = "action is required")
+    private WorkflowTransitions.Command action;
+
+    // Chỉ cần khi user có nhiều vai trò cùng thực hiện được action này
+    private WorkflowTransitions.Actor role;
+
+    private String comment;
+}
@@ -0,0 +1,20 @@
+package com.smd.core.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Số syllabus đang chờ người dùng hiện tại xử lý (null = không thuộc vai trò của user)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WorkflowInboxResponse {
+    private Long departmentId;
+    private Long pendingReview;        // PENDING_REVIEW của khoa (HOD)
+    private Long pendingApproval;      // PENDING_APPROVAL toàn trường (Academic Affairs)
+    private Long awaitingPublication;  // APPROVED toàn trường (Principal)
+}
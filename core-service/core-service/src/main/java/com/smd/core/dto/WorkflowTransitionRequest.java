@@ -19,4 +19,7 @@ public class WorkflowTransitionRequest {
     
     // For rejection, can specify what to do
     private Boolean returnToDraft; // true = return to DRAFT, false = return to previous state
+    
+    // lockVersion client đã đọc; nếu syllabus đã bị sửa từ đó thì trả 409 thay vì ghi đè
+    private Long expectedVersion;
 }
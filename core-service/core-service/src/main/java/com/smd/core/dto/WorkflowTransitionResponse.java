@@ -21,6 +21,7 @@ public class WorkflowTransitionResponse {
     private String comment;
     private LocalDateTime actionTime;
     private String message;
+    private Long lockVersion;
     
     public static WorkflowTransitionResponse fromSyllabus(
             Syllabus syllabus, 
@@ -38,6 +39,7 @@ public class WorkflowTransitionResponse {
                 .comment(comment)
                 .actionTime(LocalDateTime.now())
                 .message(message)
+                .lockVersion(syllabus.getLockVersion())
                 .build();
     }
 }
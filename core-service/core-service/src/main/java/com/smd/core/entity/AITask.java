@@ -6,7 +6,12 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "ai_task")
+@Table(name = "ai_task", indexes = {
+    @Index(name = "idx_ai_task_cache", columnList = "task_type, content_hash, model_version"),
+    @Index(name = "idx_ai_task_queue", columnList = "status, priority, ai_task_id"),
+    @Index(name = "idx_ai_task_external_id", columnList = "external_task_id"),
+    @Index(name = "idx_ai_task_source", columnList = "source_task_id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -32,9 +37,37 @@ public class AITask {
     @Column(nullable = false)
     private TaskStatus status;
 
+    // ID của task bên AI service (Celery), dùng cho callback và reconcile
+    @Column(name = "external_task_id", length = 64)
+    private String externalTaskId;
+
+    // Cột cũ, không còn đọc: kết quả nằm trong ai_task_result (AiTaskResultStore), dữ liệu cũ được SchemaUpgradeRunner chuyển sang
     @Column(name = "result_summary", columnDefinition = "TEXT")
+    @JsonIgnore
     private String resultSummary;
 
+    // SHA-256 của tài liệu gửi đi + phiên bản model/prompt: khóa cache kết quả AI
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(name = "model_version", length = 64)
+    private String modelVersion;
+
+    // Task WAITING: id của task đang chạy cho cùng tài liệu (syllabus khác), kết quả được chép sang khi task đó xong
+    @Column(name = "source_task_id")
+    private Long sourceTaskId;
+
+    // Hàng đợi AI: lane ưu tiên, thời điểm vào hàng đợi và thời điểm gửi sang AI service
+    @Enumerated(EnumType.STRING)
+    @Column(name = "priority", length = 20)
+    private TaskPriority priority;
+
+    @Column(name = "queued_at")
+    private LocalDateTime queuedAt;
+
+    @Column(name = "dispatched_at")
+    private LocalDateTime dispatchedAt;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -59,6 +92,14 @@ public class AITask {
         PENDING,
         SUCCESS,
         FAILURE,
-        PROCESSING
+        PROCESSING,
+        QUEUED,      // Chờ trong hàng đợi của core-service, chưa gửi sang AI
+        DISPATCHING, // Đã được dispatcher nhận, đang gửi sang AI
+        WAITING      // Chờ kết quả của task source_task_id, không tự gửi sang AI
+    }
+
+    public enum TaskPriority {
+        INTERACTIVE, // Người dùng đang chờ kết quả
+        BULK         // Xử lý hàng loạt, chỉ dùng phần budget không dành riêng cho interactive
     }
 }
@@ -0,0 +1,58 @@
+package com.smd.core.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Kết quả cuối cùng của một AI task, tách khỏi bảng ai_task.
+ * Payload (JSONB) chỉ được đọc khi client xem kết quả, không bao giờ theo Syllabus.
+ */
+@Entity
+@Table(name = "ai_task_result")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AITaskResult {
+    @Id
+    @Column(name = "ai_task_id")
+    private Long aiTaskId;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "ai_task_id")
+    @ToString.Exclude
+    @JsonIgnore
+    private AITask task;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Outcome outcome;
+
+    // Văn bản tóm tắt (summary / text của worker), dùng cho aiSumary của syllabus
+    @Column(columnDefinition = "TEXT")
+    private String summary;
+
+    @Column(columnDefinition = "TEXT")
+    private String error;
+
+    // Object "result" nguyên bản từ worker (data, diff...), parse một lần khi ghi
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(columnDefinition = "jsonb")
+    private Map<String, Object> payload;
+
+    @Column(name = "completed_at", nullable = false)
+    private LocalDateTime completedAt;
+
+    public enum Outcome {
+        SUCCESS,
+        FAILED
+    }
+}
@@ -0,0 +1,39 @@
+package com.smd.core.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Số audit log theo giờ cho mỗi (action type, role), cộng dồn (upsert) trong cùng transaction với lúc ghi log.
+ * Thống kê và biểu đồ đọc bảng này thay vì quét syllabus_audit_logs.
+ */
+@Entity
+@Table(name = "audit_log_hourly_rollup", uniqueConstraints =
+    @UniqueConstraint(name = "uk_audit_log_hourly_rollup", columnNames = {"bucket_hour", "action_type", "performed_by_role"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AuditLogHourlyRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "rollup_id")
+    private Long rollupId;
+
+    // Đầu giờ (date_trunc('hour', timestamp))
+    @Column(name = "bucket_hour", nullable = false)
+    private LocalDateTime bucketHour;
+
+    @Column(name = "action_type", nullable = false, length = 50)
+    private String actionType;
+
+    // UNKNOWN khi log không có role
+    @Column(name = "performed_by_role", nullable = false, length = 50)
+    private String performedByRole;
+
+    @Column(name = "log_count", nullable = false)
+    private Long logCount;
+}
@@ -0,0 +1,27 @@
+package com.smd.core.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Một dòng duy nhất (state_id = 1) ghi mốc cutover của rollup audit log: log có timestamp trước cutover
+ * được dựng lại một lần từ syllabus_audit_logs, log từ cutover trở đi được cộng khi ghi.
+ * Chưa có dòng = chưa nâng cấp xong, lúc ghi không cộng rollup (phần đó thuộc về lần dựng lại).
+ */
+@Entity
+@Table(name = "audit_log_rollup_state")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AuditLogRollupState {
+    @Id
+    @Column(name = "state_id")
+    private Integer stateId;
+
+    @Column(name = "cutover", nullable = false)
+    private LocalDateTime cutover;
+}
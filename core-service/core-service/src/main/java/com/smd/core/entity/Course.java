@@ -7,7 +7,7 @@ import lombok.*;
 import java.util.List;
 
 @Entity
-@Table(name = "course")
+@Table(name = "course", indexes = @Index(name = "idx_course_department", columnList = "department_id, course_id"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -6,7 +6,8 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "course_subscription", 
-       uniqueConstraints = {@UniqueConstraint(columnNames = {"user_id", "course_id"})})
+       uniqueConstraints = {@UniqueConstraint(columnNames = {"user_id", "course_id"})},
+       indexes = @Index(name = "idx_course_subscription_course", columnList = "course_id, user_id"))
 @Getter
 @Setter
 @NoArgsConstructor
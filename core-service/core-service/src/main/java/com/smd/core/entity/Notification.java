@@ -7,7 +7,11 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "notifications")
+// Bảng partition theo tháng trên created_at (SchemaUpgradeRunner chuyển đổi, NotificationPartitionService tạo/xóa partition)
+@Table(name = "notifications", indexes = {
+        @Index(name = "idx_notifications_user_id", columnList = "user_id, notification_id"),
+        @Index(name = "idx_notifications_user_feed", columnList = "user_id, created_at DESC, notification_id DESC")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -56,6 +60,10 @@ public class Notification {
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
 
+    // Số sự kiện đã gộp vào dòng này (coalescing theo recipient, syllabus, type trong cửa sổ thời gian)
+    @Column(name = "group_count")
+    private Integer groupCount;
+
     public enum NotificationType {
         SYLLABUS_SUBMITTED,
         SYLLABUS_APPROVED_BY_HOD,
@@ -67,7 +75,8 @@ public class Notification {
         PDF_UPLOADED,
         PDF_DELETED,
         COMMENT_ADDED,
-        DEADLINE_REMINDER
+        DEADLINE_REMINDER,
+        NOTIFICATION_DIGEST
     }
 
     @PrePersist
@@ -78,5 +87,8 @@ public class Notification {
         if (isRead == null) {
             isRead = false;
         }
+        if (groupCount == null) {
+            groupCount = 1;
+        }
     }
 }
@@ -0,0 +1,47 @@
+package com.smd.core.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Notification đang chờ vào bản tin hằng ngày của user bật digest: một dòng cho mỗi (user, syllabus, type),
+ * mỗi sự kiện mới chỉ tăng item_count (upsert). Job digest đọc và xóa toàn bộ rồi tạo một notification mỗi user.
+ */
+@Entity
+@Table(name = "notification_digest_entry", uniqueConstraints =
+    @UniqueConstraint(name = "uk_notification_digest_entry", columnNames = {"user_id", "syllabus_id", "type"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NotificationDigestEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "entry_id")
+    private Long entryId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "syllabus_id", nullable = false)
+    private Long syllabusId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 50)
+    private Notification.NotificationType type;
+
+    @Column(name = "item_count", nullable = false)
+    private Integer itemCount;
+
+    @Column(name = "last_triggered_by", length = 100)
+    private String lastTriggeredBy;
+
+    @Column(name = "first_at", nullable = false)
+    private LocalDateTime firstAt;
+
+    @Column(name = "last_at", nullable = false)
+    private LocalDateTime lastAt;
+}
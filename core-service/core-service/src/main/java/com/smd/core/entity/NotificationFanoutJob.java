@@ -0,0 +1,60 @@
+package com.smd.core.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+/**
+ * Fan-out notification bị hoãn: executor fan-out đầy lúc publish, sự kiện được ghi lại ở đây và
+ * NotificationFanoutService chạy lại sau (thay vì chạy trên thread của request hoặc bị bỏ).
+ *
+ * Node nào claim được (claimed_at NULL hoặc đã quá hạn) thì node đó chạy; after_user_id là tiến độ keyset,
+ * cập nhật cùng transaction với mỗi batch insert, nên chạy lại sau crash không gửi trùng người đã nhận.
+ */
+@Entity
+@Table(name = "notification_fanout_job", indexes = {
+    @Index(name = "idx_notification_fanout_job_claimed", columnList = "claimed_at, job_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NotificationFanoutJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "job_id")
+    private Long jobId;
+
+    @Column(name = "syllabus_id", nullable = false)
+    private Long syllabusId;
+
+    @Column(name = "course_id", nullable = false)
+    private Long courseId;
+
+    @Column(name = "course_code")
+    private String courseCode;
+
+    @Column(name = "course_name")
+    private String courseName;
+
+    @Column(name = "version_no")
+    private Integer versionNo;
+
+    @Column(name = "published_by")
+    private String publishedBy;
+
+    @Column(name = "published_at", nullable = false)
+    private Instant publishedAt;
+
+    @Column(name = "after_user_id", nullable = false)
+    private Long afterUserId;
+
+    @Column(name = "claimed_at")
+    private LocalDateTime claimedAt;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
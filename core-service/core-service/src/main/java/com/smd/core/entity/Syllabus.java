@@ -8,7 +8,11 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "syllabus")
+@Table(name = "syllabus", indexes = {
+    // Danh sách theo trạng thái: HOD lọc theo course (-> department), lecturer theo chủ sở hữu
+    @Index(name = "idx_syllabus_status_course", columnList = "current_status, course_id"),
+    @Index(name = "idx_syllabus_status_lecturer", columnList = "current_status, lecturer_id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -49,6 +53,15 @@ public class Syllabus {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Thời điểm vào trạng thái hiện tại (SLA nhắc hạn duyệt tính từ đây)
+    @Column(name = "status_changed_at")
+    private LocalDateTime statusChangedAt;
+
+    // Optimistic lock: hai reviewer thao tác cùng lúc thì người commit sau nhận 409
+    @Version
+    @Column(name = "lock_version")
+    private Long lockVersion;
+
     @Column(name = "published_at")
     private LocalDateTime publishedAt;
 
@@ -76,6 +89,10 @@ public class Syllabus {
     @Column(name = "pdf_uploaded_at")
     private LocalDateTime pdfUploadedAt;
 
+    // SHA-256 of the uploaded document, key of the derived preview artifacts
+    @Column(name = "pdf_content_hash", length = 64)
+    private String pdfContentHash;
+
     @ManyToOne(fetch = FetchType.EAGER)
     @JoinColumn(name = "program_id")
     @ToString.Exclude
@@ -113,7 +130,7 @@ public class Syllabus {
     @JsonIgnore
     private List<SyllabusWorkflowHistory> workflowHistories;
 
-    @OneToMany(mappedBy = "syllabus", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "syllabus", cascade = CascadeType.ALL)
     @OrderBy("createdAt ASC")
     @ToString.Exclude
     @JsonIgnore
@@ -131,6 +148,9 @@ public class Syllabus {
         if (currentStatus == null) {
             currentStatus = SyllabusStatus.DRAFT;
         }
+        if (statusChangedAt == null) {
+            statusChangedAt = createdAt;
+        }
         if (versionNo == null) {
             versionNo = 1;
         }
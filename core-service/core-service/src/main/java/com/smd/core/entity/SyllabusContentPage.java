@@ -0,0 +1,56 @@
+package com.smd.core.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+
+/**
+ * Text extracted from the uploaded document of a syllabus, one row per page.
+ * Kept outside the syllabus row so syllabus reads never load document content.
+ */
+@Entity
+@Table(name = "syllabus_content_page",
+        uniqueConstraints = @UniqueConstraint(name = "uk_content_page_syllabus_page", columnNames = {"syllabus_id", "page_number"}),
+        indexes = @Index(name = "idx_content_page_syllabus", columnList = "syllabus_id"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SyllabusContentPage {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "content_page_id")
+    private Long contentPageId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "syllabus_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    @ToString.Exclude
+    @JsonIgnore
+    private Syllabus syllabus;
+
+    @Column(name = "page_number", nullable = false)
+    private Integer pageNumber;
+
+    // Character offset of this page inside the full extracted text
+    @Column(name = "start_offset", nullable = false)
+    private Integer startOffset;
+
+    @Column(name = "content", columnDefinition = "TEXT")
+    private String content;
+
+    @Column(name = "extracted_at", nullable = false)
+    private LocalDateTime extractedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (extractedAt == null) {
+            extractedAt = LocalDateTime.now();
+        }
+    }
+}
@@ -45,6 +45,10 @@ public class User {
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
+    // Nhận các notification loại digest (vd. COMMENT_ADDED) gộp trong một bản tin hằng ngày
+    @Column(name = "notification_digest")
+    private Boolean notificationDigest;
+
     // Relationships
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL)
     @ToString.Exclude
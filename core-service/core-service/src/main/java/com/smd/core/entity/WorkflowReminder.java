@@ -0,0 +1,57 @@
+package com.smd.core.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lịch nhắc hạn duyệt: một dòng cho mỗi lần nhắc của một syllabus đang nằm trong trạng thái chờ.
+ *
+ * Dòng chưa bắn có fired_at = NULL; node nào claim được (UPDATE ... WHERE fired_at IS NULL) thì node đó gửi,
+ * nên restart hay nhiều node cùng chạy không gửi trùng / không làm mất lần nhắc.
+ * Không có FK tới syllabus: lần nhắc của syllabus đã xóa hoặc đã đổi trạng thái bị hủy lúc bắn.
+ */
+@Entity
+@Table(name = "workflow_reminder", indexes = {
+    @Index(name = "idx_workflow_reminder_due", columnList = "fired_at, due_at"),
+    @Index(name = "idx_workflow_reminder_syllabus", columnList = "syllabus_id, status_since")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WorkflowReminder {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "reminder_id")
+    private Long reminderId;
+
+    @Column(name = "syllabus_id", nullable = false)
+    private Long syllabusId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private Syllabus.SyllabusStatus status;
+
+    // Syllabus.statusChangedAt lúc lên lịch: khác đi nghĩa là syllabus đã rời trạng thái
+    @Column(name = "status_since", nullable = false)
+    private LocalDateTime statusSince;
+
+    @Column(name = "due_at", nullable = false)
+    private LocalDateTime dueAt;
+
+    // Lần nhắc thứ mấy (1 = hết SLA, sau đó lặp lại theo workflow.reminder.repeat)
+    @Column(nullable = false)
+    private Integer sequence;
+
+    @Column(name = "fired_at")
+    private LocalDateTime firedAt;
+
+    @Column(nullable = false)
+    private Boolean cancelled;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
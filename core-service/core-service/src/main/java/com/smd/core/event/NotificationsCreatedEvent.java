@@ -0,0 +1,39 @@
+package com.smd.core.event;
+
+import com.smd.core.entity.Notification;
+import com.smd.core.entity.Notification.NotificationType;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Notifications were stored (count per recipient and type): after commit they are pushed to the
+ * recipients' SSE streams and added to their unread counters
+ */
+public record NotificationsCreatedEvent(Map<Long, Map<NotificationType, Long>> countsByRecipient) {
+
+    public Set<Long> recipientIds() {
+        return countsByRecipient.keySet();
+    }
+
+    public static NotificationsCreatedEvent of(Collection<Notification> notifications) {
+        Map<Long, Map<NotificationType, Long>> counts = new HashMap<>();
+        for (Notification notification : notifications) {
+            counts.computeIfAbsent(notification.getRecipient().getUserId(), id -> new EnumMap<>(NotificationType.class))
+                    .merge(notification.getType(), 1L, Long::sum);
+        }
+        return new NotificationsCreatedEvent(counts);
+    }
+
+    public static NotificationsCreatedEvent of(Collection<Long> recipientIds, NotificationType type) {
+        Map<Long, Map<NotificationType, Long>> counts = new HashMap<>();
+        for (Long recipientId : recipientIds) {
+            counts.computeIfAbsent(recipientId, id -> new EnumMap<>(NotificationType.class))
+                    .merge(type, 1L, Long::sum);
+        }
+        return new NotificationsCreatedEvent(counts);
+    }
+}
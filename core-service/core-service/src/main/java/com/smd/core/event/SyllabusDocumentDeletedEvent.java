@@ -0,0 +1,7 @@
+package com.smd.core.event;
+
+/**
+ * Published by SyllabusService after the document of a syllabus has been removed.
+ */
+public record SyllabusDocumentDeletedEvent(Long syllabusId) {
+}
@@ -0,0 +1,13 @@
+package com.smd.core.event;
+
+/**
+ * Published by SyllabusService after a syllabus document (PDF/Word) has been stored.
+ * Listeners run after the upload transaction commits.
+ */
+public record SyllabusDocumentUploadedEvent(
+        Long syllabusId,
+        String filePath,
+        String fileName,
+        String contentHash
+) {
+}
@@ -0,0 +1,15 @@
+package com.smd.core.event;
+
+import java.time.Instant;
+
+/**
+ * Published when a syllabus is published: course followers are notified after commit, off the request thread
+ */
+public record SyllabusPublishedEvent(Long syllabusId,
+                                     Long courseId,
+                                     String courseCode,
+                                     String courseName,
+                                     Integer versionNo,
+                                     String publishedBy,
+                                     Instant publishedAt) {
+}
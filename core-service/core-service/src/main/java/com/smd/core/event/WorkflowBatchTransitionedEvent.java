@@ -0,0 +1,14 @@
+package com.smd.core.event;
+
+import com.smd.core.service.WorkflowTransitions;
+
+import java.util.List;
+
+/**
+ * Published after a batch workflow transition: notifications are created after commit, in bulk
+ */
+public record WorkflowBatchTransitionedEvent(WorkflowTransitions.Transition transition,
+                                             List<Long> syllabusIds,
+                                             String username,
+                                             String comment) {
+}
@@ -0,0 +1,10 @@
+package com.smd.core.exception;
+
+/**
+ * Dữ liệu đã bị thay đổi bởi request khác (optimistic lock, idempotency key đang xử lý...) - HTTP 409
+ */
+public class ConflictException extends RuntimeException {
+    public ConflictException(String message) {
+        super(message);
+    }
+}
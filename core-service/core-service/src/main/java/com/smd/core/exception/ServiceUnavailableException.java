@@ -0,0 +1,14 @@
+package com.smd.core.exception;
+
+/**
+ * Dịch vụ phụ thuộc (AI service...) tạm thời không dùng được - HTTP 503
+ */
+public class ServiceUnavailableException extends RuntimeException {
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+
+    public ServiceUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,13 +1,118 @@
 package com.smd.core.repository;
 
 import com.smd.core.entity.AITask;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface AiTaskRepository extends JpaRepository<AITask, Long> {
     // Tìm các task theo syllabus id để tránh tạo trùng lặp
     List<AITask> findBySyllabus_SyllabusId(Long syllabusId);
-}
\ No newline at end of file
+
+    // Cache kết quả: task cùng loại, cùng tài liệu, cùng model version (mới nhất trước)
+    List<AITask> findTop5ByTaskTypeAndContentHashAndModelVersionAndStatusInOrderByAiTaskIdDesc(
+            AITask.TaskType taskType, String contentHash, String modelVersion, Collection<AITask.TaskStatus> statuses);
+
+    // Task chưa xong có Celery ID tương ứng (dùng cho callback)
+    Optional<AITask> findFirstByExternalTaskIdAndStatusIn(String externalTaskId, Collection<AITask.TaskStatus> statuses);
+
+    // Lô task chưa xong cho reconciler, phân trang theo id (keyset)
+    @Query("SELECT t FROM AITask t WHERE t.status IN :statuses AND t.aiTaskId > :afterId " +
+            "AND COALESCE(t.dispatchedAt, t.createdAt) < :dispatchedBefore ORDER BY t.aiTaskId")
+    List<AITask> findOpenBatch(@Param("statuses") Collection<AITask.TaskStatus> statuses,
+                               @Param("afterId") Long afterId,
+                               @Param("dispatchedBefore") LocalDateTime dispatchedBefore,
+                               Pageable pageable);
+
+    // === AI JOB QUEUE ===
+
+    // Lấy và khóa các job đang chờ: INTERACTIVE trước BULK, FIFO trong cùng lane.
+    // SKIP LOCKED cho phép nhiều instance dispatch song song mà không lấy trùng job.
+    @Query(value = "SELECT * FROM ai_task WHERE status = 'QUEUED' " +
+            "ORDER BY CASE WHEN priority = 'BULK' THEN 1 ELSE 0 END, ai_task_id " +
+            "LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<AITask> lockQueuedForDispatch(@Param("limit") int limit);
+
+    // [taskType, priority, count] của các task đang chiếm slot AI. Task gửi đi trước :since (kẹt do crash /
+    // mất callback, chờ reconciler hết hạn) không tính nữa, để không giữ slot cả ngày
+    @Query("SELECT t.taskType, t.priority, COUNT(t) FROM AITask t WHERE t.status IN :statuses " +
+            "AND COALESCE(t.dispatchedAt, t.createdAt) >= :since GROUP BY t.taskType, t.priority")
+    List<Object[]> countInFlight(@Param("statuses") Collection<AITask.TaskStatus> statuses,
+                                 @Param("since") LocalDateTime since);
+
+    // Advisory lock theo transaction: đếm budget rồi claim được tuần tự hóa giữa các instance
+    @Query(value = "SELECT 1 FROM (SELECT pg_advisory_xact_lock(:key)) l", nativeQuery = true)
+    Integer lockDispatch(@Param("key") long key);
+
+    // [priority, count] của hàng đợi
+    @Query("SELECT t.priority, COUNT(t) FROM AITask t WHERE t.status = :status GROUP BY t.priority")
+    List<Object[]> countByPriority(@Param("status") AITask.TaskStatus status);
+
+    @Modifying
+    @Query("UPDATE AITask t SET t.status = :to, t.externalTaskId = :externalTaskId, t.dispatchedAt = :at " +
+            "WHERE t.aiTaskId = :id AND t.status = :from")
+    int transition(@Param("id") Long id,
+                   @Param("from") AITask.TaskStatus from,
+                   @Param("to") AITask.TaskStatus to,
+                   @Param("externalTaskId") String externalTaskId,
+                   @Param("at") LocalDateTime at);
+
+    // Job bị kẹt ở DISPATCHING (instance chết giữa chừng) được đưa lại vào hàng đợi
+    @Modifying
+    @Query("UPDATE AITask t SET t.status = :to WHERE t.status = :from AND t.dispatchedAt < :before " +
+            "AND t.queuedAt IS NOT NULL")
+    int requeueStale(@Param("from") AITask.TaskStatus from,
+                     @Param("to") AITask.TaskStatus to,
+                     @Param("before") LocalDateTime before);
+
+    // Slot của upload trực tiếp bị kẹt ở DISPATCHING: không có file để gửi lại, chuyển cho reconciler theo id
+    @Modifying
+    @Query("UPDATE AITask t SET t.status = :to WHERE t.status = :from AND t.dispatchedAt < :before " +
+            "AND t.queuedAt IS NULL")
+    int pendStaleReservations(@Param("from") AITask.TaskStatus from,
+                              @Param("to") AITask.TaskStatus to,
+                              @Param("before") LocalDateTime before);
+
+    // Chỉ kết thúc task khi còn mở: callback và reconciler có thể chạy song song,
+    // bên nào cập nhật được (trả về 1) thì ghi kết quả vào ai_task_result
+    @Modifying
+    @Query("UPDATE AITask t SET t.status = :status WHERE t.aiTaskId = :id AND t.status IN :openStatuses")
+    int finishIfOpen(@Param("id") Long id,
+                     @Param("status") AITask.TaskStatus status,
+                     @Param("openStatuses") Collection<AITask.TaskStatus> openStatuses);
+
+    @Modifying
+    @Query("UPDATE AITask t SET t.status = :processing WHERE t.aiTaskId = :id AND t.status = :pending")
+    int markProcessingIfPending(@Param("id") Long id,
+                                @Param("pending") AITask.TaskStatus pending,
+                                @Param("processing") AITask.TaskStatus processing);
+
+    // === TASK CHỜ KẾT QUẢ (cùng tài liệu, syllabus khác) ===
+
+    // Khóa task nguồn trước khi gắn task WAITING vào nó. Bên kết thúc task nguồn (finishIfOpen / transition)
+    // cũng khóa dòng này, nên task WAITING hoặc được commit trước và nhận kết quả, hoặc thấy task nguồn đã xong.
+    // Trả về cột status (không phải entity) để không đọc phải bản cũ trong persistence context
+    @Query(value = "SELECT status FROM ai_task WHERE ai_task_id = :id FOR UPDATE", nativeQuery = true)
+    Optional<String> lockStatus(@Param("id") Long id);
+
+    @Query("SELECT t.aiTaskId FROM AITask t WHERE t.sourceTaskId = :sourceId AND t.status = :status")
+    List<Long> findIdsBySourceTaskIdAndStatus(@Param("sourceId") Long sourceId,
+                                              @Param("status") AITask.TaskStatus status);
+
+    @Modifying
+    @Query("UPDATE AITask t SET t.status = :to, t.dispatchedAt = :at " +
+            "WHERE t.sourceTaskId = :sourceId AND t.status = :from")
+    int finishFollowers(@Param("sourceId") Long sourceId,
+                        @Param("from") AITask.TaskStatus from,
+                        @Param("to") AITask.TaskStatus to,
+                        @Param("at") LocalDateTime at);
+}
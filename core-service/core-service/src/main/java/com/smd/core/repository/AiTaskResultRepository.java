@@ -0,0 +1,28 @@
+package com.smd.core.repository;
+
+import com.smd.core.entity.AITaskResult;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AiTaskResultRepository extends JpaRepository<AITaskResult, Long> {
+
+    // Chỉ lấy cột summary của kết quả thành công mới nhất (không nạp payload)
+    @Query("SELECT r.summary FROM AITaskResult r WHERE r.task.syllabus.syllabusId = :syllabusId " +
+            "AND r.outcome = com.smd.core.entity.AITaskResult.Outcome.SUCCESS AND r.summary IS NOT NULL " +
+            "ORDER BY r.aiTaskId DESC")
+    List<String> findLatestSummaries(@Param("syllabusId") Long syllabusId, Pageable pageable);
+
+    // [syllabus_id, summary] của kết quả thành công mới nhất cho mỗi syllabus trong danh sách
+    @Query(value = "SELECT DISTINCT ON (t.syllabus_id) t.syllabus_id, r.summary FROM ai_task_result r " +
+            "JOIN ai_task t ON t.ai_task_id = r.ai_task_id " +
+            "WHERE t.syllabus_id IN (:syllabusIds) AND r.outcome = 'SUCCESS' AND r.summary IS NOT NULL " +
+            "ORDER BY t.syllabus_id, r.ai_task_id DESC", nativeQuery = true)
+    List<Object[]> findLatestSummariesBySyllabusIds(@Param("syllabusIds") Collection<Long> syllabusIds);
+}
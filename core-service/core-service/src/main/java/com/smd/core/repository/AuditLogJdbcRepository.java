@@ -0,0 +1,72 @@
+package com.smd.core.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Ghi audit log theo lô (JDBC) cho writer bất đồng bộ.
+ * syllabus_id được tra lại lúc ghi: syllabus đã bị xóa trong lúc chờ thì dòng audit vẫn được giữ với syllabus_id null.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AuditLogJdbcRepository {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Một dòng syllabus_audit_logs đã chuẩn bị sẵn (changed_fields / additional_data đã là JSON)
+     */
+    public record AuditEntry(Long syllabusId, String actionType, String performedBy, String performedByRole,
+                             String oldStatus, String newStatus, String comments, String changedFields,
+                             String ipAddress, String userAgent, LocalDateTime timestamp, String additionalData) {
+    }
+
+    public void insertAll(List<AuditEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO syllabus_audit_logs (syllabus_id, action_type, performed_by, performed_by_role, " +
+                        "old_status, new_status, comments, changed_fields, ip_address, user_agent, timestamp, " +
+                        "additional_data) " +
+                        "VALUES ((SELECT syllabus_id FROM syllabus WHERE syllabus_id = ?), ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                entries, BATCH_SIZE, (ps, entry) -> {
+                    if (entry.syllabusId() != null) {
+                        ps.setLong(1, entry.syllabusId());
+                    } else {
+                        ps.setNull(1, Types.BIGINT);
+                    }
+                    ps.setString(2, entry.actionType());
+                    ps.setString(3, entry.performedBy());
+                    ps.setString(4, entry.performedByRole());
+                    ps.setString(5, entry.oldStatus());
+                    ps.setString(6, entry.newStatus());
+                    ps.setString(7, entry.comments());
+                    ps.setString(8, entry.changedFields());
+                    ps.setString(9, entry.ipAddress());
+                    ps.setString(10, entry.userAgent());
+                    ps.setTimestamp(11, Timestamp.valueOf(entry.timestamp()));
+                    ps.setString(12, entry.additionalData());
+                });
+    }
+
+    /**
+     * DB có nhận kết nối không (phân biệt DB down với dòng bị từ chối)
+     */
+    public boolean isAvailable() {
+        try {
+            jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.smd.core.repository;
+
+import com.smd.core.dto.AuditLogSeriesPoint;
+import com.smd.core.dto.AuditLogSeriesPoint.Granularity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rollup số audit log theo (giờ, action type, role): cộng dồn khi ghi log (chạy trong transaction hiện tại)
+ * và các truy vấn thống kê chỉ đọc rollup. Độ chính xác theo giờ: mốc "từ" được làm tròn xuống đầu giờ.
+ * Chỉ log có timestamp từ cutover (audit_log_rollup_state) trở đi được cộng khi ghi, xem {@link #isCounted}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AuditLogRollupJdbcRepository {
+
+    private static final int BATCH_SIZE = 500;
+    public static final String UNKNOWN_ROLE = "UNKNOWN";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Cutover không đổi sau khi đã ghi nên chỉ cần đọc một lần
+    private volatile LocalDateTime cutover;
+
+    public record RollupKey(LocalDateTime hour, String actionType, String role) {
+
+        public static RollupKey of(LocalDateTime timestamp, String actionType, String role) {
+            return new RollupKey(timestamp.truncatedTo(ChronoUnit.HOURS), actionType,
+                    role != null ? role : UNKNOWN_ROLE);
+        }
+    }
+
+    /**
+     * Log có timestamp này được cộng vào rollup lúc ghi không; false khi chưa có cutover
+     * hoặc log trước cutover (đã / sẽ được dựng lại từ syllabus_audit_logs)
+     */
+    public boolean isCounted(LocalDateTime timestamp) {
+        LocalDateTime current = cutover;
+        if (current == null) {
+            List<Timestamp> rows = jdbcTemplate.queryForList(
+                    "SELECT cutover FROM audit_log_rollup_state WHERE state_id = 1", Timestamp.class);
+            if (rows.isEmpty()) {
+                return false;
+            }
+            current = rows.get(0).toLocalDateTime();
+            cutover = current;
+        }
+        return !timestamp.isBefore(current);
+    }
+
+    /**
+     * Cộng {@code counts} vào rollup; khóa được sắp xếp để các transaction đồng thời không deadlock
+     */
+    public void add(Map<RollupKey, Long> counts) {
+        if (counts.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<RollupKey, Long>> rows = new ArrayList<>(counts.entrySet());
+        rows.sort(Map.Entry.comparingByKey(Comparator.comparing(RollupKey::hour)
+                .thenComparing(RollupKey::actionType)
+                .thenComparing(RollupKey::role)));
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO audit_log_hourly_rollup (bucket_hour, action_type, performed_by_role, log_count) " +
+                        "VALUES (?, ?, ?, ?) " +
+                        "ON CONFLICT (bucket_hour, action_type, performed_by_role) " +
+                        "DO UPDATE SET log_count = audit_log_hourly_rollup.log_count + EXCLUDED.log_count",
+                rows, BATCH_SIZE, (ps, row) -> {
+                    ps.setTimestamp(1, Timestamp.valueOf(row.getKey().hour()));
+                    ps.setString(2, row.getKey().actionType());
+                    ps.setString(3, row.getKey().role());
+                    ps.setLong(4, row.getValue());
+                });
+    }
+
+    public long total() {
+        Long total = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(log_count), 0) FROM audit_log_hourly_rollup", Long.class);
+        return total != null ? total : 0;
+    }
+
+    public long totalSince(LocalDateTime from) {
+        Long total = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(log_count), 0) FROM audit_log_hourly_rollup WHERE bucket_hour >= ?",
+                Long.class, Timestamp.valueOf(from.truncatedTo(ChronoUnit.HOURS)));
+        return total != null ? total : 0;
+    }
+
+    public Map<String, Long> countByActionType() {
+        return sumBy("action_type");
+    }
+
+    public Map<String, Long> countByRole() {
+        return sumBy("performed_by_role");
+    }
+
+    /**
+     * Số log mỗi giờ / ngày trong [from, to), chỉ các bucket có log; actionType / role null = tất cả
+     */
+    public List<AuditLogSeriesPoint> series(LocalDateTime from, LocalDateTime to, Granularity granularity,
+                                            String actionType, String role) {
+        StringBuilder sql = new StringBuilder("SELECT date_trunc('")
+                .append(granularity == Granularity.DAY ? "day" : "hour")
+                .append("', bucket_hour) AS bucket, SUM(log_count) AS total FROM audit_log_hourly_rollup ")
+                .append("WHERE bucket_hour >= ? AND bucket_hour < ?");
+        List<Object> args = new ArrayList<>();
+        args.add(Timestamp.valueOf(from.truncatedTo(ChronoUnit.HOURS)));
+        args.add(Timestamp.valueOf(to));
+        if (actionType != null) {
+            sql.append(" AND action_type = ?");
+            args.add(actionType);
+        }
+        if (role != null) {
+            sql.append(" AND performed_by_role = ?");
+            args.add(role);
+        }
+        sql.append(" GROUP BY 1 ORDER BY 1");
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> AuditLogSeriesPoint.builder()
+                .bucket(rs.getTimestamp("bucket").toLocalDateTime())
+                .count(rs.getLong("total"))
+                .build(), args.toArray());
+    }
+
+    private Map<String, Long> sumBy(String column) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT " + column + ", SUM(log_count) FROM audit_log_hourly_rollup GROUP BY " + column +
+                        " ORDER BY 2 DESC",
+                rs -> {
+                    counts.put(rs.getString(1), rs.getLong(2));
+                });
+        return counts;
+    }
+}
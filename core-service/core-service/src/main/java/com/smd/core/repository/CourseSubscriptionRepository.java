@@ -2,8 +2,10 @@ package com.smd.core.repository;
 
 import com.smd.core.entity.CourseSubscription;
 import com.smd.core.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -23,4 +25,10 @@ public interface CourseSubscriptionRepository extends JpaRepository<CourseSubscr
     // Lấy danh sách users đang follow một môn học (Dùng để gửi thông báo)
     @Query("SELECT cs.user FROM CourseSubscription cs WHERE cs.course.courseId = :courseId")
     List<User> findFollowersByCourseId(Long courseId);
+
+    // Keyset page of follower ids (fan-out streams recipients without loading User entities)
+    @Query("SELECT cs.user.userId FROM CourseSubscription cs WHERE cs.course.courseId = :courseId " +
+            "AND cs.user.userId > :afterUserId ORDER BY cs.user.userId")
+    List<Long> findFollowerIdsAfter(@Param("courseId") Long courseId, @Param("afterUserId") Long afterUserId,
+                                    Pageable pageable);
 }
\ No newline at end of file
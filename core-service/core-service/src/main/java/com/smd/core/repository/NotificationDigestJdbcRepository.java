@@ -0,0 +1,49 @@
+package com.smd.core.repository;
+
+import com.smd.core.entity.Notification.NotificationType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Hàng đợi bản tin hằng ngày (notification_digest_entry)
+ */
+@Repository
+@RequiredArgsConstructor
+public class NotificationDigestJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record DigestEntry(Long userId, Long syllabusId, NotificationType type, int itemCount,
+                              String lastTriggeredBy, LocalDateTime lastAt) {
+    }
+
+    /**
+     * Thêm một sự kiện vào digest của user: cùng (user, syllabus, type) thì chỉ tăng item_count
+     */
+    public void add(Long userId, Long syllabusId, NotificationType type, String triggeredBy, LocalDateTime at) {
+        Timestamp timestamp = Timestamp.valueOf(at);
+        jdbcTemplate.update(
+                "INSERT INTO notification_digest_entry (user_id, syllabus_id, type, item_count, last_triggered_by, first_at, last_at) " +
+                        "VALUES (?, ?, ?, 1, ?, ?, ?) " +
+                        "ON CONFLICT (user_id, syllabus_id, type) DO UPDATE SET " +
+                        "item_count = notification_digest_entry.item_count + 1, " +
+                        "last_triggered_by = EXCLUDED.last_triggered_by, last_at = EXCLUDED.last_at",
+                userId, syllabusId, type.name(), triggeredBy, timestamp, timestamp);
+    }
+
+    /**
+     * Lấy và xóa toàn bộ entry (gọi trong transaction tạo digest: rollback thì entry còn nguyên)
+     */
+    public List<DigestEntry> drain() {
+        return jdbcTemplate.query(
+                "DELETE FROM notification_digest_entry " +
+                        "RETURNING user_id, syllabus_id, type, item_count, last_triggered_by, last_at",
+                (rs, i) -> new DigestEntry(rs.getLong(1), rs.getLong(2), NotificationType.valueOf(rs.getString(3)),
+                        rs.getInt(4), rs.getString(5), rs.getTimestamp(6).toLocalDateTime()));
+    }
+}
@@ -0,0 +1,65 @@
+package com.smd.core.repository;
+
+import com.smd.core.event.SyllabusPublishedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Bảng notification_fanout_job: fan-out bị hoãn khi executor đầy, claim bằng FOR UPDATE SKIP LOCKED
+ * để nhiều node không chạy cùng một job
+ */
+@Repository
+@RequiredArgsConstructor
+public class NotificationFanoutJobJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record DeferredFanout(Long jobId, long afterUserId, SyllabusPublishedEvent event) {
+    }
+
+    public void insert(SyllabusPublishedEvent event) {
+        jdbcTemplate.update(
+                "INSERT INTO notification_fanout_job (syllabus_id, course_id, course_code, course_name, version_no, " +
+                        "published_by, published_at, after_user_id, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, 0, ?)",
+                event.syllabusId(), event.courseId(), event.courseCode(), event.courseName(), event.versionNo(),
+                event.publishedBy(), Timestamp.from(event.publishedAt()), Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    /**
+     * Claim tối đa {@code limit} job chưa ai chạy, hoặc có claim cũ hơn {@code staleBefore} (node chạy đã chết)
+     */
+    public List<DeferredFanout> claim(LocalDateTime now, LocalDateTime staleBefore, int limit) {
+        return jdbcTemplate.query(
+                "UPDATE notification_fanout_job SET claimed_at = ? WHERE job_id IN (" +
+                        "SELECT job_id FROM notification_fanout_job WHERE claimed_at IS NULL OR claimed_at < ? " +
+                        "ORDER BY job_id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+                        "RETURNING job_id, after_user_id, syllabus_id, course_id, course_code, course_name, " +
+                        "version_no, published_by, published_at",
+                (rs, i) -> new DeferredFanout(rs.getLong(1), rs.getLong(2), new SyllabusPublishedEvent(
+                        rs.getLong(3), rs.getLong(4), rs.getString(5), rs.getString(6),
+                        (Integer) rs.getObject(7), rs.getString(8), rs.getTimestamp(9).toInstant())),
+                Timestamp.valueOf(now), Timestamp.valueOf(staleBefore), limit);
+    }
+
+    /**
+     * Ghi tiến độ sau một batch (trong transaction của batch) và gia hạn claim
+     */
+    public void advance(Long jobId, long afterUserId) {
+        jdbcTemplate.update(
+                "UPDATE notification_fanout_job SET after_user_id = ?, claimed_at = ? WHERE job_id = ?",
+                afterUserId, Timestamp.valueOf(LocalDateTime.now()), jobId);
+    }
+
+    public void release(Long jobId) {
+        jdbcTemplate.update("UPDATE notification_fanout_job SET claimed_at = NULL WHERE job_id = ?", jobId);
+    }
+
+    public void delete(Long jobId) {
+        jdbcTemplate.update("DELETE FROM notification_fanout_job WHERE job_id = ?", jobId);
+    }
+}
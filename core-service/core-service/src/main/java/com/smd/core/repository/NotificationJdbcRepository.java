@@ -0,0 +1,130 @@
+package com.smd.core.repository;
+
+import com.smd.core.entity.Notification;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Insert nhiều notification bằng JDBC batch (IDENTITY id khiến Hibernate không batch được)
+ */
+@Repository
+@RequiredArgsConstructor
+public class NotificationJdbcRepository {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Cùng một nội dung (template, không dùng recipient) cho nhiều người nhận: fan-out tới follower
+     */
+    public void insertForRecipients(List<Long> recipientIds, Notification template) {
+        if (recipientIds.isEmpty()) {
+            return;
+        }
+        Timestamp createdAt = Timestamp.valueOf(template.getCreatedAt() != null ? template.getCreatedAt() : LocalDateTime.now());
+        Long syllabusId = template.getSyllabus() != null ? template.getSyllabus().getSyllabusId() : null;
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO notifications (user_id, syllabus_id, type, title, message, is_read, " +
+                        "action_url, triggered_by, created_at) VALUES (?, ?, ?, ?, ?, false, ?, ?, ?)",
+                recipientIds, BATCH_SIZE, (ps, recipientId) -> {
+                    ps.setLong(1, recipientId);
+                    if (syllabusId != null) {
+                        ps.setLong(2, syllabusId);
+                    } else {
+                        ps.setNull(2, Types.BIGINT);
+                    }
+                    ps.setString(3, template.getType().name());
+                    ps.setString(4, template.getTitle());
+                    ps.setString(5, template.getMessage());
+                    ps.setString(6, template.getActionUrl());
+                    ps.setString(7, template.getTriggeredBy());
+                    ps.setTimestamp(8, createdAt);
+                });
+    }
+
+    public void insertAll(List<Notification> notifications) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO notifications (user_id, syllabus_id, type, title, message, is_read, " +
+                        "action_url, triggered_by, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                notifications, BATCH_SIZE, (ps, n) -> {
+                    ps.setLong(1, n.getRecipient().getUserId());
+                    if (n.getSyllabus() != null) {
+                        ps.setLong(2, n.getSyllabus().getSyllabusId());
+                    } else {
+                        ps.setNull(2, Types.BIGINT);
+                    }
+                    ps.setString(3, n.getType().name());
+                    ps.setString(4, n.getTitle());
+                    ps.setString(5, n.getMessage());
+                    ps.setBoolean(6, Boolean.TRUE.equals(n.getIsRead()));
+                    ps.setString(7, n.getActionUrl());
+                    ps.setString(8, n.getTriggeredBy());
+                    ps.setTimestamp(9, n.getCreatedAt() != null ? Timestamp.valueOf(n.getCreatedAt()) : now);
+                });
+    }
+
+    /**
+     * Gộp {@code n} vào notification chưa đọc mới nhất cùng (recipient, syllabus, type) tạo sau {@code since}:
+     * tăng group_count và thay nội dung bằng sự kiện mới nhất. false = không có dòng để gộp, caller insert mới.
+     * Cột created_at (khóa partition) trong điều kiện để chỉ quét partition của cửa sổ.
+     */
+    public boolean mergeInto(Notification n, LocalDateTime since) {
+        Timestamp from = Timestamp.valueOf(since);
+        return jdbcTemplate.update(
+                "UPDATE notifications SET group_count = COALESCE(group_count, 1) + 1, title = ?, " +
+                        "message = ? || ' (+' || COALESCE(group_count, 1) || ' earlier)', triggered_by = ? " +
+                        "WHERE notification_id = (SELECT notification_id FROM notifications " +
+                        "WHERE user_id = ? AND syllabus_id = ? AND type = ? AND is_read = false AND created_at >= ? " +
+                        "ORDER BY created_at DESC LIMIT 1) " +
+                        "AND is_read = false AND created_at >= ?",
+                n.getTitle(), n.getMessage(), n.getTriggeredBy(),
+                n.getRecipient().getUserId(), n.getSyllabus().getSyllabusId(), n.getType().name(), from, from) > 0;
+    }
+
+    /**
+     * Đánh dấu đã đọc các notification {@code ids} của user trong một UPDATE; trả về loại của các dòng
+     * thực sự chuyển từ chưa đọc sang đã đọc (id của người khác / đã đọc bị bỏ qua)
+     */
+    public List<Notification.NotificationType> markRead(Long userId, Collection<Long> ids, LocalDateTime readAt) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(
+                "UPDATE notifications SET is_read = true, read_at = ? " +
+                        "WHERE user_id = ? AND notification_id = ANY (?) AND is_read = false RETURNING type",
+                (rs, i) -> Notification.NotificationType.valueOf(rs.getString(1)),
+                Timestamp.valueOf(readAt), userId, ids.toArray(Long[]::new));
+    }
+
+    /**
+     * Loại của các notification {@code ids} của user còn chưa đọc, theo id (đọc theo PK, không khóa)
+     */
+    public Map<Long, Notification.NotificationType> findUnreadTypes(Long userId, Collection<Long> ids) {
+        Map<Long, Notification.NotificationType> types = new HashMap<>();
+        if (ids.isEmpty()) {
+            return types;
+        }
+        jdbcTemplate.query(
+                "SELECT notification_id, type FROM notifications " +
+                        "WHERE user_id = ? AND notification_id = ANY (?) AND is_read = false",
+                rs -> {
+                    types.put(rs.getLong(1), Notification.NotificationType.valueOf(rs.getString(2)));
+                },
+                userId, ids.toArray(Long[]::new));
+        return types;
+    }
+}
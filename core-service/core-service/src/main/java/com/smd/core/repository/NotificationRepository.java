@@ -16,7 +16,8 @@ import java.util.List;
 @Repository
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
     
-    // Find by user
+    // Find by user: ORDER BY created_at DESC trên bảng partition theo created_at + index (user_id, created_at DESC, id DESC)
+    // của từng partition -> ordered Append, trang đầu chỉ đọc partition mới nhất
     List<Notification> findByRecipientOrderByCreatedAtDesc(User recipient);
     
     Page<Notification> findByRecipientOrderByCreatedAtDesc(User recipient, Pageable pageable);
@@ -34,17 +35,46 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     
     // Mark as read
     @Modifying
-    @Query("UPDATE Notification n SET n.isRead = true, n.readAt = :readAt WHERE n.notificationId = :id")
-    void markAsRead(@Param("id") Long id, @Param("readAt") LocalDateTime readAt);
+    @Query("UPDATE Notification n SET n.isRead = true, n.readAt = :readAt WHERE n.notificationId = :id AND n.isRead = false")
+    int markAsRead(@Param("id") Long id, @Param("readAt") LocalDateTime readAt);
     
     @Modifying
     @Query("UPDATE Notification n SET n.isRead = true, n.readAt = :readAt WHERE n.recipient = :recipient AND n.isRead = false")
     void markAllAsRead(@Param("recipient") User recipient, @Param("readAt") LocalDateTime readAt);
     
-    // Delete old notifications
-    @Modifying
-    @Query("DELETE FROM Notification n WHERE n.createdAt < :cutoffDate")
-    void deleteOlderThan(@Param("cutoffDate") LocalDateTime cutoffDate);
+    // Unread theo loại (bộ đếm unread: dựng lại cho một user / reconcile toàn bộ)
+    @Query("SELECT n.type, COUNT(n) FROM Notification n WHERE n.recipient.userId = :userId AND n.isRead = false GROUP BY n.type")
+    List<Object[]> countUnreadByType(@Param("userId") Long userId);
+    
+    @Query("SELECT n.recipient.userId, n.type, COUNT(n) FROM Notification n WHERE n.isRead = false " +
+           "GROUP BY n.recipient.userId, n.type")
+    List<Object[]> countUnreadByRecipientAndType();
+    
+    // Feed keyset: trang đầu (không cursor) và các trang sau cursor (createdAt, id); đọc thẳng theo thứ tự
+    // idx_notifications_user_feed, không OFFSET, không COUNT
+    @Query("SELECT n FROM Notification n LEFT JOIN FETCH n.syllabus s LEFT JOIN FETCH s.course " +
+           "WHERE n.recipient.userId = :userId ORDER BY n.createdAt DESC, n.notificationId DESC")
+    List<Notification> findFeedFirstPage(@Param("userId") Long userId, Pageable pageable);
+    
+    @Query("SELECT n FROM Notification n LEFT JOIN FETCH n.syllabus s LEFT JOIN FETCH s.course " +
+           "WHERE n.recipient.userId = :userId AND n.createdAt <= :createdAt " +
+           "AND (n.createdAt < :createdAt OR n.notificationId < :id) " +
+           "ORDER BY n.createdAt DESC, n.notificationId DESC")
+    List<Notification> findFeedAfter(@Param("userId") Long userId, @Param("createdAt") LocalDateTime createdAt,
+                                     @Param("id") Long id, Pageable pageable);
+    
+    long countByRecipient_UserId(Long userId);
+    
+    // Notification stream (SSE): mới hơn Last-Event-ID, theo thứ tự id
+    @Query("SELECT n FROM Notification n LEFT JOIN FETCH n.syllabus s LEFT JOIN FETCH s.course " +
+           "WHERE n.recipient.userId = :userId AND n.notificationId > :afterId ORDER BY n.notificationId")
+    List<Notification> findStreamBatch(@Param("userId") Long userId, @Param("afterId") Long afterId, Pageable pageable);
+    
+    @Query("SELECT n.notificationId FROM Notification n WHERE n.recipient.userId = :userId AND n.notificationId > :afterId")
+    List<Long> findStreamIds(@Param("userId") Long userId, @Param("afterId") Long afterId);
+    
+    @Query("SELECT COALESCE(MAX(n.notificationId), 0) FROM Notification n WHERE n.recipient.userId = :userId")
+    Long findLatestIdByRecipient(@Param("userId") Long userId);
     
     // Get notifications by syllabus
     @Query("SELECT n FROM Notification n WHERE n.syllabus.syllabusId = :syllabusId ORDER BY n.createdAt DESC")
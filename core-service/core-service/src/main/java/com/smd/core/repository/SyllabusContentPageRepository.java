@@ -0,0 +1,24 @@
+package com.smd.core.repository;
+
+import com.smd.core.entity.SyllabusContentPage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SyllabusContentPageRepository extends JpaRepository<SyllabusContentPage, Long> {
+
+    List<SyllabusContentPage> findBySyllabus_SyllabusIdOrderByPageNumberAsc(Long syllabusId);
+
+    @Modifying
+    @Query("DELETE FROM SyllabusContentPage p WHERE p.syllabus.syllabusId = :syllabusId")
+    int deleteBySyllabusId(@Param("syllabusId") Long syllabusId);
+
+    // Advisory lock theo transaction, khóa (namespace, hash của syllabus id): các lần trích xuất cùng syllabus chạy tuần tự
+    @Query(value = "SELECT 1 FROM (SELECT pg_advisory_xact_lock(:namespace, hashint8(:syllabusId))) l", nativeQuery = true)
+    Integer lockSyllabus(@Param("namespace") int namespace, @Param("syllabusId") long syllabusId);
+}
@@ -0,0 +1,12 @@
+package com.smd.core.repository;
+
+import com.smd.core.document.SyllabusPageDocument;
+import org.springframework.data.elasticsearch.repository.ElasticsearchRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SyllabusPageSearchRepository extends ElasticsearchRepository<SyllabusPageDocument, String>,
+        SyllabusPageSearchRepositoryCustom {
+
+    void deleteBySyllabusId(Long syllabusId);
+}
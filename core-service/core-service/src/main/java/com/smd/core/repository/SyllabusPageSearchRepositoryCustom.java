@@ -0,0 +1,10 @@
+package com.smd.core.repository;
+
+import com.smd.core.document.SyllabusPageDocument;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.core.SearchHits;
+
+public interface SyllabusPageSearchRepositoryCustom {
+
+    SearchHits<SyllabusPageDocument> searchByContent(String keyword, Pageable pageable);
+}
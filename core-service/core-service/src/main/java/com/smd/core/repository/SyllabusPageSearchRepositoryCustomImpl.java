@@ -0,0 +1,43 @@
+package com.smd.core.repository;
+
+import com.smd.core.document.SyllabusPageDocument;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.query.HighlightQuery;
+import org.springframework.data.elasticsearch.core.query.highlight.Highlight;
+import org.springframework.data.elasticsearch.core.query.highlight.HighlightField;
+import org.springframework.data.elasticsearch.core.query.highlight.HighlightParameters;
+
+import java.util.List;
+
+/**
+ * Full-text match trên nội dung trang, kèm highlight để làm snippet.
+ * Keyword được truyền như một giá trị của match query (client tự serialize), không ghép vào chuỗi JSON.
+ */
+@RequiredArgsConstructor
+public class SyllabusPageSearchRepositoryCustomImpl implements SyllabusPageSearchRepositoryCustom {
+
+    private static final Highlight CONTENT_HIGHLIGHT = new Highlight(
+            HighlightParameters.builder()
+                    .withFragmentSize(160)
+                    .withNumberOfFragments(1)
+                    .withPreTags("<em>")
+                    .withPostTags("</em>")
+                    .build(),
+            List.of(new HighlightField("content")));
+
+    private final ElasticsearchOperations operations;
+
+    @Override
+    public SearchHits<SyllabusPageDocument> searchByContent(String keyword, Pageable pageable) {
+        NativeQuery query = NativeQuery.builder()
+                .withQuery(q -> q.match(m -> m.field("content").query(keyword)))
+                .withHighlightQuery(new HighlightQuery(CONTENT_HIGHLIGHT, SyllabusPageDocument.class))
+                .withPageable(pageable)
+                .build();
+        return operations.search(query, SyllabusPageDocument.class);
+    }
+}
@@ -1,15 +1,22 @@
 package com.smd.core.repository;
 
+import com.smd.core.dto.SyllabusDocumentRef;
 import com.smd.core.entity.Syllabus;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
-import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface SyllabusRepository extends JpaRepository<Syllabus, Long> {
@@ -50,6 +57,58 @@ public interface SyllabusRepository extends JpaRepository<Syllabus, Long> {
     @Query("UPDATE Syllabus s SET s.isLatestVersion = false WHERE s.course.courseId = :courseId AND s.academicYear = :academicYear AND s.isLatestVersion = true")
     void updateOldVersionsAsNotLatest(@Param("courseId") Long courseId, @Param("academicYear") String academicYear);
     
-    // Find syllabuses by status
-    List<Syllabus> findByCurrentStatus(Syllabus.SyllabusStatus status);
+    // === LISTING BY STATUS (lọc quyền xem trong DB, phân trang) ===
+
+    // AA / Principal / Admin: tất cả syllabus có trạng thái này
+    @EntityGraph(attributePaths = {"course", "lecturer", "program"})
+    Page<Syllabus> findByCurrentStatus(Syllabus.SyllabusStatus status, Pageable pageable);
+
+    // HOD: syllabus thuộc khoa (course.department_id), dùng idx_course_department + idx_syllabus_status_course
+    @EntityGraph(attributePaths = {"course", "lecturer", "program"})
+    @Query(value = "SELECT s FROM Syllabus s WHERE s.currentStatus = :status AND s.course.department.departmentId = :departmentId",
+            countQuery = "SELECT COUNT(s) FROM Syllabus s WHERE s.currentStatus = :status AND s.course.department.departmentId = :departmentId")
+    Page<Syllabus> findByCurrentStatusAndDepartment(@Param("status") Syllabus.SyllabusStatus status,
+                                                    @Param("departmentId") Long departmentId,
+                                                    Pageable pageable);
+
+    // Lecturer: chỉ syllabus của mình (idx_syllabus_status_lecturer)
+    @EntityGraph(attributePaths = {"course", "lecturer", "program"})
+    Page<Syllabus> findByCurrentStatusAndLecturer_UserId(Syllabus.SyllabusStatus status, Long lecturerId, Pageable pageable);
+
+    // Stream all stored document paths (used by the upload orphan collector, must run inside a transaction)
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("SELECT s.pdfFilePath FROM Syllabus s WHERE s.pdfFilePath IS NOT NULL")
+    Stream<String> streamPdfFilePaths();
+
+    // Content hashes still referenced (preview artifacts of other hashes can be purged)
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("SELECT DISTINCT s.pdfContentHash FROM Syllabus s WHERE s.pdfContentHash IS NOT NULL")
+    Stream<String> streamPdfContentHashes();
+
+    // Lightweight lookup of the stored document without loading the syllabus graph
+    @Query("SELECT new com.smd.core.dto.SyllabusDocumentRef(s.syllabusId, s.pdfFilePath, s.pdfFileName, s.pdfContentHash) " +
+            "FROM Syllabus s WHERE s.syllabusId = :syllabusId")
+    Optional<SyllabusDocumentRef> findDocumentRef(@Param("syllabusId") Long syllabusId);
+
+    // [departmentId, status, count] cho recount bộ đếm hộp thư duyệt
+    @Query("SELECT c.department.departmentId, s.currentStatus, COUNT(s) FROM Syllabus s JOIN s.course c " +
+            "WHERE s.currentStatus IN :statuses GROUP BY c.department.departmentId, s.currentStatus")
+    List<Object[]> countByStatusAndDepartment(@Param("statuses") Collection<Syllabus.SyllabusStatus> statuses);
+
+    // === BATCH WORKFLOW ===
+
+    // [syllabusId, currentStatus, lecturerId, departmentId] để validate cả batch bằng một query
+    @Query("SELECT s.syllabusId, s.currentStatus, s.lecturer.userId, s.course.department.departmentId " +
+            "FROM Syllabus s WHERE s.syllabusId IN :ids")
+    List<Object[]> findWorkflowStates(@Param("ids") Collection<Long> ids);
+
+    // Syllabus kèm course / department / HOD / lecturer cho việc tạo notification hàng loạt
+    @Query("SELECT s FROM Syllabus s JOIN FETCH s.course c LEFT JOIN FETCH c.department d " +
+            "LEFT JOIN FETCH d.headOfDepartment JOIN FETCH s.lecturer WHERE s.syllabusId IN :ids")
+    List<Syllabus> findAllForNotification(@Param("ids") Collection<Long> ids);
+
+    // Backfill hash for documents uploaded before hashing existed (guarded by path in case of re-upload)
+    @Modifying
+    @Query("UPDATE Syllabus s SET s.pdfContentHash = :hash WHERE s.syllabusId = :syllabusId AND s.pdfFilePath = :path")
+    int updatePdfContentHash(@Param("syllabusId") Long syllabusId, @Param("path") String path, @Param("hash") String hash);
 }
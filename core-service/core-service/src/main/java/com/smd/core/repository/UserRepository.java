@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,4 +26,8 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     @Query("SELECT DISTINCT u FROM User u JOIN u.userRoles ur JOIN ur.role r WHERE r.roleName = :roleName")
     List<User> findByRole_RoleName(@Param("roleName") String roleName);
+
+    // Người nhận đã bật digest trong số userIds (coalescing notification)
+    @Query("SELECT u.userId FROM User u WHERE u.userId IN :userIds AND u.notificationDigest = true")
+    List<Long> findDigestUserIds(@Param("userIds") Collection<Long> userIds);
 }
@@ -2,6 +2,7 @@ package com.smd.core.repository;
 
 import com.smd.core.entity.UserRole;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -14,4 +15,8 @@ public interface UserRoleRepository extends JpaRepository<UserRole, Long> {
     Optional<UserRole> findByUser_UserIdAndRole_RoleId(Long userId, Long roleId);
     
     void deleteByUser_UserIdAndRole_RoleId(Long userId, Long roleId);
+    
+    // (roleName, userId) của mọi phân quyền: nạp RoleMembershipCache
+    @Query("SELECT r.roleName, ur.user.userId FROM UserRole ur JOIN ur.role r")
+    List<Object[]> findAllRoleMemberships();
 }
@@ -0,0 +1,78 @@
+package com.smd.core.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Set-based writes cho batch workflow transition (JDBC, chạy trong transaction hiện tại).
+ * Các entity liên quan không được nạp vào persistence context.
+ */
+@Repository
+@RequiredArgsConstructor
+public class WorkflowBatchJdbcRepository {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Chuyển trạng thái các syllabus vẫn còn ở trạng thái nguồn; trả về id của các dòng đã cập nhật
+     */
+    public List<Long> updateStatus(List<Long> syllabusIds, String from, String to,
+                                   LocalDateTime now, boolean publish) {
+        if (syllabusIds.isEmpty()) {
+            return List.of();
+        }
+        Timestamp at = Timestamp.valueOf(now);
+        return jdbcTemplate.queryForList(
+                "UPDATE syllabus SET current_status = ?, updated_at = ?, status_changed_at = ?, " +
+                        "lock_version = COALESCE(lock_version, 0) + 1, " +
+                        "published_at = CASE WHEN ? THEN ? ELSE published_at END " +
+                        "WHERE syllabus_id = ANY (?) AND current_status = ? RETURNING syllabus_id",
+                Long.class,
+                to, at, at, publish, at, syllabusIds.toArray(Long[]::new), from);
+    }
+
+    public void insertHistory(List<Long> syllabusIds, Long stepId, Long actionBy, String action,
+                              String comment, LocalDateTime now) {
+        Timestamp at = Timestamp.valueOf(now);
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO syllabus_workflow_history (syllabus_id, step_id, action_by, action, comment, action_time) " +
+                        "VALUES (?, ?, ?, ?, ?, ?)",
+                syllabusIds, BATCH_SIZE, (ps, syllabusId) -> {
+                    ps.setLong(1, syllabusId);
+                    ps.setLong(2, stepId);
+                    ps.setLong(3, actionBy);
+                    ps.setString(4, action);
+                    ps.setString(5, comment);
+                    ps.setTimestamp(6, at);
+                });
+    }
+
+    public void insertAuditLogs(List<Long> syllabusIds, String actionType, String username, String roleName,
+                                String oldStatus, String newStatus, String comments,
+                                String ipAddress, String userAgent, LocalDateTime now) {
+        Timestamp at = Timestamp.valueOf(now);
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO syllabus_audit_logs (syllabus_id, action_type, performed_by, performed_by_role, " +
+                        "old_status, new_status, comments, ip_address, user_agent, timestamp) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                syllabusIds, BATCH_SIZE, (ps, syllabusId) -> {
+                    ps.setLong(1, syllabusId);
+                    ps.setString(2, actionType);
+                    ps.setString(3, username);
+                    ps.setString(4, roleName);
+                    ps.setString(5, oldStatus);
+                    ps.setString(6, newStatus);
+                    ps.setString(7, comments);
+                    ps.setString(8, ipAddress);
+                    ps.setString(9, userAgent);
+                    ps.setTimestamp(10, at);
+                });
+    }
+}
@@ -0,0 +1,126 @@
+package com.smd.core.repository;
+
+import com.smd.core.entity.Syllabus.SyllabusStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Bảng workflow_reminder: lên lịch bằng JDBC batch, claim có điều kiện (fired_at IS NULL) để mỗi lần
+ * nhắc chỉ được một node gửi đúng một lần
+ */
+@Repository
+@RequiredArgsConstructor
+public class WorkflowReminderJdbcRepository {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String INSERT = "INSERT INTO workflow_reminder " +
+            "(syllabus_id, status, status_since, due_at, sequence, cancelled, created_at) VALUES (?, ?, ?, ?, ?, false, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record DueReminder(Long reminderId, LocalDateTime dueAt) {
+    }
+
+    public record FiredReminder(Long reminderId, Long syllabusId, SyllabusStatus status,
+                                LocalDateTime statusSince, int sequence) {
+    }
+
+    /**
+     * Lần nhắc đầu tiên cho các syllabus vừa vào {@code status} lúc {@code since}
+     */
+    public void schedule(Collection<Long> syllabusIds, SyllabusStatus status, LocalDateTime since, LocalDateTime dueAt) {
+        if (syllabusIds.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT, syllabusIds, BATCH_SIZE, (ps, syllabusId) -> {
+            ps.setLong(1, syllabusId);
+            ps.setString(2, status.name());
+            ps.setTimestamp(3, Timestamp.valueOf(since));
+            ps.setTimestamp(4, Timestamp.valueOf(dueAt));
+            ps.setInt(5, 1);
+            ps.setTimestamp(6, now);
+        });
+    }
+
+    /**
+     * Lần nhắc tiếp theo cho các syllabus vẫn còn chờ sau khi đã nhắc
+     */
+    public void scheduleNext(List<FiredReminder> fired, LocalDateTime dueAt) {
+        if (fired.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT, fired, BATCH_SIZE, (ps, r) -> {
+            ps.setLong(1, r.syllabusId());
+            ps.setString(2, r.status().name());
+            ps.setTimestamp(3, Timestamp.valueOf(r.statusSince()));
+            ps.setTimestamp(4, Timestamp.valueOf(dueAt));
+            ps.setInt(5, r.sequence() + 1);
+            ps.setTimestamp(6, now);
+        });
+    }
+
+    /**
+     * Syllabus đang ở {@code status} mà lần vào trạng thái hiện tại chưa có lịch nhắc
+     * (dữ liệu trước khi có bảng này, trạng thái sửa trực tiếp). Dùng index (current_status, ...) của syllabus.
+     */
+    public int scheduleMissing(SyllabusStatus status, Duration sla) {
+        return jdbcTemplate.update(
+                "INSERT INTO workflow_reminder (syllabus_id, status, status_since, due_at, sequence, cancelled, created_at) " +
+                        "SELECT s.syllabus_id, s.current_status, s.status_changed_at, " +
+                        "s.status_changed_at + ? * INTERVAL '1 second', 1, false, ? " +
+                        "FROM syllabus s WHERE s.current_status = ? AND s.status_changed_at IS NOT NULL " +
+                        "AND NOT EXISTS (SELECT 1 FROM workflow_reminder r WHERE r.syllabus_id = s.syllabus_id " +
+                        "AND r.status = s.current_status AND r.status_since = s.status_changed_at)",
+                sla.toSeconds(), Timestamp.valueOf(LocalDateTime.now()), status.name());
+    }
+
+    /**
+     * Lần nhắc chưa bắn, đến hạn trước {@code before} (range scan trên idx_workflow_reminder_due)
+     */
+    public List<DueReminder> findDue(LocalDateTime before, int limit) {
+        return jdbcTemplate.query(
+                "SELECT reminder_id, due_at FROM workflow_reminder WHERE fired_at IS NULL AND due_at < ? " +
+                        "ORDER BY due_at LIMIT ?",
+                (rs, i) -> new DueReminder(rs.getLong(1), rs.getTimestamp(2).toLocalDateTime()),
+                Timestamp.valueOf(before), limit);
+    }
+
+    /**
+     * Claim các lần nhắc còn mở mà syllabus vẫn đang ở đúng lần vào trạng thái đã lên lịch
+     */
+    public List<FiredReminder> claim(List<Long> reminderIds, LocalDateTime now) {
+        if (reminderIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(
+                "UPDATE workflow_reminder r SET fired_at = ? FROM syllabus s " +
+                        "WHERE r.reminder_id = ANY (?) AND r.fired_at IS NULL AND s.syllabus_id = r.syllabus_id " +
+                        "AND s.current_status = r.status AND s.status_changed_at = r.status_since " +
+                        "RETURNING r.reminder_id, r.syllabus_id, r.status, r.status_since, r.sequence",
+                (rs, i) -> new FiredReminder(rs.getLong(1), rs.getLong(2), SyllabusStatus.valueOf(rs.getString(3)),
+                        rs.getTimestamp(4).toLocalDateTime(), rs.getInt(5)),
+                Timestamp.valueOf(now), reminderIds.toArray(Long[]::new));
+    }
+
+    /**
+     * Các lần nhắc còn mở sau khi claim (syllabus đã rời trạng thái hoặc bị xóa): hủy
+     */
+    public int cancelOpen(List<Long> reminderIds, LocalDateTime now) {
+        if (reminderIds.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update(
+                "UPDATE workflow_reminder SET fired_at = ?, cancelled = true WHERE reminder_id = ANY (?) AND fired_at IS NULL",
+                Timestamp.valueOf(now), reminderIds.toArray(Long[]::new));
+    }
+}
@@ -1,28 +1,44 @@
 package com.smd.core.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.smd.core.dto.AiStatusResponse;
-import com.smd.core.dto.AiTaskResponse;
+import com.smd.core.dto.AiBulkItemResult;
+import com.smd.core.dto.AiTaskResultResponse;
+import com.smd.core.dto.SyllabusDocumentRef;
 import com.smd.core.entity.AITask;
+import com.smd.core.entity.AITaskResult;
 import com.smd.core.entity.Syllabus; // Import Syllabus
+import com.smd.core.exception.InvalidDataException;
 import com.smd.core.exception.ResourceNotFoundException; // Import Exception
+import com.smd.core.exception.ServiceUnavailableException;
 import com.smd.core.repository.AiTaskRepository;
 import com.smd.core.repository.SyllabusRepository; // Import Repository
+import com.smd.core.util.HashUtils;
+import io.micrometer.core.instrument.MeterRegistry;
 
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.http.*;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
@@ -30,47 +46,122 @@ public class AiClientService {
 
     private final AiTaskRepository aiTaskRepository;
     private final SyllabusRepository syllabusRepository; // 1. Inject Repository này
-    private final RestTemplate restTemplate = new RestTemplate();
-    private final ObjectMapper objectMapper;
+    private final AiTaskResultStore resultStore;
+    private final MeterRegistry meterRegistry;
+    private final AiJobScheduler jobScheduler;
+    private final TransactionTemplate transactionTemplate;
 
+    // Task có thể dùng lại cho request giống hệt: đã xong, hoặc đang chạy / đang chờ task khác
+    private static final Set<AITask.TaskStatus> REUSABLE_STATUSES = EnumSet.of(
+            AITask.TaskStatus.SUCCESS, AITask.TaskStatus.PENDING, AITask.TaskStatus.PROCESSING,
+            AITask.TaskStatus.QUEUED, AITask.TaskStatus.DISPATCHING, AITask.TaskStatus.WAITING);
 
-    // Cấu hình trong application.properties: ai-service.url=http://localhost:8000
-    @Value("${ai-service.url}")
-    private String aiServiceUrl;
+    // Task nguồn mà syllabus khác còn chờ chung được: chưa kết thúc
+    private static final Set<AITask.TaskStatus> FOLLOWABLE_STATUSES = EnumSet.of(
+            AITask.TaskStatus.PENDING, AITask.TaskStatus.PROCESSING,
+            AITask.TaskStatus.QUEUED, AITask.TaskStatus.DISPATCHING);
+
+    // Đổi giá trị này khi đổi model / prompt bên AI service để không dùng lại kết quả cũ
+    @Value("${ai-service.model-version:llama3-v1}")
+    private String modelVersion;
+
+    @Value("${ai-service.scheduler.bulk-max-items:500}")
+    private int bulkMaxItems;
+
+    // Request giống hệt đang được gửi đi trong JVM này: các request sau chờ cùng kết quả
+    private final Map<String, CompletableFuture<AITask>> dispatching = new ConcurrentHashMap<>();
 
     /**
      * Gửi file sang AI Service để yêu cầu tóm tắt
      */
     public AITask requestSummarize(MultipartFile file, Long syllabusId) {
-        String url = aiServiceUrl + "/summarize-async";
+        // Resource của multipart đọc stream từ file tạm (getFilename() = tên file gốc),
+        // không nạp cả file vào heap
+        return submitSummarize(file.getResource(), hashOf(file), syllabusId);
+    }
 
-        try {
-            // 1. Chuẩn bị Header Multipart
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.MULTIPART_FORM_DATA);
-
-            // 2. Chuẩn bị Body chứa file
-            MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-            
-            // Bọc file vào Resource và đặt tên file (Quan trọng!)
-            ByteArrayResource fileResource = new ByteArrayResource(file.getBytes()) {
-                @Override
-                public String getFilename() {
-                    return file.getOriginalFilename(); 
-                }
-            };
-            
-            body.add("file", fileResource); // "file" phải khớp với tham số bên Python
+    /**
+     * Tóm tắt tài liệu đã upload của syllabus: job được xếp hàng (lane INTERACTIVE)
+     * và dispatcher stream file trực tiếp từ đĩa khi còn budget
+     */
+    public AITask summarizeStoredDocument(Long syllabusId) {
+        SyllabusDocumentRef ref = requireStoredDocument(syllabusId);
+        String contentHash = storedDocumentHash(ref);
+        return dispatchOrReuse(AITask.TaskType.IMPROVE_CONTENT, contentHash, syllabusId,
+                () -> jobScheduler.enqueue(syllabusId, AITask.TaskType.IMPROVE_CONTENT,
+                        AITask.TaskPriority.INTERACTIVE, contentHash, modelVersion));
+    }
 
-            HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
+    /**
+     * Xếp hàng job AI cho nhiều syllabus (lane BULK). Mỗi syllabus được xử lý độc lập,
+     * lỗi của một syllabus không làm hỏng cả lô.
+     */
+    public List<AiBulkItemResult> submitBulk(List<Long> syllabusIds, AITask.TaskType taskType) {
+        if (syllabusIds == null || syllabusIds.isEmpty()) {
+            throw new InvalidDataException("syllabusIds must not be empty");
+        }
+        if (syllabusIds.size() > bulkMaxItems) {
+            throw new InvalidDataException("At most " + bulkMaxItems + " syllabuses per bulk request");
+        }
+        AITask.TaskType type = taskType != null ? taskType : AITask.TaskType.IMPROVE_CONTENT;
+        if (type != AITask.TaskType.IMPROVE_CONTENT && type != AITask.TaskType.EXTRACT_SYLLABUS) {
+            throw new InvalidDataException("Task type " + type + " is not supported for bulk submission");
+        }
 
-            // 3. Gọi API Python
-            ResponseEntity<AiTaskResponse> response = restTemplate.postForEntity(url, requestEntity, AiTaskResponse.class);
-            
-            if (response.getBody() == null || response.getBody().getTaskId() == null) {
-                throw new RuntimeException("AI Service không trả về Task ID");
+        List<AiBulkItemResult> results = new ArrayList<>();
+        for (Long syllabusId : new LinkedHashSet<>(syllabusIds)) {
+            try {
+                SyllabusDocumentRef ref = requireStoredDocument(syllabusId);
+                String contentHash = storedDocumentHash(ref);
+                AITask task = dispatchOrReuse(type, contentHash, syllabusId,
+                        () -> jobScheduler.enqueue(syllabusId, type, AITask.TaskPriority.BULK, contentHash, modelVersion));
+                results.add(AiBulkItemResult.builder()
+                        .syllabusId(syllabusId)
+                        .aiTaskId(task.getAiTaskId())
+                        .status(task.getStatus().name())
+                        .build());
+            } catch (RuntimeException e) {
+                results.add(AiBulkItemResult.builder()
+                        .syllabusId(syllabusId)
+                        .error(e.getMessage())
+                        .build());
             }
+        }
+        return results;
+    }
+
+    private SyllabusDocumentRef requireStoredDocument(Long syllabusId) {
+        SyllabusDocumentRef ref = syllabusRepository.findDocumentRef(syllabusId)
+                .orElseThrow(() -> new ResourceNotFoundException("Syllabus", "syllabusId", syllabusId));
 
+        if (ref.getFilePath() == null) {
+            throw new ResourceNotFoundException("Document file not found for syllabus ID: " + syllabusId);
+        }
+        Path path = Paths.get(ref.getFilePath());
+        if (!Files.isRegularFile(path)) {
+            throw new ResourceNotFoundException("Document file does not exist at path: " + path);
+        }
+        return ref;
+    }
+
+    private static String storedDocumentHash(SyllabusDocumentRef ref) {
+        if (ref.getContentHash() != null) {
+            return ref.getContentHash();
+        }
+        try {
+            return HashUtils.sha256Hex(Files.newInputStream(Paths.get(ref.getFilePath())));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Lỗi đọc file: " + e.getMessage(), e);
+        }
+    }
+
+    private AITask submitSummarize(Resource fileResource, String contentHash, Long syllabusId) {
+        return dispatchOrReuse(AITask.TaskType.IMPROVE_CONTENT, contentHash, syllabusId,
+                () -> dispatchSummarize(fileResource, contentHash, syllabusId));
+    }
+
+    private AITask dispatchSummarize(Resource fileResource, String contentHash, Long syllabusId) {
+        try {
             // --- ĐOẠN LOGIC MỚI: Xử lý Syllabus tùy chọn ---
             Syllabus syllabusEntity = null;
             if (syllabusId != null) {
@@ -78,66 +169,32 @@ public class AiClientService {
                         .orElseThrow(() -> new ResourceNotFoundException("Syllabus not found with id " + syllabusId));
             }
 
-            // 4. Lưu Task vào DB (Trạng thái PENDING)
-            // Lưu ý: Mình tạm lưu Celery Task ID vào resultSummary để dùng tra cứu sau này
-            AITask task = AITask.builder()
+            // Upload trực tiếp không xếp hàng được: giữ slot (task DISPATCHING, id cho callback / reconcile)
+            // khi còn budget, nếu không trả 503
+            AITask task = jobScheduler.reserveInteractive(AITask.builder()
                     .taskType(AITask.TaskType.IMPROVE_CONTENT)
-                    .status(AITask.TaskStatus.PENDING)
-                    .resultSummary(response.getBody().getTaskId())
                     .syllabus(syllabusEntity) // Truyền null nếu không có ID, truyền entity nếu có
-                    .build();
-            
-            // Nếu muốn link với Syllabus thì set syllabus ở đây (cần findById trước)
-            // task.setSyllabus(syllabusRepository.findById(syllabusId).orElse(null));
+                    .contentHash(contentHash)
+                    .modelVersion(modelVersion)
+                    .build());
 
-            return aiTaskRepository.save(task);
+            // Gọi API Python (body được ghi dạng chunked, không buffer), task chuyển sang PENDING
+            return jobScheduler.submitReserved(task, fileResource);
 
-        } catch (IOException e) {
-            throw new RuntimeException("Lỗi đọc file: " + e.getMessage());
+        } catch (ServiceUnavailableException | ResourceNotFoundException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("Lỗi gọi AI Service: " + e.getMessage());
         }
     }
 
     /**
-     * Kiểm tra trạng thái Task dựa trên ID trong Database
+     * Kiểm tra trạng thái Task dựa trên ID trong Database.
+     * Trạng thái được cập nhật bởi callback / AiTaskReconciler, không gọi AI Service ở đây.
      */
     public AITask checkTaskStatus(Long dbTaskId) {
-        AITask task = aiTaskRepository.findById(dbTaskId)
+        return aiTaskRepository.findById(dbTaskId)
                 .orElseThrow(() -> new RuntimeException("Không tìm thấy Task ID: " + dbTaskId));
-
-        // Nếu đã xong hoặc lỗi thì trả về luôn, không gọi AI nữa
-        if (task.getStatus() == AITask.TaskStatus.SUCCESS || task.getStatus() == AITask.TaskStatus.SUCCESS) {
-            return task;
-        }
-
-        // Lấy Celery Task ID (đã lưu tạm trong resultSummary ở bước trên)
-        String celeryTaskId = task.getResultSummary();
-        String url = aiServiceUrl + "/task-status/" + celeryTaskId;
-
-        try {
-            AiStatusResponse response = restTemplate.getForObject(url, AiStatusResponse.class);
-            
-            if (response != null) {
-                if ("SUCCESS".equalsIgnoreCase(response.getStatus())) {
-                    task.setStatus(AITask.TaskStatus.SUCCESS);
-                    
-                    // Lấy kết quả tóm tắt thực sự từ JSON trả về
-                    if (response.getResult() != null && response.getResult().containsKey("summary")) {
-                        String summaryText = (String) response.getResult().get("summary");
-                        task.setResultSummary(summaryText); // Ghi đè ID cũ bằng kết quả thật
-                    }
-                } 
-                else if ("SUCCESS".equalsIgnoreCase(response.getStatus())) {
-                    task.setStatus(AITask.TaskStatus.SUCCESS);
-                    task.setResultSummary("Lỗi từ AI Service: " + response.getResult());
-                }
-                // Nếu PENDING hoặc PROGRESS thì giữ nguyên
-            }
-            return aiTaskRepository.save(task);
-        } catch (Exception e) {
-            return task; // Trả về task cũ nếu lỗi kết nối
-        }
     }
 
 
@@ -145,150 +202,208 @@ public class AiClientService {
      * API mới: Gửi file PDF/Word sang AI để trích xuất JSON (OCR)
      * Endpoint AI: POST /extract-syllabus-json
      */
-    @Transactional
     public AITask requestExtractSyllabus(MultipartFile file) {
-        String url = aiServiceUrl + "/extract-syllabus-json";
+        String contentHash = hashOf(file);
+        return dispatchOrReuse(AITask.TaskType.EXTRACT_SYLLABUS, contentHash, null,
+                () -> dispatchExtractSyllabus(file, contentHash));
+    }
 
+    private AITask dispatchExtractSyllabus(MultipartFile file, String contentHash) {
         try {
-            // 1. Chuẩn bị Header
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.MULTIPART_FORM_DATA);
-
-            // 2. Chuẩn bị Body (đóng gói file)
-            MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-            
-            // Bắt buộc phải override getFilename() để RestTemplate gửi đúng tên file
-            ByteArrayResource fileResource = new ByteArrayResource(file.getBytes()) {
-                @Override
-                public String getFilename() {
-                    return file.getOriginalFilename();
-                }
-            };
-            
-            body.add("file", fileResource); // Key "file" khớp với curl mẫu: -F 'file=@...'
+            AITask aiTask = jobScheduler.reserveInteractive(AITask.builder()
+                    .taskType(AITask.TaskType.EXTRACT_SYLLABUS) // Loại task mới
+                    .contentHash(contentHash)
+                    .modelVersion(modelVersion)
+                    .build());
 
-            HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
-
-            // 3. Gọi AI Service
+            // MultipartFile.getResource() giữ tên file gốc và stream từ file tạm
             // Response mẫu: { "task_id": "uuid...", "message": "..." }
-            ResponseEntity<Map> response = restTemplate.postForEntity(url, requestEntity, Map.class);
-            Map<String, Object> responseBody = response.getBody();
-
-            if (responseBody != null && responseBody.containsKey("task_id")) {
-                String externalTaskId = (String) responseBody.get("task_id");
-
-                // 4. Lưu Task vào DB (Trạng thái PENDING)
-                AITask aiTask = AITask.builder()
-                        .taskType(AITask.TaskType.EXTRACT_SYLLABUS) // Loại task mới
-                        .status(AITask.TaskStatus.PENDING)
-                        .resultSummary(externalTaskId) // Lưu ID task của Python để polling sau này
-                        .createdAt(LocalDateTime.now())
-                        .build();
-
-                return aiTaskRepository.save(aiTask);
-            } else {
-                throw new RuntimeException("AI Service không trả về task_id");
-            }
+            return jobScheduler.submitReserved(aiTask, file.getResource());
 
-        } catch (IOException e) {
-            throw new RuntimeException("Lỗi xử lý file: " + e.getMessage());
+        } catch (ServiceUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("Không thể gọi AI Service: " + e.getMessage());
         }
     }
 
+    /**
+     * Cache kết quả AI theo (loại task, SHA-256 tài liệu, model version):
+     * - đã có kết quả SUCCESS hợp lệ -> trả về task đó (hit); task thuộc syllabus khác thì kết quả được chép
+     *   sang một task SUCCESS mới của syllabus này, để lịch sử task và tóm tắt mới nhất của nó thấy kết quả
+     * - đang có task chạy cho cùng tài liệu -> trả về task đó nếu cùng syllabus, ngược lại tạo task WAITING
+     *   cho syllabus này, nhận bản sao kết quả khi task đang chạy xong (inflight)
+     * - ngược lại gửi job mới (miss); request trùng tài liệu đến cùng lúc trong JVM chỉ gửi một lần
+     */
+    private AITask dispatchOrReuse(AITask.TaskType type, String contentHash, Long syllabusId,
+                                   Supplier<AITask> dispatcher) {
+        Optional<AITask> reusable = findReusable(type, contentHash, syllabusId);
+        if (reusable.isPresent()) {
+            return reusable.get();
+        }
 
+        String key = type + ":" + contentHash + ":" + modelVersion;
+        CompletableFuture<AITask> mine = new CompletableFuture<>();
+        CompletableFuture<AITask> inFlight = dispatching.putIfAbsent(key, mine);
+        if (inFlight != null) {
+            countCache(type, "inflight");
+            AITask shared;
+            try {
+                shared = inFlight.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException re) {
+                    throw re;
+                }
+                throw e;
+            }
+            if (syllabusId == null || syllabusId.equals(syllabusIdOf(shared))) {
+                return shared;
+            }
+            // Task vừa gửi thuộc syllabus khác: chờ chung kết quả, hoặc tự gửi nếu task đó đã lỗi
+            return follow(shared.getAiTaskId(), syllabusId).orElseGet(dispatcher);
+        }
 
-    // ...existing code...
-
-/**
- * Lấy toàn bộ kết quả từ Python AI và trả về cho frontend
- * Tương tự checkTaskStatus nhưng trả về full JSON response
- */
-public Object getFullTaskResult(Long dbTaskId) {
-    // 1. Lấy AITask từ DB
-    AITask task = aiTaskRepository.findById(dbTaskId)
-            .orElseThrow(() -> new RuntimeException("Không tìm thấy Task ID: " + dbTaskId));
-
-    // 2. Nếu đã SUCCESS hoặc FAILURE, kiểm tra xem có cần gọi lại AI không
-    if (task.getStatus() == AITask.TaskStatus.SUCCESS || 
-        task.getStatus() == AITask.TaskStatus.FAILURE) {
-        
-        // Nếu resultSummary đã chứa JSON (không phải UUID), trả về luôn
         try {
-            String resultSummary = task.getResultSummary();
-            if (resultSummary != null && resultSummary.startsWith("{")) {
-                return objectMapper.readValue(resultSummary, Object.class);
+            countCache(type, "miss");
+            AITask task = dispatcher.get();
+            mine.complete(task);
+            return task;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            dispatching.remove(key, mine);
+        }
+    }
+
+    private Optional<AITask> findReusable(AITask.TaskType type, String contentHash, Long syllabusId) {
+        List<AITask> candidates = aiTaskRepository
+                .findTop5ByTaskTypeAndContentHashAndModelVersionAndStatusInOrderByAiTaskIdDesc(
+                        type, contentHash, modelVersion, REUSABLE_STATUSES);
+        for (AITask candidate : candidates) {
+            // Request không gắn syllabus dùng được task của bất kỳ syllabus nào
+            boolean sameOwner = syllabusId == null || syllabusId.equals(syllabusIdOf(candidate));
+            if (candidate.getStatus() != AITask.TaskStatus.SUCCESS) {
+                if (sameOwner) {
+                    countCache(type, "inflight");
+                    return Optional.of(candidate);
+                }
+                // Task WAITING của syllabus khác: chờ chung task nguồn của nó
+                Long sourceId = candidate.getSourceTaskId() != null ? candidate.getSourceTaskId() : candidate.getAiTaskId();
+                Optional<AITask> follower = follow(sourceId, syllabusId);
+                if (follower.isPresent()) {
+                    countCache(type, "inflight");
+                    return follower;
+                }
+                continue;
             }
-        } catch (Exception e) {
-            // Nếu parse lỗi, tiếp tục gọi AI
+            Optional<AITaskResult> result = usableResult(candidate);
+            if (result.isEmpty()) {
+                continue;
+            }
+            countCache(type, "hit");
+            return Optional.of(sameOwner ? candidate : copyFor(candidate, result.get(), syllabusId));
         }
+        return Optional.empty();
     }
 
-    // 3. Lấy Celery Task ID (đã lưu trong resultSummary)
-    String celeryTaskId = task.getResultSummary();
-    
-    if (celeryTaskId == null || celeryTaskId.isEmpty()) {
-        throw new RuntimeException("Task chưa có Celery ID");
+    /**
+     * Gắn syllabus vào task đang chạy của syllabus khác: tạo task WAITING trỏ tới task nguồn, kết quả được chép
+     * sang khi task nguồn xong (AiTaskResultStore.record). Task nguồn bị khóa dòng trong lúc kiểm tra, nên không thể
+     * kết thúc giữa lúc kiểm tra và lúc tạo task WAITING. Trả về rỗng khi task nguồn đã lỗi / không còn.
+     */
+    private Optional<AITask> follow(Long sourceId, Long syllabusId) {
+        return transactionTemplate.execute(status -> {
+            AITask.TaskStatus sourceStatus = aiTaskRepository.lockStatus(sourceId)
+                    .map(AITask.TaskStatus::valueOf)
+                    .orElse(null);
+            if (sourceStatus == null) {
+                return Optional.<AITask>empty();
+            }
+            // Loại task, hash, model version không đổi sau khi tạo: đọc từ entity được
+            AITask source = aiTaskRepository.getReferenceById(sourceId);
+            if (sourceStatus == AITask.TaskStatus.SUCCESS) {
+                // Task nguồn vừa xong
+                return usableResult(source).map(result -> copyFor(source, result, syllabusId));
+            }
+            if (!FOLLOWABLE_STATUSES.contains(sourceStatus)) {
+                return Optional.<AITask>empty();
+            }
+            return Optional.of(aiTaskRepository.save(AITask.builder()
+                    .taskType(source.getTaskType())
+                    .status(AITask.TaskStatus.WAITING)
+                    .priority(source.getPriority())
+                    .syllabus(syllabusRepository.getReferenceById(syllabusId))
+                    .contentHash(source.getContentHash())
+                    .modelVersion(source.getModelVersion())
+                    .sourceTaskId(sourceId)
+                    .queuedAt(LocalDateTime.now())
+                    .build()));
+        });
     }
 
-    // 4. Gọi Python AI để lấy kết quả
-    String pythonUrl = aiServiceUrl + "/task-status/" + celeryTaskId;  // ✅ Sửa từ /api/tasks/ thành /task-status/
-    
-    try {
-        ResponseEntity<String> response = restTemplate.getForEntity(pythonUrl, String.class);
-        String jsonResponse = response.getBody();
-        
-        if (jsonResponse == null) {
-            throw new RuntimeException("AI Service trả về null");
-        }
-        
-        // 5. Parse JSON để lấy status
-        var jsonNode = objectMapper.readTree(jsonResponse);
-        String aiStatus = jsonNode.get("status").asText();
-        
-        // 6. Cập nhật status trong DB
-        if ("SUCCESS".equalsIgnoreCase(aiStatus)) {
-            task.setStatus(AITask.TaskStatus.SUCCESS);
-            // Lưu toàn bộ JSON vào resultSummary để lần sau không cần gọi lại
-            task.setResultSummary(jsonResponse);
-        } 
-        else if ("FAILURE".equalsIgnoreCase(aiStatus)) {
-            task.setStatus(AITask.TaskStatus.FAILURE);
-            task.setResultSummary(jsonResponse);
-        }
-        else if ("PROCESSING".equalsIgnoreCase(aiStatus) || "PROGRESS".equalsIgnoreCase(aiStatus)) {
-            task.setStatus(AITask.TaskStatus.PROCESSING);
+    // Worker Python trả Celery SUCCESS kèm {"status": "Failed"} khi lỗi nghiệp vụ: không cache kết quả này
+    private Optional<AITaskResult> usableResult(AITask task) {
+        return resultStore.find(task.getAiTaskId())
+                .filter(result -> result.getOutcome() == AITaskResult.Outcome.SUCCESS);
+    }
+
+    private AITask copyFor(AITask source, AITaskResult result, Long syllabusId) {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            AITask task = aiTaskRepository.save(AITask.builder()
+                    .taskType(source.getTaskType())
+                    .status(AITask.TaskStatus.SUCCESS)
+                    .priority(source.getPriority())
+                    .syllabus(syllabusRepository.getReferenceById(syllabusId))
+                    .contentHash(source.getContentHash())
+                    .modelVersion(source.getModelVersion())
+                    .queuedAt(now)
+                    .dispatchedAt(now)
+                    .build());
+            resultStore.copy(result, task.getAiTaskId());
+            return task;
+        });
+    }
+
+    private static Long syllabusIdOf(AITask task) {
+        // Chỉ đọc id của proxy, không load Syllabus
+        return task.getSyllabus() != null ? task.getSyllabus().getSyllabusId() : null;
+    }
+
+    private void countCache(AITask.TaskType type, String result) {
+        meterRegistry.counter("smd.ai.cache.requests", "type", type.name(), "result", result).increment();
+    }
+
+    private static String hashOf(MultipartFile file) {
+        try {
+            return HashUtils.sha256Hex(file.getInputStream());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Lỗi đọc file: " + e.getMessage(), e);
         }
-        // PENDING giữ nguyên
-        
-        aiTaskRepository.save(task);
-        
-        // 7. Trả về TOÀN BỘ JSON cho frontend
-        return objectMapper.readValue(jsonResponse, Object.class);
-        
-    } catch (org.springframework.web.client.HttpClientErrorException.NotFound e) {
-        // Python AI trả về 404 - Task không tồn tại hoặc đã hết hạn
-        task.setStatus(AITask.TaskStatus.FAILURE);
-        aiTaskRepository.save(task);
-        
-        return Map.of(
-            "status", "FAILURE",
-            "error", "Task not found in AI service",
-            "message", "Celery task đã hết hạn hoặc không tồn tại",
-            "celeryTaskId", celeryTaskId
-        );
-        
-    } catch (Exception e) {
-        // Lỗi khác (network, parse JSON, etc.)
-        task.setStatus(AITask.TaskStatus.FAILURE);
-        aiTaskRepository.save(task);
-        
-        return Map.of(
-            "status", "FAILURE",
-            "error", e.getMessage(),
-            "message", "Lỗi khi lấy kết quả từ AI Service"
-        );
+    }
+
+
+    /**
+     * Lấy kết quả task cho frontend (chỉ đọc DB), giữ cấu trúc { task_id, status, result } của AI service.
+     * Kết quả nằm trong ai_task_result (ghi bởi callback / reconciler), result = null khi task chưa xong.
+     */
+    public Object getFullTaskResult(Long dbTaskId) {
+        AITask task = checkTaskStatus(dbTaskId);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("task_id", task.getExternalTaskId());
+        response.put("status", task.getStatus().name());
+        response.put("result", resultStore.find(dbTaskId)
+                .map(AITaskResult::getPayload)
+                .orElse(null));
+        return response;
+    }
+
+    /**
+     * Kết quả dạng có cấu trúc (outcome, summary, error, payload)
+     */
+    public AiTaskResultResponse getTaskResult(Long dbTaskId) {
+        return resultStore.toResponse(checkTaskStatus(dbTaskId));
     }
 }
-}
\ No newline at end of file
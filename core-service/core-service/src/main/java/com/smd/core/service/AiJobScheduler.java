@@ -0,0 +1,367 @@
+package com.smd.core.service;
+
+import com.smd.core.dto.SyllabusDocumentRef;
+import com.smd.core.entity.AITask;
+import com.smd.core.exception.ResourceNotFoundException;
+import com.smd.core.exception.ServiceUnavailableException;
+import com.smd.core.repository.AiTaskRepository;
+import com.smd.core.repository.SyllabusRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistent AI job queue on top of the ai_task table.
+ *
+ * Jobs whose input is a stored syllabus document are inserted as QUEUED with a priority lane.
+ * The dispatcher claims them with SELECT ... FOR UPDATE SKIP LOCKED (INTERACTIVE first, then
+ * FIFO) within a global and a per-task-type in-flight budget; BULK jobs can never use the
+ * slots reserved for interactive work. Direct uploads (multipart) cannot wait in the queue,
+ * they reserve a slot under the same lock and get a 503 when the budget is exhausted.
+ *
+ * The AI service task id is generated here and committed (DISPATCHING) before the document is
+ * sent, and the AI service ignores a second submit with the same id: a job re-dispatched after
+ * a crash between submit and the PENDING commit does not run twice.
+ */
+@Service
+@Slf4j
+public class AiJobScheduler {
+
+    // Task đang chiếm một slot của AI service
+    public static final Set<AITask.TaskStatus> IN_FLIGHT_STATUSES = EnumSet.of(
+            AITask.TaskStatus.DISPATCHING, AITask.TaskStatus.PENDING, AITask.TaskStatus.PROCESSING);
+
+    // Khóa advisory (pg_advisory_xact_lock) cho bước claim
+    private static final long DISPATCH_LOCK_KEY = 0x534d4441494a4f42L;
+
+    private final AiTaskRepository aiTaskRepository;
+    private final SyllabusRepository syllabusRepository;
+    private final AiServiceGateway aiGateway;
+    private final TransactionTemplate transactionTemplate;
+    private final AiTaskResultStore resultStore;
+    private final ExecutorService executor;
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicBoolean dispatching = new AtomicBoolean();
+    private final Map<AITask.TaskPriority, AtomicLong> queueDepth = new EnumMap<>(AITask.TaskPriority.class);
+    private final AtomicLong inFlight = new AtomicLong();
+
+    @Value("${ai-service.scheduler.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ai-service.scheduler.max-in-flight:8}")
+    private int maxInFlight;
+
+    // Số slot chỉ dành cho lane INTERACTIVE
+    @Value("${ai-service.scheduler.interactive-reserved:2}")
+    private int interactiveReserved;
+
+    @Value("${ai-service.scheduler.stale-dispatch-after:PT5M}")
+    private Duration staleDispatchAfter;
+
+    // Task đang chạy lâu hơn thời gian này không còn được tính vào budget
+    @Value("${ai-service.scheduler.slot-timeout:PT30M}")
+    private Duration slotTimeout;
+
+    public AiJobScheduler(AiTaskRepository aiTaskRepository,
+                          SyllabusRepository syllabusRepository,
+                          AiServiceGateway aiGateway,
+                          TransactionTemplate transactionTemplate,
+                          AiTaskResultStore resultStore,
+                          @Qualifier("aiClientExecutor") ExecutorService executor,
+                          Environment environment,
+                          MeterRegistry meterRegistry) {
+        this.aiTaskRepository = aiTaskRepository;
+        this.syllabusRepository = syllabusRepository;
+        this.aiGateway = aiGateway;
+        this.transactionTemplate = transactionTemplate;
+        this.resultStore = resultStore;
+        this.executor = executor;
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+
+        for (AITask.TaskPriority lane : AITask.TaskPriority.values()) {
+            AtomicLong depth = new AtomicLong();
+            queueDepth.put(lane, depth);
+            Gauge.builder("smd.ai.queue.depth", depth, AtomicLong::get)
+                    .tag("lane", lane.name())
+                    .description("AI jobs waiting in the core-service queue")
+                    .register(meterRegistry);
+        }
+        Gauge.builder("smd.ai.queue.in_flight", inFlight, AtomicLong::get)
+                .description("AI jobs currently dispatched to the AI service")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Đưa job xử lý tài liệu đã lưu của syllabus vào hàng đợi
+     */
+    public AITask enqueue(Long syllabusId, AITask.TaskType taskType, AITask.TaskPriority priority,
+                          String contentHash, String modelVersion) {
+        AITask task = AITask.builder()
+                .taskType(taskType)
+                .status(AITask.TaskStatus.QUEUED)
+                .priority(priority)
+                .queuedAt(LocalDateTime.now())
+                .syllabus(syllabusRepository.getReferenceById(syllabusId))
+                .contentHash(contentHash)
+                .modelVersion(modelVersion)
+                .build();
+        AITask saved = aiTaskRepository.save(task);
+
+        if (priority == AITask.TaskPriority.INTERACTIVE) {
+            dispatchSoon();
+        }
+        return saved;
+    }
+
+    /**
+     * Upload trực tiếp không thể xếp hàng (file tạm biến mất sau request): giữ một slot bằng task DISPATCHING,
+     * kiểm tra budget và insert dưới cùng advisory lock với claim() nên request song song không vượt budget.
+     * Hết budget -> 503. Gửi file bằng {@link #submitReserved}.
+     */
+    public AITask reserveInteractive(AITask task) {
+        return transactionTemplate.execute(status -> {
+            aiTaskRepository.lockDispatch(DISPATCH_LOCK_KEY);
+            InFlight current = loadInFlight();
+            if (current.total >= maxInFlight || current.of(task.getTaskType()) >= limitFor(task.getTaskType())) {
+                throw new ServiceUnavailableException("AI service is at capacity, please retry shortly");
+            }
+            task.setStatus(AITask.TaskStatus.DISPATCHING);
+            task.setPriority(AITask.TaskPriority.INTERACTIVE);
+            task.setExternalTaskId(UUID.randomUUID().toString());
+            task.setDispatchedAt(LocalDateTime.now());
+            return aiTaskRepository.save(task);
+        });
+    }
+
+    /**
+     * Gửi file cho slot đã giữ (ngoài transaction). Lỗi -> task FAILURE (nhả slot) và exception được ném lại.
+     */
+    public AITask submitReserved(AITask task, Resource file) {
+        try {
+            String celeryTaskId = aiGateway.submitDocument(task.getTaskType(), file, task.getExternalTaskId());
+            transition(task, AITask.TaskStatus.PENDING, celeryTaskId, null);
+            task.setStatus(AITask.TaskStatus.PENDING);
+            task.setExternalTaskId(celeryTaskId);
+            return task;
+        } catch (RuntimeException e) {
+            transition(task, AITask.TaskStatus.FAILURE, task.getExternalTaskId(), String.valueOf(e.getMessage()));
+            throw e;
+        }
+    }
+
+    /**
+     * Kick the dispatcher without waiting for the next schedule (INTERACTIVE jobs)
+     */
+    public void dispatchSoon() {
+        executor.execute(this::dispatch);
+    }
+
+    @Scheduled(fixedDelayString = "${ai-service.scheduler.interval:PT2S}")
+    public void dispatch() {
+        if (!enabled || !dispatching.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // Gửi lại với cùng external_task_id: AI service bỏ qua nếu đã nhận job lần trước.
+            // Slot của upload trực tiếp (không có queued_at, file tạm đã mất) không gửi lại được: chuyển PENDING
+            // để reconciler hỏi AI service theo id, và hết hạn nếu AI chưa từng nhận
+            LocalDateTime staleBefore = LocalDateTime.now().minus(staleDispatchAfter);
+            transactionTemplate.executeWithoutResult(status -> {
+                aiTaskRepository.requeueStale(AITask.TaskStatus.DISPATCHING, AITask.TaskStatus.QUEUED, staleBefore);
+                aiTaskRepository.pendStaleReservations(
+                        AITask.TaskStatus.DISPATCHING, AITask.TaskStatus.PENDING, staleBefore);
+            });
+
+            if (!aiGateway.isDegraded()) {
+                List<AITask> claimed = transactionTemplate.execute(status -> claim());
+                if (claimed != null && !claimed.isEmpty()) {
+                    CompletableFuture.allOf(claimed.stream()
+                            .map(task -> CompletableFuture.runAsync(() -> send(task), executor))
+                            .toArray(CompletableFuture[]::new)).join();
+                }
+            }
+            refreshGauges();
+        } catch (Exception e) {
+            log.error("AI job dispatch failed: {}", e.getMessage(), e);
+        } finally {
+            dispatching.set(false);
+        }
+    }
+
+    /**
+     * Claim as many QUEUED jobs as the budgets allow (inside a transaction, rows locked)
+     */
+    private List<AITask> claim() {
+        // Instance khác đang claim thì chờ: nếu không, N instance cùng thấy đủ budget và gửi tới N lần
+        aiTaskRepository.lockDispatch(DISPATCH_LOCK_KEY);
+        InFlight current = loadInFlight();
+        int free = maxInFlight - current.total;
+        if (free <= 0) {
+            return List.of();
+        }
+        int bulkFree = Math.max(0, maxInFlight - interactiveReserved) - current.bulk;
+
+        // Lấy dư để còn bỏ qua các job vượt budget theo loại / lane
+        List<AITask> candidates = aiTaskRepository.lockQueuedForDispatch(free * 4);
+        Map<AITask.TaskType, Integer> perType = new EnumMap<>(current.byType);
+        List<AITask> claimed = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+
+        for (AITask task : candidates) {
+            if (claimed.size() >= free) {
+                break;
+            }
+            int typeCount = perType.getOrDefault(task.getTaskType(), 0);
+            if (typeCount >= limitFor(task.getTaskType())) {
+                continue;
+            }
+            if (task.getPriority() == AITask.TaskPriority.BULK) {
+                if (bulkFree <= 0) {
+                    continue;
+                }
+                bulkFree--;
+            }
+            perType.put(task.getTaskType(), typeCount + 1);
+            task.setStatus(AITask.TaskStatus.DISPATCHING);
+            task.setDispatchedAt(now);
+            // Id được commit cùng lúc claim, trước khi gửi; job được requeue giữ nguyên id
+            if (task.getExternalTaskId() == null) {
+                task.setExternalTaskId(UUID.randomUUID().toString());
+            }
+            claimed.add(task);
+        }
+        return claimed;
+    }
+
+    /**
+     * Gửi một job đã claim sang AI service (ngoài transaction)
+     */
+    private void send(AITask task) {
+        AITask.TaskPriority lane = task.getPriority() != null ? task.getPriority() : AITask.TaskPriority.INTERACTIVE;
+        if (task.getQueuedAt() != null) {
+            Timer.builder("smd.ai.queue.wait")
+                    .description("Time AI jobs spend in the queue before dispatch")
+                    .tag("lane", lane.name())
+                    .register(meterRegistry)
+                    .record(Duration.between(task.getQueuedAt(), LocalDateTime.now()));
+        }
+
+        try {
+            Long syllabusId = task.getSyllabus() != null ? task.getSyllabus().getSyllabusId() : null;
+            SyllabusDocumentRef ref = syllabusId == null ? null : syllabusRepository.findDocumentRef(syllabusId).orElse(null);
+            if (ref == null || ref.getFilePath() == null || !Files.isRegularFile(Paths.get(ref.getFilePath()))) {
+                throw new ResourceNotFoundException("Document file not found for syllabus ID: " + syllabusId);
+            }
+
+            String celeryTaskId = aiGateway.submitDocument(task.getTaskType(), documentResource(ref),
+                    task.getExternalTaskId());
+            transition(task, AITask.TaskStatus.PENDING, celeryTaskId, null);
+            countDispatch(task, lane, "success");
+        } catch (ServiceUnavailableException e) {
+            // AI quá tải / degraded: trả job về hàng đợi, thứ tự FIFO được giữ nguyên theo id.
+            // Giữ external_task_id: timeout có thể xảy ra sau khi AI đã nhận job
+            transition(task, AITask.TaskStatus.QUEUED, task.getExternalTaskId(), null);
+            countDispatch(task, lane, "requeued");
+        } catch (Exception e) {
+            log.warn("AI job {} failed to dispatch: {}", task.getAiTaskId(), e.getMessage());
+            transition(task, AITask.TaskStatus.FAILURE, task.getExternalTaskId(), String.valueOf(e.getMessage()));
+            countDispatch(task, lane, "failed");
+        }
+    }
+
+    private void transition(AITask task, AITask.TaskStatus to, String externalTaskId, String error) {
+        LocalDateTime at = to == AITask.TaskStatus.QUEUED ? null : LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            int updated = aiTaskRepository.transition(
+                    task.getAiTaskId(), AITask.TaskStatus.DISPATCHING, to, externalTaskId, at);
+            if (updated > 0 && to == AITask.TaskStatus.FAILURE) {
+                resultStore.record(task.getAiTaskId(), to, null, error);
+            }
+        });
+    }
+
+    private Resource documentResource(SyllabusDocumentRef ref) {
+        Path path = Paths.get(ref.getFilePath());
+        String originalName = ref.getFileName();
+        return new FileSystemResource(path) {
+            @Override
+            public String getFilename() {
+                return originalName != null ? originalName : super.getFilename();
+            }
+        };
+    }
+
+    private void countDispatch(AITask task, AITask.TaskPriority lane, String outcome) {
+        meterRegistry.counter("smd.ai.queue.dispatched",
+                "type", task.getTaskType().name(), "lane", lane.name(), "outcome", outcome).increment();
+    }
+
+    private void refreshGauges() {
+        Map<AITask.TaskPriority, Long> depth = new EnumMap<>(AITask.TaskPriority.class);
+        for (Object[] row : aiTaskRepository.countByPriority(AITask.TaskStatus.QUEUED)) {
+            AITask.TaskPriority lane = row[0] != null ? (AITask.TaskPriority) row[0] : AITask.TaskPriority.INTERACTIVE;
+            depth.merge(lane, (Long) row[1], Long::sum);
+        }
+        queueDepth.forEach((lane, gauge) -> gauge.set(depth.getOrDefault(lane, 0L)));
+        inFlight.set(loadInFlight().total);
+    }
+
+    private int limitFor(AITask.TaskType taskType) {
+        return environment.getProperty("ai-service.scheduler.max-in-flight." + taskType.name(),
+                Integer.class, maxInFlight);
+    }
+
+    private InFlight loadInFlight() {
+        InFlight result = new InFlight();
+        LocalDateTime since = LocalDateTime.now().minus(slotTimeout);
+        for (Object[] row : aiTaskRepository.countInFlight(IN_FLIGHT_STATUSES, since)) {
+            AITask.TaskType type = (AITask.TaskType) row[0];
+            int count = ((Long) row[2]).intValue();
+            result.total += count;
+            result.byType.merge(type, count, Integer::sum);
+            if (row[1] == AITask.TaskPriority.BULK) {
+                result.bulk += count;
+            }
+        }
+        return result;
+    }
+
+    private static class InFlight {
+        private int total;
+        private int bulk;
+        private final Map<AITask.TaskType, Integer> byType = new EnumMap<>(AITask.TaskType.class);
+
+        int of(AITask.TaskType type) {
+            return byType.getOrDefault(type, 0);
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.smd.core.service;
+
+import com.smd.core.entity.AITask;
+import com.smd.core.exception.InvalidDataException;
+import com.smd.core.exception.ServiceUnavailableException;
+import com.smd.core.util.CircuitBreaker;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Resilient access to the Python AI service.
+ *
+ * Every call goes through: a per-endpoint bulkhead (bounded concurrency), a service-wide
+ * circuit breaker, a total deadline (the HTTP call runs on a virtual thread, the caller waits
+ * at most total-timeout) and, for idempotent GETs only, retries with full-jitter backoff.
+ * Latency is recorded per endpoint and outcome in "smd.ai.client.requests".
+ */
+@Service
+@Slf4j
+public class AiServiceGateway {
+
+    public static final String SUMMARIZE = "summarize";
+    public static final String EXTRACT_SYLLABUS = "extract-syllabus";
+    public static final String TASK_STATUS = "task-status";
+
+    private final RestClient restClient;
+    private final ExecutorService executor;
+    private final MeterRegistry meterRegistry;
+    private final Environment environment;
+    private final CircuitBreaker circuitBreaker;
+    private final Map<String, Semaphore> bulkheads = new ConcurrentHashMap<>();
+
+    @Value("${ai-service.total-timeout:PT45S}")
+    private Duration totalTimeout;
+
+    @Value("${ai-service.bulkhead.max-concurrent:10}")
+    private int defaultMaxConcurrent;
+
+    @Value("${ai-service.bulkhead.max-wait:PT0.5S}")
+    private Duration bulkheadMaxWait;
+
+    @Value("${ai-service.retry.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${ai-service.retry.initial-backoff:PT0.2S}")
+    private Duration initialBackoff;
+
+    @Value("${ai-service.retry.max-backoff:PT2S}")
+    private Duration maxBackoff;
+
+    public AiServiceGateway(@Qualifier("aiRestClient") RestClient restClient,
+                            @Qualifier("aiClientExecutor") ExecutorService executor,
+                            MeterRegistry meterRegistry,
+                            Environment environment,
+                            @Value("${ai-service.circuit.window-size:20}") int windowSize,
+                            @Value("${ai-service.circuit.minimum-calls:10}") int minimumCalls,
+                            @Value("${ai-service.circuit.failure-rate-threshold:50}") float failureRateThreshold,
+                            @Value("${ai-service.circuit.open-duration:PT30S}") Duration openDuration) {
+        this.restClient = restClient;
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+        this.environment = environment;
+        this.circuitBreaker = new CircuitBreaker("ai-service", windowSize, minimumCalls, failureRateThreshold, openDuration);
+
+        Gauge.builder("smd.ai.client.circuit.state", circuitBreaker, cb -> cb.getState().ordinal())
+                .description("AI service circuit breaker state (0=closed, 1=open, 2=half-open)")
+                .register(meterRegistry);
+    }
+
+    /**
+     * POST multipart (upload file). Not retried: the AI service would enqueue the job twice.
+     */
+    public <T> T postMultipart(String endpoint, String path, MultiValueMap<String, ?> parts, Class<T> responseType) {
+        return execute(endpoint, false, () -> restClient.post()
+                .uri(path)
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .body(parts)
+                .retrieve()
+                .body(responseType));
+    }
+
+    /**
+     * Upload a document to the AI endpoint matching the task type.
+     *
+     * @param taskId id generated and stored by core-service before the call; the AI service uses it as the
+     *               Celery task id and ignores a second submit with the same id
+     * @return the Celery task id of the job created by the AI service
+     */
+    public String submitDocument(AITask.TaskType taskType, Resource file, String taskId) {
+        String endpoint;
+        String path;
+        switch (taskType) {
+            case IMPROVE_CONTENT -> {
+                endpoint = SUMMARIZE;
+                path = "/summarize-async";
+            }
+            case EXTRACT_SYLLABUS -> {
+                endpoint = EXTRACT_SYLLABUS;
+                path = "/extract-syllabus-json";
+            }
+            default -> throw new InvalidDataException("Task type " + taskType + " is not supported by the AI service");
+        }
+
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("file", file); // "file" phải khớp với tham số bên Python
+        body.add("task_id", taskId);
+
+        Map<?, ?> response = postMultipart(endpoint, path, body, Map.class);
+        Object createdId = response == null ? null
+                : response.get("task_id") != null ? response.get("task_id") : response.get("taskId");
+        if (createdId == null) {
+            throw new IllegalStateException("AI Service không trả về task_id");
+        }
+        return createdId.toString();
+    }
+
+    /**
+     * Idempotent GET, retried with jitter on timeouts / 5xx
+     */
+    public <T> T get(String endpoint, String uriTemplate, Class<T> responseType, Object... uriVariables) {
+        return execute(endpoint, true, () -> restClient.get()
+                .uri(uriTemplate, uriVariables)
+                .retrieve()
+                .body(responseType));
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    public float getFailureRate() {
+        return circuitBreaker.failureRate();
+    }
+
+    public boolean isDegraded() {
+        return circuitBreaker.getState() != CircuitBreaker.State.CLOSED;
+    }
+
+    private <T> T execute(String endpoint, boolean idempotent, Supplier<T> call) {
+        Semaphore bulkhead = bulkhead(endpoint);
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire(bulkheadMaxWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted while waiting for AI service capacity");
+        }
+        if (!acquired) {
+            record(endpoint, "rejected", 0);
+            throw new ServiceUnavailableException("AI service is busy (" + endpoint + "), please retry later");
+        }
+
+        try {
+            long deadline = System.nanoTime() + totalTimeout.toNanos();
+            int attempts = idempotent ? Math.max(1, maxAttempts) : 1;
+
+            for (int attempt = 1; ; attempt++) {
+                if (!circuitBreaker.tryAcquirePermission()) {
+                    record(endpoint, "circuit_open", 0);
+                    throw new ServiceUnavailableException("AI service is temporarily unavailable (degraded mode)");
+                }
+
+                long start = System.nanoTime();
+                try {
+                    T result = callWithin(call, deadline - start);
+                    circuitBreaker.onSuccess();
+                    record(endpoint, "success", System.nanoTime() - start);
+                    return result;
+                } catch (HttpClientErrorException e) {
+                    // 4xx: request problem, the service itself is healthy
+                    circuitBreaker.onSuccess();
+                    record(endpoint, "client_error", System.nanoTime() - start);
+                    throw e;
+                } catch (Exception e) {
+                    circuitBreaker.onError();
+                    String outcome = e instanceof TimeoutException ? "timeout" : "error";
+                    record(endpoint, outcome, System.nanoTime() - start);
+
+                    long backoff = backoffNanos(attempt);
+                    if (attempt >= attempts || System.nanoTime() + backoff >= deadline) {
+                        log.warn("AI service call {} failed after {} attempt(s): {}", endpoint, attempt, e.toString());
+                        throw new ServiceUnavailableException("AI service call failed (" + endpoint + "): " + e.getMessage(), e);
+                    }
+                    sleep(backoff);
+                }
+            }
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private <T> T callWithin(Supplier<T> call, long remainingNanos) throws Exception {
+        if (remainingNanos <= 0) {
+            throw new TimeoutException("AI service deadline exceeded");
+        }
+        Future<T> future = executor.submit(call::get);
+        try {
+            return future.get(remainingNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw e;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw e;
+        }
+    }
+
+    // Full jitter: random in [0, min(maxBackoff, initial * 2^(attempt-1))]
+    private long backoffNanos(int attempt) {
+        long cap = Math.min(maxBackoff.toNanos(), initialBackoff.toNanos() << Math.min(attempt - 1, 16));
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    private void sleep(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted while retrying AI service call");
+        }
+    }
+
+    private Semaphore bulkhead(String endpoint) {
+        return bulkheads.computeIfAbsent(endpoint, name -> {
+            int permits = environment.getProperty("ai-service.bulkhead." + name + ".max-concurrent",
+                    Integer.class, defaultMaxConcurrent);
+            Semaphore semaphore = new Semaphore(permits);
+            Gauge.builder("smd.ai.client.bulkhead.available", semaphore, Semaphore::availablePermits)
+                    .tag("endpoint", name)
+                    .description("Free concurrent slots towards the AI service")
+                    .register(meterRegistry);
+            return semaphore;
+        });
+    }
+
+    private void record(String endpoint, String outcome, long nanos) {
+        Timer.builder("smd.ai.client.requests")
+                .description("Calls to the AI service")
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
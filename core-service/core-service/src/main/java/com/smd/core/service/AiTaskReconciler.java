@@ -0,0 +1,253 @@
+package com.smd.core.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smd.core.dto.AiStatusResponse;
+import com.smd.core.entity.AITask;
+import com.smd.core.exception.InvalidDataException;
+import com.smd.core.exception.UnauthorizedException;
+import com.smd.core.repository.AiTaskRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Moves AI tasks to their final state without client polling.
+ *
+ * Two sources: the AI service pushes a callback when a Celery task finishes, and a scheduled
+ * reconciler polls the status of every still-open task in id-ordered batches with bounded
+ * parallelism (covers lost callbacks and AI services without callback support). Both write with
+ * a conditional UPDATE, so whichever arrives first wins and a late PROGRESS never overwrites
+ * a final result.
+ */
+@Service
+@Slf4j
+public class AiTaskReconciler {
+
+    public static final Set<AITask.TaskStatus> OPEN_STATUSES =
+            EnumSet.of(AITask.TaskStatus.PENDING, AITask.TaskStatus.PROCESSING);
+
+    private final AiTaskRepository aiTaskRepository;
+    private final AiTaskResultStore resultStore;
+    private final AiServiceGateway aiGateway;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor;
+
+    @Value("${ai-service.callback.token:}")
+    private String callbackToken;
+
+    @Value("${ai-service.reconcile.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ai-service.reconcile.batch-size:100}")
+    private int batchSize;
+
+    @Value("${ai-service.reconcile.parallelism:8}")
+    private int parallelism;
+
+    // Tasks younger than this are left to the callback
+    @Value("${ai-service.reconcile.min-age:PT10S}")
+    private Duration minAge;
+
+    // Celery reports unknown ids as PENDING forever: give up after this
+    @Value("${ai-service.reconcile.expire-after:P1D}")
+    private Duration expireAfter;
+
+    public AiTaskReconciler(AiTaskRepository aiTaskRepository,
+                            AiTaskResultStore resultStore,
+                            AiServiceGateway aiGateway,
+                            ObjectMapper objectMapper,
+                            TransactionTemplate transactionTemplate,
+                            @Qualifier("aiClientExecutor") ExecutorService executor) {
+        this.aiTaskRepository = aiTaskRepository;
+        this.resultStore = resultStore;
+        this.aiGateway = aiGateway;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.executor = executor;
+    }
+
+    /**
+     * Callback từ AI service: { "task_id": "...", "status": "SUCCESS", "result": {...} }
+     */
+    public void handleCallback(String token, AiStatusResponse body) {
+        if (callbackToken == null || callbackToken.isBlank()) {
+            throw new UnauthorizedException("AI callback is not enabled");
+        }
+        if (token == null || !MessageDigest.isEqual(
+                callbackToken.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8))) {
+            throw new UnauthorizedException("Invalid AI callback token");
+        }
+        if (body == null || body.getTask_id() == null || body.getStatus() == null) {
+            throw new InvalidDataException("task_id and status are required");
+        }
+
+        AITask task = aiTaskRepository.findFirstByExternalTaskIdAndStatusIn(body.getTask_id(), OPEN_STATUSES)
+                .orElse(null);
+        if (task == null) {
+            // Đã được reconciler xử lý trước, hoặc task không thuộc hệ thống
+            log.debug("AI callback for unknown or finished task {}", body.getTask_id());
+            return;
+        }
+
+        StatusUpdate update = new StatusUpdate(task.getAiTaskId(), body.getStatus(), body.getResult(), null);
+        transactionTemplate.executeWithoutResult(status -> apply(update));
+    }
+
+    @Scheduled(fixedDelayString = "${ai-service.reconcile.interval:PT15S}",
+               initialDelayString = "${ai-service.reconcile.initial-delay:PT30S}")
+    public void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        if (aiGateway.isDegraded()) {
+            log.debug("AI service degraded, skipping task reconciliation");
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime dispatchedBefore = now.minus(minAge);
+        LocalDateTime expiredBefore = now.minus(expireAfter);
+        long afterId = 0L;
+        int checked = 0;
+        int updated = 0;
+
+        while (true) {
+            List<AITask> batch = aiTaskRepository.findOpenBatch(
+                    OPEN_STATUSES, afterId, dispatchedBefore, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            afterId = batch.get(batch.size() - 1).getAiTaskId();
+            checked += batch.size();
+
+            List<StatusUpdate> updates = fetchStatuses(batch, expiredBefore);
+            Integer applied = transactionTemplate.execute(status -> {
+                int count = 0;
+                for (StatusUpdate update : updates) {
+                    count += apply(update);
+                }
+                return count;
+            });
+            updated += applied != null ? applied : 0;
+
+            if (batch.size() < batchSize || aiGateway.isDegraded()) {
+                break;
+            }
+        }
+
+        if (checked > 0) {
+            log.info("AI task reconciliation: {} open tasks checked, {} updated", checked, updated);
+        }
+    }
+
+    /**
+     * Poll /task-status for a batch, at most {@code parallelism} calls in flight
+     */
+    private List<StatusUpdate> fetchStatuses(List<AITask> batch, LocalDateTime expiredBefore) {
+        Semaphore permits = new Semaphore(Math.max(1, parallelism));
+        List<CompletableFuture<StatusUpdate>> futures = new ArrayList<>(batch.size());
+
+        for (AITask task : batch) {
+            String celeryTaskId = task.getExternalTaskId();
+            if (celeryTaskId == null || celeryTaskId.isBlank()) {
+                futures.add(CompletableFuture.completedFuture(
+                        new StatusUpdate(task.getAiTaskId(), "FAILURE", null, "Task has no AI service id")));
+                continue;
+            }
+            permits.acquireUninterruptibly();
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return fetchStatus(task, celeryTaskId, expiredBefore);
+                } finally {
+                    permits.release();
+                }
+            }, executor));
+        }
+
+        List<StatusUpdate> updates = new ArrayList<>();
+        for (CompletableFuture<StatusUpdate> future : futures) {
+            StatusUpdate update = future.join();
+            if (update != null) {
+                updates.add(update);
+            }
+        }
+        return updates;
+    }
+
+    private StatusUpdate fetchStatus(AITask task, String celeryTaskId, LocalDateTime expiredBefore) {
+        try {
+            String json = aiGateway.get(AiServiceGateway.TASK_STATUS, "/task-status/{id}", String.class, celeryTaskId);
+            if (json == null) {
+                return null;
+            }
+            AiStatusResponse response = objectMapper.readValue(json, AiStatusResponse.class);
+            String aiStatus = response.getStatus();
+
+            boolean stillPending = aiStatus == null || "PENDING".equalsIgnoreCase(aiStatus);
+            LocalDateTime sentAt = task.getDispatchedAt() != null ? task.getDispatchedAt() : task.getCreatedAt();
+            if (stillPending && sentAt != null && sentAt.isBefore(expiredBefore)) {
+                return new StatusUpdate(task.getAiTaskId(), "FAILURE", null, "Task expired in AI service");
+            }
+            return new StatusUpdate(task.getAiTaskId(), aiStatus, response.getResult(), null);
+        } catch (HttpClientErrorException.NotFound e) {
+            return new StatusUpdate(task.getAiTaskId(), "FAILURE", null, "Task not found in AI service");
+        } catch (Exception e) {
+            // Lỗi tạm thời: để lần reconcile sau
+            log.debug("Could not fetch status of AI task {}: {}", task.getAiTaskId(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Map Celery state to AITask status and write it if the task is still open (inside a transaction).
+     * The final result goes to ai_task_result only for the writer that actually closed the task.
+     */
+    private int apply(StatusUpdate update) {
+        AITask.TaskStatus status = mapStatus(update.aiStatus());
+        if (status == null) {
+            return 0;
+        }
+        if (status == AITask.TaskStatus.PROCESSING) {
+            return aiTaskRepository.markProcessingIfPending(
+                    update.taskId(), AITask.TaskStatus.PENDING, AITask.TaskStatus.PROCESSING);
+        }
+        int updated = aiTaskRepository.finishIfOpen(update.taskId(), status, OPEN_STATUSES);
+        if (updated > 0) {
+            resultStore.record(update.taskId(), status, update.result(), update.error());
+        }
+        return updated;
+    }
+
+    static AITask.TaskStatus mapStatus(String aiStatus) {
+        if (aiStatus == null) {
+            return null;
+        }
+        return switch (aiStatus.toUpperCase()) {
+            case "SUCCESS" -> AITask.TaskStatus.SUCCESS;
+            case "FAILURE", "REVOKED" -> AITask.TaskStatus.FAILURE;
+            case "STARTED", "PROGRESS", "PROCESSING", "RETRY" -> AITask.TaskStatus.PROCESSING;
+            default -> null; // PENDING
+        };
+    }
+
+    private record StatusUpdate(Long taskId, String aiStatus, Object result, String error) {
+    }
+}
@@ -0,0 +1,167 @@
+package com.smd.core.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smd.core.dto.AiTaskResultResponse;
+import com.smd.core.entity.AITask;
+import com.smd.core.entity.AITaskResult;
+import com.smd.core.repository.AiTaskRepository;
+import com.smd.core.repository.AiTaskResultRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Lưu và đọc kết quả AI trong bảng ai_task_result.
+ *
+ * Response của worker ({ "status": "Success" | "Failed", "summary" | "text" | "data" | "error": ... })
+ * được parse một lần lúc ghi: outcome, summary và error thành cột riêng, phần còn lại giữ trong payload JSONB.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AiTaskResultStore {
+
+    private final AiTaskResultRepository resultRepository;
+    private final AiTaskRepository aiTaskRepository;
+    private final ObjectMapper objectMapper;
+
+    private static final int SUMMARY_BATCH_SIZE = 1000;
+
+    /**
+     * Ghi kết quả cuối cùng của task (gọi trong transaction, sau khi đã chuyển task sang SUCCESS / FAILURE).
+     * Các task WAITING của syllabus khác đang chờ task này nhận cùng trạng thái và một bản sao kết quả.
+     */
+    public AITaskResult record(Long taskId, AITask.TaskStatus status, Object result, String error) {
+        Map<String, Object> payload = toPayload(result);
+        String workerStatus = payload != null ? stringValue(payload.get("status")) : null;
+
+        boolean failed = status == AITask.TaskStatus.FAILURE || "Failed".equalsIgnoreCase(workerStatus);
+        String summary = payload != null ? stringValue(payload.get("summary")) : null;
+        if (summary == null && payload != null) {
+            summary = stringValue(payload.get("text"));
+        }
+        String message = error != null ? error : (payload != null ? stringValue(payload.get("error")) : null);
+        if (failed && message == null && payload != null) {
+            message = stringValue(payload.get("value"));
+        }
+
+        AITaskResult entity = AITaskResult.builder()
+                .task(aiTaskRepository.getReferenceById(taskId))
+                .outcome(failed ? AITaskResult.Outcome.FAILED : AITaskResult.Outcome.SUCCESS)
+                .summary(failed ? null : summary)
+                .error(message)
+                .payload(payload)
+                .completedAt(LocalDateTime.now())
+                .build();
+        AITaskResult saved = resultRepository.save(entity);
+        completeFollowers(taskId, status, saved);
+        return saved;
+    }
+
+    private void completeFollowers(Long taskId, AITask.TaskStatus status, AITaskResult result) {
+        List<Long> followers = aiTaskRepository.findIdsBySourceTaskIdAndStatus(taskId, AITask.TaskStatus.WAITING);
+        if (followers.isEmpty()) {
+            return;
+        }
+        aiTaskRepository.finishFollowers(taskId, AITask.TaskStatus.WAITING, status, LocalDateTime.now());
+        for (Long followerId : followers) {
+            copy(result, followerId);
+        }
+        log.debug("AI task {} finished as {}, result copied to {} waiting task(s)", taskId, status, followers.size());
+    }
+
+    /**
+     * Chép kết quả đã có sang task khác (cache hit cho syllabus khác có cùng tài liệu)
+     */
+    public AITaskResult copy(AITaskResult source, Long taskId) {
+        AITaskResult entity = AITaskResult.builder()
+                .task(aiTaskRepository.getReferenceById(taskId))
+                .outcome(source.getOutcome())
+                .summary(source.getSummary())
+                .error(source.getError())
+                .payload(source.getPayload())
+                .completedAt(LocalDateTime.now())
+                .build();
+        return resultRepository.save(entity);
+    }
+
+    public Optional<AITaskResult> find(Long taskId) {
+        return resultRepository.findById(taskId);
+    }
+
+    /**
+     * Tóm tắt AI mới nhất của syllabus (chỉ đọc cột summary)
+     */
+    public String latestSummary(Long syllabusId) {
+        List<String> summaries = resultRepository.findLatestSummaries(syllabusId, PageRequest.of(0, 1));
+        return summaries.isEmpty() ? null : summaries.get(0);
+    }
+
+    /**
+     * Tóm tắt AI mới nhất của nhiều syllabus (một query cho mỗi 1000 id); syllabus chưa có tóm tắt không có trong map
+     */
+    public Map<Long, String> latestSummaries(Collection<Long> syllabusIds) {
+        Map<Long, String> summaries = new HashMap<>();
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(syllabusIds));
+        for (int from = 0; from < ids.size(); from += SUMMARY_BATCH_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + SUMMARY_BATCH_SIZE, ids.size()));
+            for (Object[] row : resultRepository.findLatestSummariesBySyllabusIds(chunk)) {
+                summaries.put(((Number) row[0]).longValue(), (String) row[1]);
+            }
+        }
+        return summaries;
+    }
+
+    public AiTaskResultResponse toResponse(AITask task) {
+        AiTaskResultResponse.AiTaskResultResponseBuilder builder = AiTaskResultResponse.builder()
+                .aiTaskId(task.getAiTaskId())
+                .externalTaskId(task.getExternalTaskId())
+                .taskType(task.getTaskType().name())
+                .status(task.getStatus().name());
+
+        find(task.getAiTaskId()).ifPresent(result -> builder
+                .outcome(result.getOutcome().name())
+                .summary(result.getSummary())
+                .error(result.getError())
+                .payload(result.getPayload())
+                .completedAt(result.getCompletedAt()));
+        return builder.build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> toPayload(Object result) {
+        if (result == null) {
+            return null;
+        }
+        if (result instanceof Map<?, ?> map) {
+            return (Map<String, Object>) map;
+        }
+        if (result instanceof String text && text.startsWith("{")) {
+            try {
+                return objectMapper.readValue(text, new TypeReference<Map<String, Object>>() {});
+            } catch (Exception e) {
+                log.debug("AI result is not a JSON object, storing as text");
+            }
+        }
+        // Worker trả chuỗi / list: bọc lại để cột payload luôn là object
+        Map<String, Object> wrapped = new LinkedHashMap<>();
+        wrapped.put("value", result);
+        return wrapped;
+    }
+
+    private static String stringValue(Object value) {
+        return value instanceof String s && !s.isBlank() ? s : null;
+    }
+}
@@ -1,18 +1,25 @@
 package com.smd.core.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smd.core.dto.AuditLogSeriesPoint;
+import com.smd.core.dto.AuditLogSeriesPoint.Granularity;
 import com.smd.core.entity.Syllabus;
 import com.smd.core.entity.SyllabusAuditLog;
 import com.smd.core.entity.User;
+import com.smd.core.repository.AuditLogJdbcRepository.AuditEntry;
+import com.smd.core.repository.AuditLogRollupJdbcRepository;
+import com.smd.core.repository.AuditLogRollupJdbcRepository.RollupKey;
 import com.smd.core.repository.SyllabusAuditLogRepository;
 import com.smd.core.repository.UserRepository;
+import com.smd.core.repository.WorkflowBatchJdbcRepository;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
@@ -24,7 +31,9 @@ import java.util.Map;
 
 /**
  * Service for managing audit logs
- * Provides methods to log various actions and retrieve audit history
+ * Provides methods to log various actions and retrieve audit history.
+ * Single audit rows are written asynchronously by {@link AuditLogWriter}; the batch workflow rows stay
+ * in the caller's transaction.
  */
 @Service
 @Slf4j
@@ -39,10 +48,18 @@ public class AuditLogService {
     @Autowired
     private ObjectMapper objectMapper;
     
+    @Autowired
+    private WorkflowBatchJdbcRepository workflowBatchJdbcRepository;
+    
+    @Autowired
+    private AuditLogWriter auditLogWriter;
+    
+    @Autowired
+    private AuditLogRollupJdbcRepository auditLogRollupJdbcRepository;
+    
     /**
      * Log a simple action without status change
      */
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void logAction(Syllabus syllabus, String actionType, String username, String comments) {
         logAction(syllabus, actionType, username, null, null, comments, null);
     }
@@ -50,87 +67,113 @@ public class AuditLogService {
     /**
      * Log an action with status change (e.g., workflow transitions)
      */
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void logStatusChange(Syllabus syllabus, String actionType, String username, 
                                 String oldStatus, String newStatus, String comments) {
         logAction(syllabus, actionType, username, oldStatus, newStatus, comments, null);
     }
     
+    /**
+     * Log a workflow transition when the caller already knows the acting role (no user lookup)
+     */
+    public void logStatusChange(Syllabus syllabus, String actionType, String username, String roleName,
+                                String oldStatus, String newStatus, String comments) {
+        submit(syllabus, actionType, username, roleName, oldStatus, newStatus, comments, null, null);
+    }
+    
+    /**
+     * Audit rows of a batch workflow transition, written with one JDBC batch in the caller's transaction
+     */
+    @Transactional
+    public void logStatusChanges(List<Long> syllabusIds, String actionType, String username, String roleName,
+                                 String oldStatus, String newStatus, String comments) {
+        LocalDateTime now = LocalDateTime.now();
+        workflowBatchJdbcRepository.insertAuditLogs(syllabusIds, actionType, username, roleName,
+                oldStatus, newStatus, comments, getClientIpAddress(), getUserAgent(), now);
+        if (auditLogRollupJdbcRepository.isCounted(now)) {
+            auditLogRollupJdbcRepository.add(Map.of(RollupKey.of(now, actionType, roleName), (long) syllabusIds.size()));
+        }
+        log.info("✓ {} audit logs created: [{}] by {} ({})", syllabusIds.size(), actionType, username, roleName);
+    }
+    
     /**
      * Log an action with additional data
      */
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void logAction(Syllabus syllabus, String actionType, String username, 
                          String oldStatus, String newStatus, String comments, 
                          Map<String, Object> additionalData) {
+        submit(syllabus, actionType, username, resolveRole(username), oldStatus, newStatus, comments,
+                null, toJson(additionalData));
+    }
+    
+    /**
+     * Log field changes with before/after values
+     */
+    public void logFieldChanges(Syllabus syllabus, String actionType, String username, 
+                                Map<String, String> changedFields, String comments) {
+        submit(syllabus, actionType, username, resolveRole(username), null, null, comments,
+                toJson(changedFields), null);
+    }
+    
+    /**
+     * Build the row on the request thread (IP, user agent, role are request-scoped) and hand it to the async writer
+     */
+    private void submit(Syllabus syllabus, String actionType, String username, String roleName,
+                        String oldStatus, String newStatus, String comments,
+                        String changedFields, String additionalData) {
         try {
-            User user = userRepository.findByUsername(username).orElse(null);
-            String roleName = "UNKNOWN";
-            
-            if (user != null && user.getRole() != null) {
-                roleName = user.getRole().getRoleName();
-            }
+            auditLogWriter.submit(new AuditEntry(
+                    syllabus != null ? syllabus.getSyllabusId() : null,
+                    actionType,
+                    username,
+                    roleName,
+                    oldStatus,
+                    newStatus,
+                    comments,
+                    changedFields,
+                    getClientIpAddress(),
+                    getUserAgent(),
+                    LocalDateTime.now(),
+                    additionalData));
             
-            SyllabusAuditLog auditLog = SyllabusAuditLog.builder()
-                    .syllabus(syllabus)
-                    .actionType(actionType)
-                    .performedBy(username)
-                    .performedByRole(roleName)
-                    .oldStatus(oldStatus)
-                    .newStatus(newStatus)
-                    .comments(comments)
-                    .ipAddress(getClientIpAddress())
-                    .userAgent(getUserAgent())
-                    .timestamp(LocalDateTime.now())
-                    .build();
-            
-            if (additionalData != null && !additionalData.isEmpty()) {
-                auditLog.setAdditionalData(objectMapper.writeValueAsString(additionalData));
-            }
-            
-            auditLogRepository.save(auditLog);
-            
-            log.info("✓ Audit log created: [{}] by {} ({}) for syllabus #{}", 
-                     actionType, username, roleName, syllabus.getSyllabusId());
+            log.debug("Audit log queued: [{}] by {} ({}) for syllabus #{}",
+                     actionType, username, roleName, syllabus != null ? syllabus.getSyllabusId() : null);
             
         } catch (Exception e) {
             // Don't throw exception - audit log failure shouldn't break the main operation
-            log.error("✗ Failed to create audit log for action: {} by {} on syllabus {}", 
-                      actionType, username, syllabus.getSyllabusId(), e);
+            log.error("✗ Failed to create audit log for action: {} by {}", actionType, username, e);
         }
     }
     
     /**
-     * Log field changes with before/after values
+     * Role of the acting user: taken from the authenticated principal when it is the same user,
+     * otherwise looked up
      */
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void logFieldChanges(Syllabus syllabus, String actionType, String username, 
-                                Map<String, String> changedFields, String comments) {
+    private String resolveRole(String username) {
         try {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser principal
+                    && principal.getUsername().equals(username)) {
+                return principal.getRoleName() != null ? principal.getRoleName() : "UNKNOWN";
+            }
             User user = userRepository.findByUsername(username).orElse(null);
-            String roleName = user != null && user.getRole() != null
-                ? user.getRole().getRoleName() 
-                : "UNKNOWN";
-            
-            SyllabusAuditLog auditLog = SyllabusAuditLog.builder()
-                    .syllabus(syllabus)
-                    .actionType(actionType)
-                    .performedBy(username)
-                    .performedByRole(roleName)
-                    .comments(comments)
-                    .changedFields(objectMapper.writeValueAsString(changedFields))
-                    .ipAddress(getClientIpAddress())
-                    .userAgent(getUserAgent())
-                    .timestamp(LocalDateTime.now())
-                    .build();
-            
-            auditLogRepository.save(auditLog);
-            
-            log.info("✓ Audit log with field changes created: [{}] by {} for syllabus #{}", 
-                     actionType, username, syllabus.getSyllabusId());
-            
+            if (user != null && user.getRole() != null) {
+                return user.getRole().getRoleName();
+            }
+        } catch (Exception e) {
+            log.warn("Could not resolve role of {} for audit log: {}", username, e.getMessage());
+        }
+        return "UNKNOWN";
+    }
+    
+    private String toJson(Map<String, ?> data) {
+        if (data == null || data.isEmpty()) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(data);
         } catch (Exception e) {
-            log.error("✗ Failed to create audit log with field changes", e);
+            log.warn("Could not serialize audit data: {}", e.getMessage());
+            return null;
         }
     }
     
@@ -256,38 +299,27 @@ public class AuditLogService {
     }
     
     /**
-     * Get audit log statistics
+     * Get audit log statistics (read from the hourly rollups, windows are rounded down to the hour)
      */
     public Map<String, Object> getAuditLogStatistics() {
         Map<String, Object> stats = new HashMap<>();
+        LocalDateTime now = LocalDateTime.now();
         
-        // Total count
-        long totalLogs = auditLogRepository.count();
-        stats.put("totalLogs", totalLogs);
-        
-        // Count by action type
-        List<Object[]> actionTypeCounts = auditLogRepository.countByActionType();
-        Map<String, Long> actionTypeMap = new HashMap<>();
-        for (Object[] row : actionTypeCounts) {
-            actionTypeMap.put((String) row[0], (Long) row[1]);
-        }
-        stats.put("countByActionType", actionTypeMap);
-        
-        // Recent activity (last 24 hours)
-        LocalDateTime last24Hours = LocalDateTime.now().minusHours(24);
-        List<SyllabusAuditLog> recentLogs = auditLogRepository.findRecentLogs(last24Hours);
-        stats.put("logsLast24Hours", recentLogs.size());
-        
-        // Last 7 days
-        LocalDateTime last7Days = LocalDateTime.now().minusDays(7);
-        List<SyllabusAuditLog> weekLogs = auditLogRepository.findRecentLogs(last7Days);
-        stats.put("logsLast7Days", weekLogs.size());
-        
-        // Last 30 days
-        LocalDateTime last30Days = LocalDateTime.now().minusDays(30);
-        List<SyllabusAuditLog> monthLogs = auditLogRepository.findRecentLogs(last30Days);
-        stats.put("logsLast30Days", monthLogs.size());
+        stats.put("totalLogs", auditLogRollupJdbcRepository.total());
+        stats.put("countByActionType", auditLogRollupJdbcRepository.countByActionType());
+        stats.put("countByRole", auditLogRollupJdbcRepository.countByRole());
+        stats.put("logsLast24Hours", auditLogRollupJdbcRepository.totalSince(now.minusHours(24)));
+        stats.put("logsLast7Days", auditLogRollupJdbcRepository.totalSince(now.minusDays(7)));
+        stats.put("logsLast30Days", auditLogRollupJdbcRepository.totalSince(now.minusDays(30)));
         
         return stats;
     }
+    
+    /**
+     * Audit log counts per hour or day in [from, to), optionally for one action type / role
+     */
+    public List<AuditLogSeriesPoint> getAuditLogSeries(LocalDateTime from, LocalDateTime to, Granularity granularity,
+                                                       String actionType, String role) {
+        return auditLogRollupJdbcRepository.series(from, to, granularity, actionType, role);
+    }
 }
@@ -0,0 +1,428 @@
+package com.smd.core.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smd.core.repository.AuditLogJdbcRepository;
+import com.smd.core.repository.AuditLogJdbcRepository.AuditEntry;
+import com.smd.core.repository.AuditLogRollupJdbcRepository;
+import com.smd.core.repository.AuditLogRollupJdbcRepository.RollupKey;
+import com.smd.core.util.RingBuffer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Ghi audit log bất đồng bộ: request chỉ đưa AuditEntry (đã chụp IP, user agent, role) vào ring buffer lock-free
+ * có giới hạn; một writer thread lấy ra theo lô và ghi bằng một JDBC batch, cùng transaction với phần cộng dồn
+ * vào rollup theo giờ (audit_log_hourly_rollup).
+ *
+ * Buffer đầy, ghi lỗi sau max-retries lần, hoặc tắt ứng dụng khi DB không ghi được: entry được nối vào file spill
+ * (JSON mỗi dòng, fsync mỗi lần ghi) trong audit.spill.path. Writer đọc lại file spill mỗi replay-interval khi DB
+ * sẵn sàng; dòng bị DB từ chối (không phải do DB down) được chuyển sang file rejected để xem tay.
+ * Tắt spill (audit.spill.enabled=false) thì entry không vào được buffer bị bỏ và đếm vào smd.audit.dropped.
+ */
+@Component
+@Slf4j
+public class AuditLogWriter implements SmartLifecycle {
+
+    private static final String SPILL_FILE = "audit-spill.jsonl";
+    private static final String REPLAY_PREFIX = "audit-replay-";
+    private static final String REJECTED_FILE = "audit-rejected.jsonl";
+
+    private final AuditLogJdbcRepository auditLogJdbcRepository;
+    private final AuditLogRollupJdbcRepository auditLogRollupJdbcRepository;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    // Ghi đồng bộ không được dính vào transaction của caller (lỗi insert sẽ làm hỏng transaction đó)
+    private final TransactionTemplate requiresNew;
+
+    private final Counter writtenCounter;
+    private final Counter spilledCounter;
+    private final Counter droppedCounter;
+    private final Object spillLock = new Object();
+    private final Object drainLock = new Object();
+
+    @Value("${audit.async.enabled:true}")
+    private boolean enabled;
+
+    // Lũy thừa của 2
+    @Value("${audit.async.capacity:8192}")
+    private int capacity;
+
+    @Value("${audit.async.batch-size:500}")
+    private int batchSize;
+
+    @Value("${audit.async.max-retries:3}")
+    private int maxRetries;
+
+    @Value("${audit.async.shutdown-timeout:PT10S}")
+    private Duration shutdownTimeout;
+
+    @Value("${audit.spill.enabled:true}")
+    private boolean spillEnabled;
+
+    @Value("${audit.spill.path:uploads/audit-spill}")
+    private String spillPath;
+
+    @Value("${audit.spill.replay-interval:PT1M}")
+    private Duration replayInterval;
+
+    private RingBuffer<AuditEntry> buffer;
+    private Thread writer;
+    private volatile boolean running;
+    private volatile boolean idle;
+    // Writer đã thoát (đọc/ghi trong drainLock): từ đó ai đưa entry vào buffer tự drain và ghi đồng bộ
+    private boolean writerDone;
+
+    public AuditLogWriter(AuditLogJdbcRepository auditLogJdbcRepository,
+                          AuditLogRollupJdbcRepository auditLogRollupJdbcRepository,
+                          ObjectMapper objectMapper,
+                          MeterRegistry meterRegistry,
+                          PlatformTransactionManager transactionManager) {
+        this.auditLogJdbcRepository = auditLogJdbcRepository;
+        this.auditLogRollupJdbcRepository = auditLogRollupJdbcRepository;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.writtenCounter = Counter.builder("smd.audit.written")
+                .description("Audit log rows written by the async writer")
+                .register(meterRegistry);
+        this.spilledCounter = Counter.builder("smd.audit.spilled")
+                .description("Audit log rows spilled to disk (buffer full or database unavailable)")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("smd.audit.dropped")
+                .description("Audit log rows lost because the buffer was full and spilling is disabled")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Nhận một audit entry; không chặn request (trừ khi phải spill vì buffer đầy)
+     */
+    public void submit(AuditEntry entry) {
+        if (!running) {
+            // Chưa start / đã stop (hoặc tắt async): ghi đồng bộ
+            write(List.of(entry), false);
+            return;
+        }
+        if (!buffer.offer(entry)) {
+            overflow(List.of(entry));
+            return;
+        }
+        if (!running) {
+            // stop() chạy xen giữa: writer có thể đã thoát trước khi thấy entry này
+            drainAfterWriter();
+            return;
+        }
+        if (idle) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled || running) {
+            return;
+        }
+        buffer = new RingBuffer<>(capacity);
+        Gauge.builder("smd.audit.queue.size", buffer, RingBuffer::size)
+                .description("Audit log rows waiting in the async buffer")
+                .register(meterRegistry);
+        synchronized (drainLock) {
+            writerDone = false;
+        }
+        running = true;
+        writer = new Thread(this::drainLoop, "audit-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(shutdownTimeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            log.warn("Audit log writer did not finish within {}, {} entries still buffered",
+                    shutdownTimeout, buffer.size());
+            return;
+        }
+        drainAfterWriter();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Dừng sau web server (phase thấp hơn) để nhận hết audit của các request đang chạy
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void drainLoop() {
+        List<AuditEntry> batch = new ArrayList<>(batchSize);
+        long nextReplay = System.nanoTime();
+        while (running || buffer.size() > 0) {
+            if (buffer.drainTo(batch, batchSize) > 0) {
+                write(batch, running);
+                batch.clear();
+                continue;
+            }
+            if (spillEnabled && System.nanoTime() - nextReplay >= 0) {
+                replaySpill();
+                nextReplay = System.nanoTime() + replayInterval.toNanos();
+            }
+            idle = true;
+            if (running && buffer.size() == 0) {
+                LockSupport.parkNanos(this, TimeUnit.SECONDS.toNanos(1));
+            }
+            idle = false;
+        }
+        synchronized (drainLock) {
+            writerDone = true;
+        }
+        // Entry đưa vào ngay lúc writer thoát vòng lặp
+        drainAfterWriter();
+    }
+
+    /**
+     * Ghi đồng bộ những gì còn trong buffer sau khi writer đã thoát. Writer còn chạy thì bỏ qua: vòng lặp của nó chỉ
+     * dừng khi buffer rỗng và còn một lần drain cuối. drainLock giữ cho buffer chỉ có một consumer mỗi lúc.
+     */
+    private void drainAfterWriter() {
+        List<AuditEntry> remaining = new ArrayList<>();
+        synchronized (drainLock) {
+            if (!writerDone) {
+                return;
+            }
+            buffer.drainTo(remaining, buffer.capacity());
+        }
+        if (!remaining.isEmpty()) {
+            write(remaining, false);
+        }
+    }
+
+    private void write(List<AuditEntry> entries, boolean retry) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                persist(entries);
+                writtenCounter.increment(entries.size());
+                return;
+            } catch (Exception e) {
+                if (!retry || attempt >= maxRetries || !running) {
+                    log.warn("Could not write {} audit log rows: {}", entries.size(), e.getMessage());
+                    overflow(entries);
+                    return;
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100L << attempt));
+            }
+        }
+    }
+
+    // Dòng audit và rollup của chúng commit cùng nhau (không đếm thiếu / đếm trùng khi ghi lại)
+    private void persist(List<AuditEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Map<RollupKey, Long> rollup = entries.stream()
+                .filter(entry -> auditLogRollupJdbcRepository.isCounted(entry.timestamp()))
+                .collect(Collectors.groupingBy(
+                        entry -> RollupKey.of(entry.timestamp(), entry.actionType(), entry.performedByRole()),
+                        Collectors.counting()));
+        requiresNew.executeWithoutResult(status -> {
+            auditLogJdbcRepository.insertAll(entries);
+            auditLogRollupJdbcRepository.add(rollup);
+        });
+    }
+
+    private void overflow(List<AuditEntry> entries) {
+        if (spillEnabled && spill(entries)) {
+            spilledCounter.increment(entries.size());
+        } else {
+            droppedCounter.increment(entries.size());
+            log.error("✗ Dropped {} audit log rows (first: [{}] by {})", entries.size(),
+                    entries.get(0).actionType(), entries.get(0).performedBy());
+        }
+    }
+
+    private boolean spill(List<AuditEntry> entries) {
+        try {
+            StringBuilder lines = new StringBuilder();
+            for (AuditEntry entry : entries) {
+                lines.append(objectMapper.writeValueAsString(entry)).append('\n');
+            }
+            synchronized (spillLock) {
+                append(spillDir().resolve(SPILL_FILE), lines.toString());
+            }
+            return true;
+        } catch (IOException e) {
+            log.error("Could not spill {} audit log rows to {}: {}", entries.size(), spillDir(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Ghi lại các file spill (writer thread). File hiện tại được đổi tên trước khi đọc nên spill mới vẫn ghi tiếp được.
+     */
+    private void replaySpill() {
+        try {
+            Path current = spillDir().resolve(SPILL_FILE);
+            if (Files.notExists(current) && !hasReplayFiles()) {
+                return;
+            }
+            if (!auditLogJdbcRepository.isAvailable()) {
+                return;
+            }
+            synchronized (spillLock) {
+                if (Files.exists(current)) {
+                    Files.move(current, spillDir().resolve(REPLAY_PREFIX + System.currentTimeMillis() + ".jsonl"));
+                }
+            }
+            List<Path> files;
+            try (Stream<Path> listing = Files.list(spillDir())) {
+                files = listing.filter(AuditLogWriter::isReplayFile).sorted().toList();
+            }
+            for (Path file : files) {
+                if (!replay(file)) {
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Audit spill replay failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * false = DB lại không ghi được, phần chưa ghi của file giữ lại cho lần sau.
+     * File được cắt sau mỗi chunk: chết giữa chừng thì lần replay sau không ghi trùng các chunk đã commit.
+     */
+    private boolean replay(Path file) throws IOException {
+        List<String> lines = new ArrayList<>(Files.readAllLines(file, StandardCharsets.UTF_8));
+        lines.removeIf(String::isBlank);
+        int replayed = 0;
+        for (int from = 0; from < lines.size(); from += batchSize) {
+            int to = Math.min(from + batchSize, lines.size());
+            List<String> chunk = lines.subList(from, to);
+            List<AuditEntry> entries = new ArrayList<>(chunk.size());
+            for (String line : chunk) {
+                entries.add(parse(line));
+            }
+            try {
+                persist(entries.stream().filter(Objects::nonNull).toList());
+                replayed += (int) entries.stream().filter(Objects::nonNull).count();
+            } catch (Exception batchFailure) {
+                for (int i = 0; i < entries.size(); i++) {
+                    if (entries.get(i) == null) {
+                        continue;
+                    }
+                    try {
+                        persist(List.of(entries.get(i)));
+                        replayed++;
+                    } catch (Exception rowFailure) {
+                        if (!auditLogJdbcRepository.isAvailable()) {
+                            keepRemaining(file, lines.subList(from + i, lines.size()));
+                            writtenCounter.increment(replayed);
+                            return false;
+                        }
+                        reject(chunk.get(i), rowFailure.getMessage());
+                    }
+                }
+            }
+            if (to < lines.size()) {
+                keepRemaining(file, lines.subList(to, lines.size()));
+            }
+        }
+        Files.delete(file);
+        writtenCounter.increment(replayed);
+        if (replayed > 0) {
+            log.info("Replayed {} spilled audit log rows from {}", replayed, file.getFileName());
+        }
+        return true;
+    }
+
+    // null = dòng hỏng, đã chuyển sang file rejected
+    private AuditEntry parse(String line) throws IOException {
+        try {
+            return objectMapper.readValue(line, AuditEntry.class);
+        } catch (JsonProcessingException e) {
+            reject(line, e.getOriginalMessage());
+            return null;
+        }
+    }
+
+    private void reject(String line, String reason) throws IOException {
+        log.error("Audit log row rejected, moved to {}: {}", REJECTED_FILE, reason);
+        append(spillDir().resolve(REJECTED_FILE), line + "\n");
+    }
+
+    private void keepRemaining(Path file, List<String> remaining) throws IOException {
+        Path rest = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(rest, remaining, StandardCharsets.UTF_8);
+        Files.move(rest, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path spillDir() {
+        return Paths.get(spillPath).toAbsolutePath().normalize();
+    }
+
+    private boolean hasReplayFiles() throws IOException {
+        if (Files.notExists(spillDir())) {
+            return false;
+        }
+        try (Stream<Path> listing = Files.list(spillDir())) {
+            return listing.anyMatch(AuditLogWriter::isReplayFile);
+        }
+    }
+
+    private static boolean isReplayFile(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(REPLAY_PREFIX) && name.endsWith(".jsonl");
+    }
+
+    private static void append(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer bytes = ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+        }
+    }
+}
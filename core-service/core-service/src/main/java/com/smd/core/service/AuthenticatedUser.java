@@ -0,0 +1,34 @@
+package com.smd.core.service;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * Principal của request đã xác thực: thêm userId và role chính (đã có khi load user) để các API theo user
+ * và audit log không phải findByUsername lại
+ */
+public class AuthenticatedUser extends User {
+
+    private final Long userId;
+    private final String roleName;
+
+    public AuthenticatedUser(Long userId, String roleName, String username, String password, boolean enabled,
+                             boolean accountNonLocked, Collection<? extends GrantedAuthority> authorities) {
+        super(username, password, enabled, true, true, accountNonLocked, authorities);
+        this.userId = userId;
+        this.roleName = roleName;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    /**
+     * Role chính của user (như User.getRole()), null nếu chưa có role
+     */
+    public String getRoleName() {
+        return roleName;
+    }
+}
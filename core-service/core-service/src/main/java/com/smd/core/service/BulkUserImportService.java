@@ -45,6 +45,9 @@ public class BulkUserImportService {
     @Autowired
     private UserRoleRepository userRoleRepository;
 
+    @Autowired
+    private RoleMembershipCache roleMembershipCache;
+
     @Autowired
     private PasswordEncoder passwordEncoder;
 
@@ -77,6 +80,10 @@ public class BulkUserImportService {
             }
         }
 
+        if (successCount > 0) {
+            roleMembershipCache.invalidate();
+        }
+
         return BulkUserImportResponse.builder()
                 .totalRows(rows.size())
                 .successCount(successCount)
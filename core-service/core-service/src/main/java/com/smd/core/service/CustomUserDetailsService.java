@@ -26,15 +26,14 @@ public class CustomUserDetailsService implements UserDetailsService {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User không tồn tại: " + username));
 
-        return org.springframework.security.core.userdetails.User.builder()
-                .username(user.getUsername())
-                .password(user.getPasswordHash())
-                .authorities(getAuthorities(user))
-                .accountExpired(false)
-                .accountLocked(user.getStatus() == User.UserStatus.SUSPENDED)
-                .credentialsExpired(false)
-                .disabled(user.getStatus() == User.UserStatus.INACTIVE)
-                .build();
+        return new AuthenticatedUser(
+                user.getUserId(),
+                user.getRole() != null ? user.getRole().getRoleName() : null,
+                user.getUsername(),
+                user.getPasswordHash(),
+                user.getStatus() != User.UserStatus.INACTIVE,
+                user.getStatus() != User.UserStatus.SUSPENDED,
+                getAuthorities(user));
     }
 
     // Get user authorities from roles
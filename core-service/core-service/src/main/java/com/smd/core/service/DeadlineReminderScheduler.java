@@ -0,0 +1,208 @@
+package com.smd.core.service;
+
+import com.smd.core.entity.Syllabus.SyllabusStatus;
+import com.smd.core.repository.WorkflowReminderJdbcRepository;
+import com.smd.core.repository.WorkflowReminderJdbcRepository.DueReminder;
+import com.smd.core.repository.WorkflowReminderJdbcRepository.FiredReminder;
+import com.smd.core.util.TimingWheel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Nhắc hạn duyệt (DEADLINE_REMINDER) cho syllabus nằm quá SLA ở PENDING_REVIEW / PENDING_APPROVAL.
+ *
+ * Lịch nhắc nằm trong bảng workflow_reminder (workflow engine ghi khi chuyển trạng thái). Mỗi load-interval
+ * chỉ đọc các lần nhắc đến hạn trong cửa sổ sắp tới (range scan theo due_at) và đưa vào timing wheel trong
+ * bộ nhớ; mỗi tick lấy ra các lần nhắc đã đến hạn và bắn theo batch: claim có điều kiện + tạo notification
+ * trong cùng transaction. Restart chỉ cần load lại cửa sổ; nhiều node cùng load thì chỉ node claim được mới gửi.
+ */
+@Service
+@Slf4j
+public class DeadlineReminderScheduler {
+
+    private final WorkflowReminderJdbcRepository reminderRepository;
+    private final NotificationService notificationService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Counter firedCounter;
+    private final Counter cancelledCounter;
+
+    // Id đã nằm trong wheel (tránh thêm lại ở lần load sau)
+    private final Set<Long> inWheel = ConcurrentHashMap.newKeySet();
+    private volatile TimingWheel<Long> wheel;
+    private volatile boolean seeded;
+
+    @Value("${workflow.reminder.enabled:true}")
+    private boolean enabled;
+
+    @Value("${workflow.reminder.sla.pending-review:P3D}")
+    private Duration pendingReviewSla;
+
+    @Value("${workflow.reminder.sla.pending-approval:P5D}")
+    private Duration pendingApprovalSla;
+
+    @Value("${workflow.reminder.repeat:P1D}")
+    private Duration repeatInterval;
+
+    @Value("${workflow.reminder.max-reminders:3}")
+    private int maxReminders;
+
+    @Value("${workflow.reminder.tick:PT10S}")
+    private Duration tick;
+
+    @Value("${workflow.reminder.load-interval:PT5M}")
+    private Duration loadInterval;
+
+    @Value("${workflow.reminder.batch-size:200}")
+    private int batchSize;
+
+    @Value("${workflow.reminder.load-limit:5000}")
+    private int loadLimit;
+
+    public DeadlineReminderScheduler(WorkflowReminderJdbcRepository reminderRepository,
+                                     NotificationService notificationService,
+                                     TransactionTemplate transactionTemplate,
+                                     MeterRegistry meterRegistry) {
+        this.reminderRepository = reminderRepository;
+        this.notificationService = notificationService;
+        this.transactionTemplate = transactionTemplate;
+        this.firedCounter = Counter.builder("smd.workflow.reminder.fired")
+                .description("Deadline reminders sent")
+                .register(meterRegistry);
+        this.cancelledCounter = Counter.builder("smd.workflow.reminder.cancelled")
+                .description("Deadline reminders dropped because the syllabus left the pending state")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Gọi trong transaction chuyển trạng thái: lên lịch lần nhắc đầu tiên nếu trạng thái mới có SLA
+     */
+    public void schedule(Collection<Long> syllabusIds, SyllabusStatus status, LocalDateTime since) {
+        Duration sla = slaOf(status);
+        if (sla != null && !syllabusIds.isEmpty()) {
+            reminderRepository.schedule(syllabusIds, status, since, since.plus(sla));
+        }
+    }
+
+    /**
+     * Tầng thô: đọc các lần nhắc đến hạn trong hai load-interval tới vào wheel
+     */
+    @Scheduled(fixedDelayString = "${workflow.reminder.load-interval:PT5M}",
+               initialDelayString = "${workflow.reminder.initial-delay:PT30S}")
+    public void loadBucket() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (!seeded) {
+                int seededCount = reminderRepository.scheduleMissing(SyllabusStatus.PENDING_REVIEW, pendingReviewSla)
+                        + reminderRepository.scheduleMissing(SyllabusStatus.PENDING_APPROVAL, pendingApprovalSla);
+                seeded = true;
+                if (seededCount > 0) {
+                    log.info("Scheduled {} missing deadline reminders", seededCount);
+                }
+            }
+
+            TimingWheel<Long> current = wheel();
+            LocalDateTime horizon = LocalDateTime.now().plus(loadInterval.multipliedBy(2));
+            int added = 0;
+            for (DueReminder due : reminderRepository.findDue(horizon, loadLimit)) {
+                if (inWheel.add(due.reminderId())) {
+                    current.add(due.reminderId(), due.dueAt().atZone(ZoneId.systemDefault()).toInstant());
+                    added++;
+                }
+            }
+            log.debug("Deadline reminder bucket loaded: {} new, {} in wheel", added, current.size());
+        } catch (Exception e) {
+            log.warn("Could not load deadline reminders: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Tầng mịn: bắn các lần nhắc đã đến hạn trong wheel, theo batch
+     */
+    @Scheduled(fixedDelayString = "${workflow.reminder.tick:PT10S}")
+    public void tick() {
+        if (!enabled || wheel == null) {
+            return;
+        }
+        List<Long> due = wheel.advance(Instant.now());
+        for (int from = 0; from < due.size(); from += batchSize) {
+            List<Long> batch = due.subList(from, Math.min(from + batchSize, due.size()));
+            try {
+                fire(batch);
+            } catch (Exception e) {
+                // Transaction rollback: các lần nhắc vẫn mở trong DB, lần load sau đưa lại vào wheel
+                log.error("Failed to send deadline reminders {}: {}", batch, e.getMessage(), e);
+            } finally {
+                batch.forEach(inWheel::remove);
+            }
+        }
+    }
+
+    private void fire(List<Long> reminderIds) {
+        transactionTemplate.executeWithoutResult(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<FiredReminder> claimed = reminderRepository.claim(reminderIds, now);
+            int cancelled = reminderRepository.cancelOpen(reminderIds, now);
+
+            Map<Long, Integer> sequenceBySyllabus = new LinkedHashMap<>();
+            List<FiredReminder> repeat = new ArrayList<>();
+            Set<Long> seen = new HashSet<>();
+            for (FiredReminder reminder : claimed) {
+                if (!seen.add(reminder.syllabusId())) {
+                    continue;
+                }
+                sequenceBySyllabus.put(reminder.syllabusId(), reminder.sequence());
+                if (reminder.sequence() < maxReminders) {
+                    repeat.add(reminder);
+                }
+            }
+
+            int sent = notificationService.notifyDeadlineReminders(sequenceBySyllabus);
+            reminderRepository.scheduleNext(repeat, now.plus(repeatInterval));
+
+            firedCounter.increment(claimed.size());
+            cancelledCounter.increment(cancelled);
+            if (!claimed.isEmpty()) {
+                log.info("Sent {} deadline reminder notifications for {} syllabuses ({} stale reminders dropped)",
+                        sent, sequenceBySyllabus.size(), cancelled);
+            }
+        });
+    }
+
+    private TimingWheel<Long> wheel() {
+        if (wheel == null) {
+            // Level 0 phủ đúng một load-interval, phần xa hơn nằm ở overflow wheel
+            int slots = (int) Math.max(1, loadInterval.toMillis() / tick.toMillis());
+            wheel = new TimingWheel<>(tick, slots, Instant.now());
+        }
+        return wheel;
+    }
+
+    private Duration slaOf(SyllabusStatus status) {
+        return switch (status) {
+            case PENDING_REVIEW -> pendingReviewSla;
+            case PENDING_APPROVAL -> pendingApprovalSla;
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,72 @@
+package com.smd.core.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Lease Redis cho job định kỳ chỉ được chạy trên một node: SET NX có TTL với token của node,
+ * chỉ xóa khi token còn khớp (lease đã hết hạn và node khác giữ thì không xóa nhầm).
+ * Redis lỗi = không lấy được lease, lần chạy sau thử lại.
+ */
+@Component
+@Slf4j
+public class DistributedLease {
+
+    private static final String KEY_PREFIX = "lease:";
+    private static final RedisScript<Long> RELEASE = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final String owner;
+
+    public DistributedLease(RedisTemplate<String, Object> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+        this.owner = hostName() + ":" + UUID.randomUUID();
+    }
+
+    /**
+     * Chạy {@code task} nếu lấy được lease {@code name}; false nếu node khác đang giữ
+     */
+    public boolean runExclusively(String name, Duration ttl, Runnable task) {
+        String key = KEY_PREFIX + name;
+        Boolean acquired;
+        try {
+            acquired = redisTemplate.opsForValue().setIfAbsent(key, owner, ttl);
+        } catch (Exception e) {
+            log.warn("Could not acquire lease {}: {}", name, e.getMessage());
+            return false;
+        }
+        if (!Boolean.TRUE.equals(acquired)) {
+            log.debug("Lease {} is held by another node, skipping", name);
+            return false;
+        }
+
+        try {
+            task.run();
+            return true;
+        } finally {
+            try {
+                redisTemplate.execute(RELEASE, List.of(key), owner);
+            } catch (Exception e) {
+                log.warn("Could not release lease {} (expires in {}): {}", name, ttl, e.getMessage());
+            }
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.smd.core.service;
+
+import com.smd.core.dto.DocumentPreviewPage;
+import com.smd.core.dto.SyllabusDocumentRef;
+import com.smd.core.event.SyllabusDocumentUploadedEvent;
+import com.smd.core.exception.ResourceNotFoundException;
+import com.smd.core.repository.SyllabusRepository;
+import com.smd.core.util.HashUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Renders the first pages of uploaded PDF documents to small PNG thumbnails.
+ *
+ * Artifacts are content-addressed: {file.preview.path}/{sha256}/page-N.png, so a document
+ * uploaded twice (or shared between versions) is rendered once. A "pages" marker file is
+ * written last and tells that the set is complete. Rendering runs on the bounded
+ * "documentRenderExecutor", never on request threads.
+ */
+@Service
+@Slf4j
+public class DocumentPreviewService {
+
+    private static final String COMPLETE_MARKER = "pages";
+
+    private final SyllabusRepository syllabusRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor renderExecutor;
+
+    // Hashes currently being rendered, avoids queueing the same work twice
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    @Value("${file.preview.path:uploads/syllabus/preview}")
+    private String previewPath;
+
+    @Value("${document.preview.pages:3}")
+    private int maxPages;
+
+    @Value("${document.preview.width:480}")
+    private int targetWidth;
+
+    public DocumentPreviewService(SyllabusRepository syllabusRepository,
+                                  TransactionTemplate transactionTemplate,
+                                  @Qualifier("documentRenderExecutor") TaskExecutor renderExecutor) {
+        this.syllabusRepository = syllabusRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.renderExecutor = renderExecutor;
+    }
+
+    @Async("documentRenderExecutor")
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDocumentUploaded(SyllabusDocumentUploadedEvent event) {
+        if (event.contentHash() == null || !isPdf(event.fileName(), event.filePath())) {
+            return;
+        }
+        render(event.contentHash(), Paths.get(event.filePath()));
+    }
+
+    /**
+     * Resolve a rendered preview page. If the artifacts do not exist yet (document uploaded
+     * before previews existed, render still queued...) a render is scheduled in the background
+     * and the caller gets a 404 for now.
+     */
+    public DocumentPreviewPage getPreviewPage(Long syllabusId, int pageNumber) {
+        SyllabusDocumentRef ref = syllabusRepository.findDocumentRef(syllabusId)
+                .orElseThrow(() -> new ResourceNotFoundException("Syllabus", "syllabusId", syllabusId));
+
+        if (ref.getFilePath() == null || !isPdf(ref.getFileName(), ref.getFilePath())) {
+            throw new ResourceNotFoundException("Preview not available for syllabus ID: " + syllabusId);
+        }
+
+        if (ref.getContentHash() == null) {
+            scheduleBackfill(ref);
+            throw new ResourceNotFoundException("Preview is being generated for syllabus ID: " + syllabusId);
+        }
+
+        Path dir = artifactDir(ref.getContentHash());
+        if (!Files.exists(dir.resolve(COMPLETE_MARKER))) {
+            scheduleRender(ref.getContentHash(), Paths.get(ref.getFilePath()));
+            throw new ResourceNotFoundException("Preview is being generated for syllabus ID: " + syllabusId);
+        }
+
+        Path page = dir.resolve(pageFileName(pageNumber));
+        if (!Files.isRegularFile(page)) {
+            throw new ResourceNotFoundException("Preview page " + pageNumber + " not found for syllabus ID: " + syllabusId);
+        }
+        return new DocumentPreviewPage(ref.getContentHash(), pageNumber, page);
+    }
+
+    /**
+     * Render the first pages of a PDF into the artifact directory of its hash (no-op if already done)
+     */
+    public void render(String contentHash, Path source) {
+        Path dir = artifactDir(contentHash);
+        if (Files.exists(dir.resolve(COMPLETE_MARKER)) || !inFlight.add(contentHash)) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        try (PDDocument document = Loader.loadPDF(source.toFile(), IOUtils.createTempFileOnlyStreamCache())) {
+            Files.createDirectories(dir);
+            PDFRenderer renderer = new PDFRenderer(document);
+            renderer.setSubsamplingAllowed(true);
+
+            int pages = Math.min(maxPages, document.getNumberOfPages());
+            for (int i = 0; i < pages; i++) {
+                PDRectangle box = document.getPage(i).getCropBox();
+                // scale 1.0 = 72 dpi, i.e. one pixel per PDF point
+                float scale = box.getWidth() > 0 ? targetWidth / box.getWidth() : 1f;
+                BufferedImage image = renderer.renderImage(i, scale, ImageType.RGB);
+
+                Path tmp = Files.createTempFile(dir, "page-", ".tmp");
+                ImageIO.write(image, "png", tmp.toFile());
+                Files.move(tmp, dir.resolve(pageFileName(i + 1)), StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.writeString(dir.resolve(COMPLETE_MARKER), String.valueOf(pages));
+
+            log.info("Rendered {} preview pages for document {} in {} ms",
+                    pages, contentHash, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Preview rendering failed for document {}: {}", contentHash, e.getMessage(), e);
+        } finally {
+            inFlight.remove(contentHash);
+        }
+    }
+
+    public Path artifactRoot() {
+        return Paths.get(previewPath).toAbsolutePath().normalize();
+    }
+
+    private void scheduleRender(String contentHash, Path source) {
+        if (inFlight.contains(contentHash)) {
+            return;
+        }
+        renderExecutor.execute(() -> render(contentHash, source));
+    }
+
+    /**
+     * Documents stored before hashing existed: hash the file, persist it, then render
+     */
+    private void scheduleBackfill(SyllabusDocumentRef ref) {
+        renderExecutor.execute(() -> {
+            Path source = Paths.get(ref.getFilePath());
+            try {
+                String hash = HashUtils.sha256Hex(Files.newInputStream(source));
+                transactionTemplate.executeWithoutResult(status ->
+                        syllabusRepository.updatePdfContentHash(ref.getSyllabusId(), ref.getFilePath(), hash));
+                render(hash, source);
+            } catch (Exception e) {
+                log.warn("Preview backfill failed for syllabus {}: {}", ref.getSyllabusId(), e.getMessage());
+            }
+        });
+    }
+
+    private Path artifactDir(String contentHash) {
+        return artifactRoot().resolve(contentHash);
+    }
+
+    private static String pageFileName(int pageNumber) {
+        return "page-" + pageNumber + ".png";
+    }
+
+    private static boolean isPdf(String fileName, String filePath) {
+        String name = fileName != null ? fileName : filePath;
+        return name != null && name.toLowerCase().endsWith(".pdf");
+    }
+}
@@ -0,0 +1,323 @@
+package com.smd.core.service;
+
+import com.smd.core.document.SyllabusPageDocument;
+import com.smd.core.entity.Syllabus;
+import com.smd.core.entity.SyllabusContentPage;
+import com.smd.core.event.SyllabusDocumentDeletedEvent;
+import com.smd.core.event.SyllabusDocumentUploadedEvent;
+import com.smd.core.repository.SyllabusContentPageRepository;
+import com.smd.core.repository.SyllabusPageSearchRepository;
+import com.smd.core.repository.SyllabusRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageRelationshipCollection;
+import org.apache.poi.openxml4j.opc.PackageRelationshipTypes;
+import org.apache.poi.util.XMLHelper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Asynchronous text extraction for uploaded syllabus documents.
+ *
+ * Runs on the bounded "documentExtractionExecutor" after the upload commits, reads the
+ * document page by page (PDFBox with a temp-file cache, StAX over the DOCX main part) and flushes pages
+ * in small batches to syllabus_content_page and to the "syllabus_pages" search index.
+ *
+ * A whole run (delete old pages, insert new ones) is one transaction holding a per-syllabus advisory lock,
+ * so overlapping uploads of the same syllabus rebuild its pages one after the other.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentTextExtractionService {
+
+    private final SyllabusRepository syllabusRepository;
+    private final SyllabusContentPageRepository contentPageRepository;
+    private final SyllabusPageSearchRepository pageSearchRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // Flushed pages are detached so a long document does not pile up in the persistence context
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // First key of the two-key advisory lock, the second one is the syllabus id hash
+    private static final int EXTRACTION_LOCK_NAMESPACE = 0x534d4458;
+
+    // Secure defaults (no DTD / external entities)
+    private static final XMLInputFactory XML_INPUT = XMLHelper.newXMLInputFactory();
+
+    @Value("${document.extraction.flush-pages:10}")
+    private int flushPages;
+
+    // DOCX has no fixed pages, text is cut into chunks of roughly this many characters
+    @Value("${document.extraction.docx-page-chars:3000}")
+    private int docxPageChars;
+
+    @Async("documentExtractionExecutor")
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDocumentUploaded(SyllabusDocumentUploadedEvent event) {
+        extract(event.syllabusId(), event.filePath(), event.fileName());
+    }
+
+    @Async("documentExtractionExecutor")
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDocumentDeleted(SyllabusDocumentDeletedEvent event) {
+        clearExtractedText(event.syllabusId());
+    }
+
+    /**
+     * Extract the document text of a syllabus and (re)build its page index
+     */
+    public void extract(Long syllabusId, String filePath, String fileName) {
+        File file = new File(filePath);
+        if (!file.isFile()) {
+            log.warn("Text extraction skipped, file not found for syllabus {}: {}", syllabusId, filePath);
+            return;
+        }
+
+        String name = (fileName != null ? fileName : filePath).toLowerCase();
+        long start = System.currentTimeMillis();
+        PageSink sink = new PageSink(syllabusId);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                lockAndClear(syllabusId);
+                try {
+                    if (name.endsWith(".pdf")) {
+                        extractPdf(file, sink);
+                    } else if (name.endsWith(".docx")) {
+                        extractDocx(file, sink);
+                    } else {
+                        // The old document's pages are still removed
+                        log.info("Text extraction not supported for {} (syllabus {})", fileName, syllabusId);
+                        return;
+                    }
+                } catch (Exception e) {
+                    throw new ExtractionFailedException(e);
+                }
+                sink.flush();
+            });
+            log.info("Extracted {} pages ({} chars) for syllabus {} in {} ms",
+                    sink.pageCount, sink.offset, syllabusId, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            Throwable cause = e instanceof ExtractionFailedException ? e.getCause() : e;
+            log.error("Text extraction failed for syllabus {}: {}", syllabusId, cause.getMessage(), cause);
+        }
+    }
+
+    private void extractPdf(File file, PageSink sink) throws Exception {
+        // Temp-file stream cache keeps the parsed document off the heap
+        try (PDDocument document = Loader.loadPDF(file, IOUtils.createTempFileOnlyStreamCache())) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            int pages = document.getNumberOfPages();
+            for (int page = 1; page <= pages; page++) {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                sink.accept(stripper.getText(document));
+            }
+        }
+    }
+
+    /**
+     * Reads word/document.xml as a StAX event stream: only the current page is held in memory, never the DOM.
+     * Text runs, tabs and breaks are kept; table cells are separated by tabs and rows by newlines.
+     */
+    private void extractDocx(File file, PageSink sink) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ);
+             InputStream xml = mainDocumentPart(pkg).getInputStream()) {
+            XMLStreamReader reader = XML_INPUT.createXMLStreamReader(xml);
+            try {
+                StringBuilder page = new StringBuilder();
+                int tableDepth = 0;
+                boolean inRun = false;
+                boolean inText = false;
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.CHARACTERS) {
+                        if (inText) {
+                            page.append(reader.getText());
+                        }
+                        continue;
+                    }
+                    if (event != XMLStreamConstants.START_ELEMENT && event != XMLStreamConstants.END_ELEMENT
+                            || !isWordElement(reader)) {
+                        continue;
+                    }
+                    boolean start = event == XMLStreamConstants.START_ELEMENT;
+                    switch (reader.getLocalName()) {
+                        case "tbl" -> tableDepth += start ? 1 : -1;
+                        case "r" -> inRun = start;
+                        case "t" -> inText = start && inRun;
+                        case "tab" -> {
+                            // w:tab also appears in paragraph properties (tab stops), only runs carry text
+                            if (start && inRun) {
+                                page.append('\t');
+                            }
+                        }
+                        case "br", "cr" -> {
+                            if (start && inRun) {
+                                page.append('\n');
+                            }
+                        }
+                        case "tc" -> {
+                            if (!start) {
+                                page.append('\t');
+                            }
+                        }
+                        case "p" -> {
+                            if (!start && tableDepth > 0) {
+                                page.append(' ');
+                            } else if (!start) {
+                                page.append('\n');
+                                cutPage(page, sink);
+                            }
+                        }
+                        case "tr" -> {
+                            if (!start) {
+                                page.append('\n');
+                                if (tableDepth == 1) {
+                                    cutPage(page, sink);
+                                }
+                            }
+                        }
+                        default -> {
+                        }
+                    }
+                }
+                if (!page.isEmpty()) {
+                    sink.accept(page.toString());
+                }
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    private void cutPage(StringBuilder page, PageSink sink) {
+        if (page.length() >= docxPageChars) {
+            sink.accept(page.toString());
+            page.setLength(0);
+        }
+    }
+
+    // Transitional and Strict OOXML use different relationship types for word/document.xml
+    private static PackagePart mainDocumentPart(OPCPackage pkg) throws Exception {
+        PackageRelationshipCollection relationships = pkg.getRelationshipsByType(PackageRelationshipTypes.CORE_DOCUMENT);
+        if (relationships.isEmpty()) {
+            relationships = pkg.getRelationshipsByType(PackageRelationshipTypes.STRICT_CORE_DOCUMENT);
+        }
+        if (relationships.isEmpty()) {
+            throw new IOException("Not a Word document: no main document part");
+        }
+        return pkg.getPart(relationships.getRelationship(0));
+    }
+
+    private static boolean isWordElement(XMLStreamReader reader) {
+        String namespace = reader.getNamespaceURI();
+        return namespace != null && namespace.endsWith("/wordprocessingml/2006/main")
+                || "http://purl.oclc.org/ooxml/wordprocessingml/main".equals(namespace);
+    }
+
+    private void clearExtractedText(Long syllabusId) {
+        transactionTemplate.executeWithoutResult(status -> lockAndClear(syllabusId));
+    }
+
+    // Caller's transaction: the lock is held until it commits
+    private void lockAndClear(Long syllabusId) {
+        contentPageRepository.lockSyllabus(EXTRACTION_LOCK_NAMESPACE, syllabusId);
+        contentPageRepository.deleteBySyllabusId(syllabusId);
+        try {
+            pageSearchRepository.deleteBySyllabusId(syllabusId);
+        } catch (Exception e) {
+            log.warn("Could not remove indexed pages of syllabus {}: {}", syllabusId, e.getMessage());
+        }
+    }
+
+    private static class ExtractionFailedException extends RuntimeException {
+        ExtractionFailedException(Exception cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * Buffers extracted pages and pushes them to PostgreSQL and Elasticsearch every few pages
+     */
+    private class PageSink {
+        private final Long syllabusId;
+        private final List<SyllabusContentPage> buffer = new ArrayList<>();
+        private int pageCount;
+        private int offset;
+
+        PageSink(Long syllabusId) {
+            this.syllabusId = syllabusId;
+        }
+
+        void accept(String text) {
+            String content = text != null ? text.strip() : "";
+            pageCount++;
+            if (!content.isEmpty()) {
+                buffer.add(SyllabusContentPage.builder()
+                        .pageNumber(pageCount)
+                        .startOffset(offset)
+                        .content(content)
+                        .extractedAt(LocalDateTime.now())
+                        .build());
+                offset += content.length() + 1;
+            }
+            if (buffer.size() >= flushPages) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (buffer.isEmpty()) {
+                return;
+            }
+            List<SyllabusContentPage> pages = new ArrayList<>(buffer);
+            buffer.clear();
+
+            // Runs inside the extraction transaction
+            Syllabus syllabus = syllabusRepository.getReferenceById(syllabusId);
+            pages.forEach(p -> p.setSyllabus(syllabus));
+            contentPageRepository.saveAll(pages);
+            entityManager.flush();
+            entityManager.clear();
+
+            try {
+                pageSearchRepository.saveAll(pages.stream()
+                        .map(p -> SyllabusPageDocument.builder()
+                                .id(SyllabusPageDocument.idOf(syllabusId, p.getPageNumber()))
+                                .syllabusId(syllabusId)
+                                .pageNumber(p.getPageNumber())
+                                .startOffset(p.getStartOffset())
+                                .content(p.getContent())
+                                .build())
+                        .toList());
+            } catch (Exception e) {
+                // PostgreSQL keeps the text, the index can be rebuilt by re-uploading/reindexing
+                log.warn("Could not index pages of syllabus {}: {}", syllabusId, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.smd.core.service;
+
+import com.smd.core.dto.IdempotentResponse;
+import com.smd.core.exception.ConflictException;
+import com.smd.core.exception.InvalidDataException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency-Key cho các request thay đổi trạng thái (lưu trong Redis với TTL).
+ *
+ * Request đầu tiên giữ key bằng SET NX trong lúc chạy; khi thành công response được lưu lại và
+ * các lần retry cùng key nhận lại đúng response đó mà không chạy transaction lần nữa. Request lỗi
+ * không được lưu (client retry sẽ chạy lại). Khi Redis không dùng được, request chạy bình thường.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    private static final String KEY_PREFIX = "idempotency:";
+    private static final String IN_PROGRESS = "IN_PROGRESS";
+    private static final int MAX_KEY_LENGTH = 128;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    @Value("${idempotency.ttl:PT24H}")
+    private Duration ttl;
+
+    // Giữ key tối đa chừng này khi request đầu tiên chết giữa chừng
+    @Value("${idempotency.lock-ttl:PT1M}")
+    private Duration lockTtl;
+
+    public IdempotencyService(RedisTemplate<String, Object> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    public record Result<T>(T body, boolean replayed) {
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> Result<T> execute(String scope, String clientKey, String fingerprint, Supplier<T> action) {
+        if (clientKey == null || clientKey.isBlank()) {
+            return new Result<>(action.get(), false);
+        }
+        if (clientKey.length() > MAX_KEY_LENGTH) {
+            throw new InvalidDataException("Idempotency-Key must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String key = KEY_PREFIX + scope + ":" + clientKey;
+        Object existing;
+        try {
+            Boolean acquired = redisTemplate.opsForValue().setIfAbsent(key, IN_PROGRESS, lockTtl);
+            existing = Boolean.TRUE.equals(acquired) ? null : redisTemplate.opsForValue().get(key);
+            if (!Boolean.TRUE.equals(acquired) && existing == null) {
+                // Key vừa hết hạn / bị xóa giữa hai lệnh
+                throw new ConflictException("A request with this Idempotency-Key is being processed, retry later");
+            }
+        } catch (ConflictException e) {
+            throw e;
+        } catch (Exception e) {
+            log.warn("Idempotency store unavailable, executing without it: {}", e.getMessage());
+            return new Result<>(action.get(), false);
+        }
+
+        if (existing != null) {
+            if (!(existing instanceof IdempotentResponse stored)) {
+                throw new ConflictException("A request with this Idempotency-Key is being processed, retry later");
+            }
+            if (!stored.getFingerprint().equals(fingerprint)) {
+                throw new InvalidDataException("Idempotency-Key was already used for a different request");
+            }
+            log.info("Replaying stored response for idempotency key {}", key);
+            return new Result<>((T) stored.getBody(), true);
+        }
+
+        T result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            release(key);
+            throw e;
+        }
+
+        try {
+            redisTemplate.opsForValue().set(key, new IdempotentResponse(fingerprint, result), ttl);
+        } catch (Exception e) {
+            log.warn("Could not store response for idempotency key {}: {}", key, e.getMessage());
+        }
+        return new Result<>(result, false);
+    }
+
+    private void release(String key) {
+        try {
+            redisTemplate.delete(key);
+        } catch (Exception e) {
+            log.warn("Could not release idempotency key {}: {}", key, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.smd.core.service;
+
+import com.smd.core.entity.Notification;
+import com.smd.core.entity.Notification.NotificationType;
+import com.smd.core.repository.NotificationDigestJdbcRepository;
+import com.smd.core.repository.NotificationJdbcRepository;
+import com.smd.core.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tầng gộp notification trước khi ghi: user bật digest thì sự kiện vào bản tin hằng ngày; còn lại,
+ * sự kiện cùng (recipient, syllabus, type) trong cửa sổ coalesce-window được gộp vào dòng chưa đọc
+ * đã có (group_count + 1) thay vì thêm dòng mới.
+ */
+@Component
+public class NotificationCoalescer {
+
+    private final NotificationJdbcRepository notificationJdbcRepository;
+    private final NotificationDigestJdbcRepository digestRepository;
+    private final UserRepository userRepository;
+
+    private final Counter mergedCounter;
+    private final Counter digestedCounter;
+
+    @Value("${notification.coalesce.types:COMMENT_ADDED}")
+    private Set<NotificationType> coalesceTypes;
+
+    @Value("${notification.coalesce.window:PT30M}")
+    private Duration window;
+
+    @Value("${notification.digest.types:COMMENT_ADDED}")
+    private Set<NotificationType> digestTypes;
+
+    public NotificationCoalescer(NotificationJdbcRepository notificationJdbcRepository,
+                                 NotificationDigestJdbcRepository digestRepository,
+                                 UserRepository userRepository,
+                                 MeterRegistry meterRegistry) {
+        this.notificationJdbcRepository = notificationJdbcRepository;
+        this.digestRepository = digestRepository;
+        this.userRepository = userRepository;
+        this.mergedCounter = Counter.builder("smd.notification.coalesced")
+                .description("Notifications merged into an existing unread notification")
+                .register(meterRegistry);
+        this.digestedCounter = Counter.builder("smd.notification.digested")
+                .description("Notifications deferred to a daily digest")
+                .register(meterRegistry);
+    }
+
+    /**
+     * true = notification đã được gộp (vào digest hoặc dòng có sẵn), caller không insert nữa
+     */
+    public boolean absorb(Notification notification) {
+        return absorbAll(List.of(notification)).isEmpty();
+    }
+
+    /**
+     * Gộp những notification gộp được; trả về các notification caller vẫn phải insert.
+     * Cờ digest của người nhận đọc bằng một query theo id (không cần User đã load).
+     */
+    public List<Notification> absorbAll(List<Notification> notifications) {
+        Set<Long> digestUsers = digestRecipients(notifications);
+        LocalDateTime now = LocalDateTime.now();
+        List<Notification> remaining = new ArrayList<>(notifications.size());
+
+        for (Notification notification : notifications) {
+            if (notification.getRecipient() == null || notification.getSyllabus() == null) {
+                remaining.add(notification);
+                continue;
+            }
+            NotificationType type = notification.getType();
+            Long recipientId = notification.getRecipient().getUserId();
+
+            if (digestTypes.contains(type) && digestUsers.contains(recipientId)) {
+                digestRepository.add(recipientId, notification.getSyllabus().getSyllabusId(),
+                        type, notification.getTriggeredBy(), now);
+                digestedCounter.increment();
+            } else if (coalesceTypes.contains(type) && window.isPositive()
+                    && notificationJdbcRepository.mergeInto(notification, now.minus(window))) {
+                mergedCounter.increment();
+            } else {
+                remaining.add(notification);
+            }
+        }
+        return remaining;
+    }
+
+    private Set<Long> digestRecipients(List<Notification> notifications) {
+        Set<Long> candidates = new HashSet<>();
+        for (Notification notification : notifications) {
+            if (digestTypes.contains(notification.getType()) && notification.getRecipient() != null) {
+                candidates.add(notification.getRecipient().getUserId());
+            }
+        }
+        return candidates.isEmpty() ? Set.of() : new HashSet<>(userRepository.findDigestUserIds(candidates));
+    }
+}
@@ -0,0 +1,58 @@
+package com.smd.core.service;
+
+import com.smd.core.repository.NotificationDigestJdbcRepository;
+import com.smd.core.repository.NotificationDigestJdbcRepository.DigestEntry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Gửi bản tin hằng ngày cho user bật digest: lấy và xóa các entry đang chờ, tạo một notification
+ * mỗi user trong cùng transaction (lỗi thì entry giữ nguyên cho lần sau). Chạy dưới lease Redis.
+ */
+@Service
+@Slf4j
+public class NotificationDigestService {
+
+    private static final String LEASE = "notification-digest";
+
+    private final NotificationDigestJdbcRepository digestRepository;
+    private final NotificationService notificationService;
+    private final TransactionTemplate transactionTemplate;
+    private final DistributedLease lease;
+
+    @Value("${notification.digest.lease-ttl:PT10M}")
+    private Duration leaseTtl;
+
+    public NotificationDigestService(NotificationDigestJdbcRepository digestRepository,
+                                     NotificationService notificationService,
+                                     TransactionTemplate transactionTemplate,
+                                     DistributedLease lease) {
+        this.digestRepository = digestRepository;
+        this.notificationService = notificationService;
+        this.transactionTemplate = transactionTemplate;
+        this.lease = lease;
+    }
+
+    @Scheduled(cron = "${notification.digest.cron:0 0 7 * * *}")
+    public void sendDigests() {
+        lease.runExclusively(LEASE, leaseTtl, () -> {
+            try {
+                Integer sent = transactionTemplate.execute(status -> {
+                    List<DigestEntry> entries = digestRepository.drain();
+                    return notificationService.notifyDigests(entries);
+                });
+                if (sent != null && sent > 0) {
+                    log.info("Sent {} daily notification digests", sent);
+                }
+            } catch (Exception e) {
+                log.error("Daily notification digest failed: {}", e.getMessage(), e);
+            }
+        });
+    }
+}
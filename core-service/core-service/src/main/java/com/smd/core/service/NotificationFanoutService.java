@@ -0,0 +1,232 @@
+package com.smd.core.service;
+
+import com.smd.core.entity.Notification;
+import com.smd.core.entity.Syllabus;
+import com.smd.core.event.NotificationsCreatedEvent;
+import com.smd.core.event.SyllabusPublishedEvent;
+import com.smd.core.repository.CourseSubscriptionRepository;
+import com.smd.core.repository.NotificationFanoutJobJdbcRepository;
+import com.smd.core.repository.NotificationFanoutJobJdbcRepository.DeferredFanout;
+import com.smd.core.repository.NotificationJdbcRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Fan-out notification tới follower của môn học, chạy sau commit trên executor riêng.
+ *
+ * Id người nhận được đọc theo trang keyset (course_id, user_id), mỗi trang insert bằng một JDBC batch trong
+ * transaction riêng; trang lỗi được thử lại với backoff. Transaction duyệt của Principal không còn chờ fan-out.
+ *
+ * Executor đầy: sự kiện được ghi vào notification_fanout_job (cùng lúc, transaction riêng) thay vì chạy trên
+ * thread publish; job được claim và chạy lại định kỳ, tiến độ keyset lưu theo từng batch.
+ */
+@Service
+@Slf4j
+public class NotificationFanoutService {
+
+    private final CourseSubscriptionRepository subscriptionRepository;
+    private final NotificationJdbcRepository notificationJdbcRepository;
+    private final NotificationFanoutJobJdbcRepository jobRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate requiresNew;
+    private final ThreadPoolTaskExecutor fanoutExecutor;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Timer fanoutTimer;
+    private final Counter recipientsCounter;
+    private final Counter failedCounter;
+    private final Counter deferredCounter;
+
+    @Value("${notification.fanout.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${notification.fanout.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${notification.fanout.retry-backoff:PT1S}")
+    private Duration retryBackoff;
+
+    // Job hoãn được claim quá thời gian này mà không có tiến độ: node chạy nó coi như đã chết
+    @Value("${notification.fanout.deferred-claim-timeout:PT10M}")
+    private Duration claimTimeout;
+
+    @Value("${notification.fanout.deferred-batch:10}")
+    private int deferredBatch;
+
+    public NotificationFanoutService(CourseSubscriptionRepository subscriptionRepository,
+                                     NotificationJdbcRepository notificationJdbcRepository,
+                                     NotificationFanoutJobJdbcRepository jobRepository,
+                                     TransactionTemplate transactionTemplate,
+                                     PlatformTransactionManager transactionManager,
+                                     @Qualifier("notificationFanoutExecutor") ThreadPoolTaskExecutor fanoutExecutor,
+                                     ApplicationEventPublisher eventPublisher,
+                                     MeterRegistry meterRegistry) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.notificationJdbcRepository = notificationJdbcRepository;
+        this.jobRepository = jobRepository;
+        this.transactionTemplate = transactionTemplate;
+        // Listener chạy sau commit: ghi job hoãn trong transaction riêng, không tham gia transaction đã xong
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.fanoutExecutor = fanoutExecutor;
+        this.eventPublisher = eventPublisher;
+        this.fanoutTimer = Timer.builder("smd.notification.fanout")
+                .description("Time from syllabus publication until every follower notification is stored")
+                .register(meterRegistry);
+        this.recipientsCounter = Counter.builder("smd.notification.fanout.recipients")
+                .description("Follower notifications created by fan-out")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("smd.notification.fanout.failed")
+                .description("Follower notifications dropped after all retries")
+                .register(meterRegistry);
+        this.deferredCounter = Counter.builder("smd.notification.fanout.deferred")
+                .description("Fan-outs stored in notification_fanout_job because the fan-out executor was full")
+                .register(meterRegistry);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSyllabusPublished(SyllabusPublishedEvent event) {
+        try {
+            fanoutExecutor.execute(() -> fanOut(event, null, 0L));
+        } catch (TaskRejectedException e) {
+            requiresNew.executeWithoutResult(status -> jobRepository.insert(event));
+            deferredCounter.increment();
+            log.warn("Fan-out executor is saturated, deferred fan-out for syllabus {} ({})",
+                    event.syllabusId(), event.courseCode());
+        }
+    }
+
+    /**
+     * Chạy các fan-out đã hoãn khi executor còn chỗ; job không nhận được thì trả claim cho lần sau
+     */
+    @Scheduled(fixedDelayString = "${notification.fanout.deferred-interval:PT30S}")
+    public void runDeferred() {
+        LocalDateTime now = LocalDateTime.now();
+        List<DeferredFanout> jobs = transactionTemplate.execute(
+                status -> jobRepository.claim(now, now.minus(claimTimeout), deferredBatch));
+        if (jobs == null) {
+            return;
+        }
+        for (DeferredFanout job : jobs) {
+            try {
+                fanoutExecutor.execute(() -> fanOut(job.event(), job.jobId(), job.afterUserId()));
+            } catch (TaskRejectedException e) {
+                jobRepository.release(job.jobId());
+            }
+        }
+    }
+
+    /**
+     * @param jobId job hoãn đang chạy (null khi chạy trực tiếp từ sự kiện): tiến độ được ghi theo batch,
+     *              batch lỗi hết lượt thử thì dừng và để job chạy lại sau thay vì bỏ người nhận
+     */
+    private void fanOut(SyllabusPublishedEvent event, Long jobId, long startAfterUserId) {
+        Notification template = Notification.builder()
+                .syllabus(Syllabus.builder().syllabusId(event.syllabusId()).build())
+                .type(Notification.NotificationType.SYLLABUS_PUBLISHED)
+                .title("Course Syllabus Updated")
+                .message(String.format("New syllabus version v%d for course %s (%s) has been published.",
+                        event.versionNo(), event.courseName(), event.courseCode()))
+                .actionUrl("/api/syllabuses/" + event.syllabusId())
+                .triggeredBy(event.publishedBy())
+                .createdAt(LocalDateTime.now())
+                .build();
+
+        long afterUserId = startAfterUserId;
+        int delivered = 0;
+        int failed = 0;
+        boolean completed = true;
+        while (true) {
+            List<Long> recipientIds = subscriptionRepository.findFollowerIdsAfter(
+                    event.courseId(), afterUserId, PageRequest.of(0, chunkSize));
+            if (recipientIds.isEmpty()) {
+                break;
+            }
+            long lastUserId = recipientIds.get(recipientIds.size() - 1);
+
+            if (insertWithRetry(recipientIds, template, event.syllabusId(), jobId, lastUserId)) {
+                delivered += recipientIds.size();
+                eventPublisher.publishEvent(NotificationsCreatedEvent.of(recipientIds, Notification.NotificationType.SYLLABUS_PUBLISHED));
+            } else if (jobId != null) {
+                completed = false;
+                break;
+            } else {
+                failed += recipientIds.size();
+            }
+            afterUserId = lastUserId;
+            if (recipientIds.size() < chunkSize) {
+                break;
+            }
+        }
+        if (jobId != null) {
+            if (completed) {
+                jobRepository.delete(jobId);
+            } else {
+                jobRepository.release(jobId);
+            }
+        }
+
+        recipientsCounter.increment(delivered);
+        failedCounter.increment(failed);
+        fanoutTimer.record(Duration.between(event.publishedAt(), Instant.now()));
+        if (delivered + failed > 0) {
+            log.info("Fan-out for syllabus {} ({}): {} follower notifications, {} failed",
+                    event.syllabusId(), event.courseCode(), delivered, failed);
+        }
+    }
+
+    private boolean insertWithRetry(List<Long> recipientIds, Notification template, Long syllabusId,
+                                    Long jobId, long lastUserId) {
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    notificationJdbcRepository.insertForRecipients(recipientIds, template);
+                    if (jobId != null) {
+                        jobRepository.advance(jobId, lastUserId);
+                    }
+                });
+                return true;
+            } catch (Exception e) {
+                log.warn("Fan-out chunk for syllabus {} failed (attempt {}/{}): {}",
+                        syllabusId, attempt, maxAttempts, e.getMessage());
+                if (attempt < maxAttempts && !sleep(retryBackoff.multipliedBy(attempt))) {
+                    break;
+                }
+            }
+        }
+        if (jobId == null) {
+            log.error("Dropping {} follower notifications for syllabus {} after {} attempts",
+                    recipientIds.size(), syllabusId, maxAttempts);
+        }
+        return false;
+    }
+
+    private static boolean sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
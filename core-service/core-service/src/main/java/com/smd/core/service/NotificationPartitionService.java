@@ -0,0 +1,138 @@
+package com.smd.core.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Quản lý partition theo tháng của bảng notifications (notifications_pYYYYMM).
+ *
+ * Job hằng ngày tạo trước partition cho các tháng tới (mọi node, CREATE ... IF NOT EXISTS) và retention
+ * (dưới lease Redis, chỉ một node chạy) bằng cách DETACH + DROP cả partition cũ: không DELETE từng dòng,
+ * không bloat/vacuum.
+ */
+@Service
+@Slf4j
+public class NotificationPartitionService {
+
+    private static final String TABLE = "notifications";
+    private static final String PARTITION_PREFIX = "notifications_p";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final String LEASE = "notification-partitions";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DistributedLease lease;
+
+    @Value("${notification.partition.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${notification.partition.retention-months:6}")
+    private int retentionMonths;
+
+    @Value("${notification.partition.lease-ttl:PT30M}")
+    private Duration leaseTtl;
+
+    public NotificationPartitionService(JdbcTemplate jdbcTemplate, DistributedLease lease) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.lease = lease;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${notification.partition.cron:0 15 3 * * *}")
+    public void maintain() {
+        // Không cần lease: idempotent, và phải chạy được cả khi Redis lỗi (hết partition thì mọi insert đều lỗi)
+        try {
+            ensurePartitions();
+        } catch (Exception e) {
+            log.error("Could not create notification partitions: {}", e.getMessage(), e);
+        }
+        lease.runExclusively(LEASE, leaseTtl, () -> {
+            try {
+                dropPartitionsBefore(YearMonth.now().minusMonths(retentionMonths));
+            } catch (Exception e) {
+                log.error("Notification partition retention failed: {}", e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Tạo partition cho tháng hiện tại và monthsAhead tháng tiếp theo (đã có thì bỏ qua)
+     */
+    public int ensurePartitions() {
+        Set<String> existing = new HashSet<>(partitions());
+        int created = 0;
+        YearMonth month = YearMonth.now();
+        for (int i = 0; i <= monthsAhead; i++, month = month.plusMonths(1)) {
+            String name = PARTITION_PREFIX + month.format(SUFFIX);
+            if (!existing.contains(name)) {
+                try {
+                    jdbcTemplate.execute(String.format(
+                            "CREATE TABLE IF NOT EXISTS %s PARTITION OF %s FOR VALUES FROM ('%s') TO ('%s')",
+                            name, TABLE, month.atDay(1), month.plusMonths(1).atDay(1)));
+                    log.info("Created notification partition {}", name);
+                    created++;
+                } catch (Exception e) {
+                    // Node khác vừa tạo cùng partition (IF NOT EXISTS không chống được race)
+                    if (!partitions().contains(name)) {
+                        throw e;
+                    }
+                }
+            }
+        }
+        return created;
+    }
+
+    /**
+     * Detach rồi drop mọi partition của tháng trước {@code firstKept}; trả về số partition đã xóa
+     */
+    public int dropPartitionsBefore(YearMonth firstKept) {
+        List<String> expired = new ArrayList<>();
+        for (String name : partitions()) {
+            YearMonth month = monthOf(name);
+            if (month != null && month.isBefore(firstKept)) {
+                expired.add(name);
+            }
+        }
+
+        for (String name : expired) {
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + name);
+            jdbcTemplate.execute("DROP TABLE " + name);
+            log.info("Dropped notification partition {}", name);
+        }
+        return expired.size();
+    }
+
+    private List<String> partitions() {
+        return jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "WHERE i.inhparent = to_regclass(?)", String.class, TABLE);
+    }
+
+    private static YearMonth monthOf(String partitionName) {
+        if (!partitionName.startsWith(PARTITION_PREFIX)) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(partitionName.substring(PARTITION_PREFIX.length()), SUFFIX);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.smd.core.service;
+
+import com.smd.core.entity.Notification.NotificationType;
+import com.smd.core.repository.NotificationJdbcRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Đánh dấu đã đọc theo lô: một UPDATE giới hạn theo user_id cho nhiều id.
+ *
+ * Chế độ write-behind (notification.read.write-behind=true): id được ghi vào set Redis của user và trả lời ngay;
+ * bộ đếm unread trừ ngay lúc nhận, chỉ cho các id mới (chưa chờ trong Redis) và còn chưa đọc trong DB, nên
+ * client gửi trùng không làm lệch. Job flush mỗi vài giây lấy các user có receipt chờ (SPOP), chuyển set chờ
+ * sang set processing của user bằng script rồi ghi một UPDATE; set processing chỉ bị xóa sau khi commit.
+ * Ghi DB lỗi hoặc node chết giữa chừng: id vẫn nằm trong set processing, user được flush lại sau
+ * (UPDATE chỉ đổi dòng chưa đọc nên chạy lại không sao).
+ */
+@Component
+@Slf4j
+public class NotificationReadReceipts {
+
+    private static final String DIRTY_KEY = "notifications:read-pending:users";
+    private static final String PENDING_PREFIX = "notifications:read-pending:";
+    private static final String PROCESSING_PREFIX = "notifications:read-processing:";
+    // ZSET user -> thời điểm claim set processing (ms)
+    private static final String PROCESSING_USERS_KEY = "notifications:read-processing:users";
+
+    // KEYS[1] = pending, KEYS[2] = processing, KEYS[3] = dirty users; ARGV[1] = userId, sau đó các id.
+    // Trả về các id mới được nhận (không có sẵn trong pending / processing)
+    private static final RedisScript<List> ACCEPT = new DefaultRedisScript<>(
+            "local added = {} " +
+            "for i = 2, #ARGV do " +
+            "if redis.call('SISMEMBER', KEYS[2], ARGV[i]) == 0 and redis.call('SADD', KEYS[1], ARGV[i]) == 1 then " +
+            "added[#added + 1] = ARGV[i] end " +
+            "end " +
+            "redis.call('SADD', KEYS[3], ARGV[1]) return added", List.class);
+
+    // KEYS[1] = pending, KEYS[2] = processing, KEYS[3] = processing users; ARGV[1] = userId, ARGV[2] = now (ms)
+    private static final RedisScript<List> CLAIM = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then " +
+            "redis.call('SUNIONSTORE', KEYS[2], KEYS[2], KEYS[1]) redis.call('DEL', KEYS[1]) end " +
+            "local ids = redis.call('SMEMBERS', KEYS[2]) " +
+            "if #ids > 0 then redis.call('ZADD', KEYS[3], ARGV[2], ARGV[1]) end " +
+            "return ids", List.class);
+
+    // KEYS[1] = processing, KEYS[2] = processing users; ARGV[1] = userId
+    private static final RedisScript<Long> COMPLETE = new DefaultRedisScript<>(
+            "redis.call('ZREM', KEYS[2], ARGV[1]) return redis.call('DEL', KEYS[1])", Long.class);
+
+    // KEYS[1] = processing users, KEYS[2] = dirty users; ARGV[1] = claim cũ hơn mốc này (ms) coi như node đã chết
+    private static final RedisScript<Long> RECOVER = new DefaultRedisScript<>(
+            "local users = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1]) " +
+            "for _, user in ipairs(users) do redis.call('SADD', KEYS[2], user) redis.call('ZREM', KEYS[1], user) end " +
+            "return #users", Long.class);
+
+    // Tham số / kết quả script dạng chuỗi thuần (không qua JSON serializer của template)
+    private static final RedisSerializer<String> STRINGS = StringRedisSerializer.UTF_8;
+    private static final RedisSerializer<Long> LONGS = new GenericToStringSerializer<>(Long.class);
+
+    private final NotificationJdbcRepository notificationJdbcRepository;
+    private final NotificationUnreadCounter unreadCounter;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter flushedCounter;
+
+    @Value("${notification.read.write-behind:false}")
+    private boolean writeBehind;
+
+    @Value("${notification.read.flush-batch-users:200}")
+    private int flushBatchUsers;
+
+    @Value("${notification.read.processing-timeout:PT5M}")
+    private Duration processingTimeout;
+
+    public NotificationReadReceipts(NotificationJdbcRepository notificationJdbcRepository,
+                                    NotificationUnreadCounter unreadCounter,
+                                    RedisTemplate<String, Object> redisTemplate,
+                                    TransactionTemplate transactionTemplate,
+                                    MeterRegistry meterRegistry) {
+        this.notificationJdbcRepository = notificationJdbcRepository;
+        this.unreadCounter = unreadCounter;
+        this.redisTemplate = redisTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.flushedCounter = Counter.builder("smd.notification.read.flushed")
+                .description("Notifications marked as read by the write-behind flush")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Đánh dấu đã đọc; trả về số notification đã chuyển sang đã đọc, hoặc số id đã nhận (write-behind)
+     */
+    public int markRead(Long userId, Collection<Long> notificationIds) {
+        Set<Long> ids = new HashSet<>(notificationIds);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        if (writeBehind) {
+            // Đọc trước khi nhận: id mới nhận chưa có trong pending / processing nên flush chưa thể ghi nó
+            Map<Long, NotificationType> unread = notificationJdbcRepository.findUnreadTypes(userId, ids);
+            List<Long> accepted;
+            try {
+                List<String> args = new ArrayList<>(ids.size() + 1);
+                args.add(String.valueOf(userId));
+                ids.forEach(id -> args.add(String.valueOf(id)));
+                accepted = toIds(executeForList(ACCEPT,
+                        List.of(PENDING_PREFIX + userId, PROCESSING_PREFIX + userId, DIRTY_KEY), args));
+            } catch (Exception e) {
+                log.warn("Could not buffer read receipts for user {}, writing through: {}", userId, e.getMessage());
+                return markReadNow(userId, ids, true);
+            }
+            // Trừ bộ đếm ngay cho id mới nhận; lúc flush không trừ nữa
+            Map<NotificationType, Long> counts = new EnumMap<>(NotificationType.class);
+            for (Long id : accepted) {
+                NotificationType type = unread.get(id);
+                if (type != null) {
+                    counts.merge(type, 1L, Long::sum);
+                }
+            }
+            unreadCounter.markedRead(userId, counts);
+            return ids.size();
+        }
+        return markReadNow(userId, ids, true);
+    }
+
+    /**
+     * Id đã nhận nhưng chưa ghi xuống DB (rỗng khi không bật write-behind)
+     */
+    public Set<Long> pending(Long userId) {
+        if (!writeBehind) {
+            return Set.of();
+        }
+        try {
+            Set<Object> members = redisTemplate.opsForSet().union(PENDING_PREFIX + userId, PROCESSING_PREFIX + userId);
+            return members == null ? Set.of() : new HashSet<>(toIds(members));
+        } catch (Exception e) {
+            return Set.of();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notification.read.flush-interval:PT5S}")
+    public void flush() {
+        if (!writeBehind) {
+            return;
+        }
+        try {
+            // Set processing của node đã chết giữa lúc flush: đưa user lại vào hàng chờ
+            long staleBefore = System.currentTimeMillis() - processingTimeout.toMillis();
+            redisTemplate.execute(RECOVER, STRINGS, LONGS,
+                    List.of(PROCESSING_USERS_KEY, DIRTY_KEY), String.valueOf(staleBefore));
+
+            List<Object> users;
+            do {
+                users = redisTemplate.opsForSet().pop(DIRTY_KEY, flushBatchUsers);
+                if (users == null) {
+                    return;
+                }
+                for (Object user : users) {
+                    Long userId = ((Number) user).longValue();
+                    try {
+                        flushUser(userId);
+                    } catch (Exception e) {
+                        log.warn("Could not flush read receipts for user {}: {}", userId, e.getMessage());
+                        redisTemplate.opsForSet().add(DIRTY_KEY, userId);
+                    }
+                }
+            } while (users.size() == flushBatchUsers);
+        } catch (Exception e) {
+            log.warn("Read receipt flush failed: {}", e.getMessage());
+        }
+    }
+
+    private void flushUser(Long userId) {
+        String processingKey = PROCESSING_PREFIX + userId;
+        List<Long> ids = toIds(executeForList(CLAIM,
+                List.of(PENDING_PREFIX + userId, processingKey, PROCESSING_USERS_KEY),
+                List.of(String.valueOf(userId), String.valueOf(System.currentTimeMillis()))));
+        if (ids.isEmpty()) {
+            return;
+        }
+        try {
+            flushedCounter.increment(markReadNow(userId, ids, false));
+        } catch (Exception e) {
+            // Id vẫn nằm trong set processing: lần flush sau thử lại
+            log.warn("Could not flush {} read receipts for user {}: {}", ids.size(), userId, e.getMessage());
+            redisTemplate.opsForSet().add(DIRTY_KEY, userId);
+            return;
+        }
+        redisTemplate.execute(COMPLETE, STRINGS, LONGS,
+                List.of(processingKey, PROCESSING_USERS_KEY), String.valueOf(userId));
+    }
+
+    /**
+     * @param countNow trừ bộ đếm unread theo số dòng thực sự đổi (ghi thẳng); false khi đã trừ lúc nhận receipt
+     */
+    private int markReadNow(Long userId, Collection<Long> ids, boolean countNow) {
+        Integer updated = transactionTemplate.execute(status -> {
+            List<NotificationType> types = notificationJdbcRepository.markRead(userId, ids, LocalDateTime.now());
+            if (countNow) {
+                Map<NotificationType, Long> counts = new EnumMap<>(NotificationType.class);
+                types.forEach(type -> counts.merge(type, 1L, Long::sum));
+                unreadCounter.markedRead(userId, counts);
+            }
+            return types.size();
+        });
+        return updated != null ? updated : 0;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private List<?> executeForList(RedisScript<List> script, List<String> keys, List<String> args) {
+        return redisTemplate.execute(script, STRINGS, (RedisSerializer) STRINGS, keys, args.toArray());
+    }
+
+    private static List<Long> toIds(Collection<?> values) {
+        if (values == null) {
+            return List.of();
+        }
+        List<Long> ids = new ArrayList<>(values.size());
+        for (Object value : values) {
+            if (value instanceof Number n) {
+                ids.add(n.longValue());
+            } else if (value instanceof String text) {
+                ids.add(Long.valueOf(text));
+            }
+        }
+        return ids;
+    }
+}
@@ -1,24 +1,48 @@
 package com.smd.core.service;
 
+import com.smd.core.dto.NotificationFeedResponse;
+import com.smd.core.dto.NotificationPreferences;
 import com.smd.core.dto.NotificationResponse;
 import com.smd.core.dto.NotificationStats;
 import com.smd.core.entity.Notification;
 import com.smd.core.entity.ReviewComment;
 import com.smd.core.entity.Syllabus;
 import com.smd.core.entity.User;
+import com.smd.core.event.NotificationsCreatedEvent;
+import com.smd.core.event.SyllabusPublishedEvent;
+import com.smd.core.event.WorkflowBatchTransitionedEvent;
+import com.smd.core.exception.InvalidDataException;
 import com.smd.core.exception.ResourceNotFoundException;
-import com.smd.core.repository.CourseSubscriptionRepository;
+import com.smd.core.repository.NotificationDigestJdbcRepository.DigestEntry;
+import com.smd.core.repository.NotificationJdbcRepository;
 import com.smd.core.repository.NotificationRepository;
+import com.smd.core.repository.SyllabusRepository;
 import com.smd.core.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,7 +52,17 @@ public class NotificationService {
     
     private final NotificationRepository notificationRepository;
     private final UserRepository userRepository;
-    private final CourseSubscriptionRepository subscriptionRepository;
+    private final NotificationJdbcRepository notificationJdbcRepository;
+    private final SyllabusRepository syllabusRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final NotificationUnreadCounter unreadCounter;
+    private final NotificationPartitionService partitionService;
+    private final NotificationCoalescer coalescer;
+    private final RoleMembershipCache roleMembershipCache;
+    private final NotificationReadReceipts readReceipts;
+
+    // Khác null trong notifyTransitions: notification được gom lại rồi insert một lần bằng JDBC batch
+    private final ThreadLocal<List<Notification>> pending = new ThreadLocal<>();
 
     /**
      * Create notification when syllabus is submitted for review
@@ -76,7 +110,7 @@ public class NotificationService {
                 .isRead(false)
                 .build();
             
-            notificationRepository.save(notification);
+            persist(notification);
             log.info("✅ Notification saved successfully! Notification ID: {}, sent to HOD {} for syllabus {}", 
                 notification.getNotificationId(), hod.getUsername(), syllabus.getSyllabusId());
         } catch (Exception e) {
@@ -98,10 +132,7 @@ public class NotificationService {
             "Your syllabus has been approved by the Head of Department and forwarded to Academic Affairs.");
         
         // Notify Academic Affairs
-        List<User> aaUsers = userRepository.findByRole_RoleName("ACADEMIC_AFFAIRS");
-        for (User aaUser : aaUsers) {
-            Notification notification = Notification.builder()
-                .recipient(aaUser)
+        persistToRole("ACADEMIC_AFFAIRS", null, Notification.builder()
                 .syllabus(syllabus)
                 .type(Notification.NotificationType.SYLLABUS_APPROVED_BY_HOD)
                 .title("Syllabus Pending Your Approval")
@@ -112,10 +143,7 @@ public class NotificationService {
                 .actionUrl("/api/syllabuses/" + syllabus.getSyllabusId())
                 .triggeredBy(approvedBy)
                 .isRead(false)
-                .build();
-            
-            notificationRepository.save(notification);
-        }
+                .build());
     }
 
     /**
@@ -147,10 +175,7 @@ public class NotificationService {
             "Your syllabus has been approved by Academic Affairs and forwarded to the Principal.");
         
         // Notify Principal
-        List<User> principals = userRepository.findByRole_RoleName("PRINCIPAL");
-        for (User principal : principals) {
-            Notification notification = Notification.builder()
-                .recipient(principal)
+        persistToRole("PRINCIPAL", null, Notification.builder()
                 .syllabus(syllabus)
                 .type(Notification.NotificationType.SYLLABUS_APPROVED_BY_AA)
                 .title("Syllabus Awaiting Final Approval")
@@ -161,10 +186,7 @@ public class NotificationService {
                 .actionUrl("/api/syllabuses/" + syllabus.getSyllabusId())
                 .triggeredBy(approvedBy)
                 .isRead(false)
-                .build();
-            
-            notificationRepository.save(notification);
-        }
+                .build());
     }
 
     /**
@@ -195,32 +217,15 @@ public void notifySyllabusPublished(Syllabus syllabus, String publishedBy) {
         "Syllabus Published",
         "Congratulations! Your syllabus has been approved and published by the Principal.");
 
-    // 2. LOGIC MỚI: Thông báo cho sinh viên đang follow môn học này
-    List<User> followers = subscriptionRepository.findFollowersByCourseId(syllabus.getCourse().getCourseId());
-    
-    if (!followers.isEmpty()) {
-        log.info("Sending update notifications to {} followers of course {}", 
-                followers.size(), syllabus.getCourse().getCourseCode());
-
-        for (User student : followers) {
-            Notification notification = Notification.builder()
-                .recipient(student)
-                .syllabus(syllabus)
-                // Bạn có thể cần thêm enum type mới: COURSE_UPDATE hoặc dùng chung SYLLABUS_PUBLISHED
-                .type(Notification.NotificationType.SYLLABUS_PUBLISHED) 
-                .title("Course Syllabus Updated")
-                .message(String.format("New syllabus version v%d for course %s (%s) has been published.",
-                    syllabus.getVersionNo(),
-                    syllabus.getCourse().getCourseName(),
-                    syllabus.getCourse().getCourseCode()))
-                .actionUrl("/api/syllabuses/" + syllabus.getSyllabusId()) // Hoặc link public view
-                .triggeredBy(publishedBy)
-                .isRead(false)
-                .build();
-            
-            notificationRepository.save(notification);
-        }
-    }
+    // 2. Thông báo cho sinh viên đang follow môn học này: fan-out sau commit (NotificationFanoutService)
+    eventPublisher.publishEvent(new SyllabusPublishedEvent(
+        syllabus.getSyllabusId(),
+        syllabus.getCourse().getCourseId(),
+        syllabus.getCourse().getCourseCode(),
+        syllabus.getCourse().getCourseName(),
+        syllabus.getVersionNo(),
+        publishedBy,
+        Instant.now()));
 }
 
     /**
@@ -268,6 +273,202 @@ public void notifySyllabusPublished(Syllabus syllabus, String publishedBy) {
                 syllabus.getVersionNo()));
     }
 
+    /**
+     * Notifications of a batch workflow transition: same content as the single transition,
+     * inserted with one JDBC batch instead of one INSERT per notification
+     */
+    @Transactional
+    public int notifyTransitions(WorkflowTransitions.Transition transition, List<Long> syllabusIds,
+                                 String triggeredBy, String comment) {
+        List<Syllabus> syllabuses = syllabusRepository.findAllForNotification(syllabusIds);
+        List<Notification> buffer = new ArrayList<>();
+        pending.set(buffer);
+        try {
+            for (Syllabus syllabus : syllabuses) {
+                try {
+                    transition.notifier().notify(this, syllabus, triggeredBy, comment);
+                } catch (Exception e) {
+                    log.error("Error creating notifications for syllabus {}: {}",
+                        syllabus.getSyllabusId(), e.getMessage(), e);
+                }
+            }
+        } finally {
+            pending.remove();
+        }
+        insertAll(buffer);
+        log.info("Created {} notifications for {} syllabuses ({} {})",
+            buffer.size(), syllabuses.size(), transition.actor(), transition.command());
+        return buffer.size();
+    }
+
+    @Async("notificationExecutor")
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onWorkflowBatchTransitioned(WorkflowBatchTransitionedEvent event) {
+        notifyTransitions(event.transition(), event.syllabusIds(), event.username(), event.comment());
+    }
+
+    /**
+     * Deadline reminders (DEADLINE_REMINDER) for syllabuses waiting past their SLA:
+     * PENDING_REVIEW -> HOD of the department, PENDING_APPROVAL -> Academic Affairs.
+     * Runs in the caller's transaction so the reminders are only stored if the claim commits.
+     */
+    @Transactional
+    public int notifyDeadlineReminders(Map<Long, Integer> sequenceBySyllabus) {
+        if (sequenceBySyllabus.isEmpty()) {
+            return 0;
+        }
+        List<Syllabus> syllabuses = syllabusRepository.findAllForNotification(sequenceBySyllabus.keySet());
+        LocalDateTime now = LocalDateTime.now();
+        List<Notification> notifications = new ArrayList<>();
+        
+        for (Syllabus syllabus : syllabuses) {
+            long[] recipients;
+            if (syllabus.getCurrentStatus() == Syllabus.SyllabusStatus.PENDING_REVIEW) {
+                User hod = syllabus.getCourse().getDepartment() != null
+                        ? syllabus.getCourse().getDepartment().getHeadOfDepartment() : null;
+                recipients = hod != null ? new long[] {hod.getUserId()} : new long[0];
+            } else {
+                recipients = roleMembershipCache.userIds("ACADEMIC_AFFAIRS");
+            }
+            
+            long days = syllabus.getStatusChangedAt() != null
+                    ? Duration.between(syllabus.getStatusChangedAt(), now).toDays() : 0;
+            int sequence = sequenceBySyllabus.getOrDefault(syllabus.getSyllabusId(), 1);
+            for (long recipientId : recipients) {
+                notifications.add(Notification.builder()
+                    .recipient(User.builder().userId(recipientId).build())
+                    .syllabus(syllabus)
+                    .type(Notification.NotificationType.DEADLINE_REMINDER)
+                    .title(sequence > 1 ? "Reminder #" + sequence + ": Syllabus Still Awaiting Your Action"
+                                        : "Syllabus Awaiting Your Action")
+                    .message(String.format("Syllabus for %s (%s) v%d has been %s for %d day(s) and is past its review deadline.",
+                        syllabus.getCourse().getCourseName(),
+                        syllabus.getCourse().getCourseCode(),
+                        syllabus.getVersionNo(),
+                        syllabus.getCurrentStatus(),
+                        days))
+                    .actionUrl("/api/syllabuses/" + syllabus.getSyllabusId())
+                    .triggeredBy("system")
+                    .isRead(false)
+                    .createdAt(now)
+                    .build());
+            }
+        }
+        
+        insertAll(notifications);
+        return notifications.size();
+    }
+
+    /**
+     * Daily digest: one NOTIFICATION_DIGEST per user listing the deferred events per syllabus.
+     * Runs in the caller's transaction, which also drained the entries.
+     */
+    @Transactional
+    public int notifyDigests(List<DigestEntry> entries) {
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        Map<Long, Syllabus> syllabuses = syllabusRepository.findAllForNotification(
+                entries.stream().map(DigestEntry::syllabusId).collect(Collectors.toSet()))
+            .stream()
+            .collect(Collectors.toMap(Syllabus::getSyllabusId, s -> s));
+        Map<Long, List<DigestEntry>> byUser = entries.stream()
+            .collect(Collectors.groupingBy(DigestEntry::userId, LinkedHashMap::new, Collectors.toList()));
+        LocalDateTime now = LocalDateTime.now();
+        List<Notification> notifications = new ArrayList<>();
+        
+        byUser.forEach((userId, userEntries) -> {
+            int total = 0;
+            StringBuilder message = new StringBuilder();
+            for (DigestEntry entry : userEntries) {
+                Syllabus syllabus = syllabuses.get(entry.syllabusId());
+                if (syllabus == null) {
+                    continue; // syllabus đã bị xóa
+                }
+                total += entry.itemCount();
+                message.append(String.format("- %s (%s) v%d: %d %s, latest by %s%n",
+                    syllabus.getCourse().getCourseName(),
+                    syllabus.getCourse().getCourseCode(),
+                    syllabus.getVersionNo(),
+                    entry.itemCount(),
+                    entry.type().name().toLowerCase().replace('_', ' '),
+                    entry.lastTriggeredBy()));
+            }
+            if (total == 0) {
+                return;
+            }
+            notifications.add(Notification.builder()
+                .recipient(User.builder().userId(userId).build())
+                .type(Notification.NotificationType.NOTIFICATION_DIGEST)
+                .title(String.format("Daily digest: %d update(s)", total))
+                .message(message.toString().trim())
+                .actionUrl("/api/notifications")
+                .triggeredBy("system")
+                .isRead(false)
+                .createdAt(now)
+                .build());
+        });
+        
+        insertAll(notifications);
+        return notifications.size();
+    }
+
+    private void persist(Notification notification) {
+        if (coalescer.absorb(notification)) {
+            return;
+        }
+        List<Notification> buffer = pending.get();
+        if (buffer != null) {
+            buffer.add(notification);
+        } else {
+            notificationRepository.save(notification);
+            eventPublisher.publishEvent(NotificationsCreatedEvent.of(List.of(notification)));
+        }
+    }
+
+    /**
+     * Cùng một notification (template, không có recipient) cho mọi user của {@code roleName}, trừ
+     * {@code excludeUserId}: id lấy từ RoleMembershipCache, không load User; ghi bằng một JDBC batch
+     */
+    private int persistToRole(String roleName, Long excludeUserId, Notification template) {
+        long[] recipientIds = roleMembershipCache.userIds(roleName);
+        LocalDateTime now = LocalDateTime.now();
+        List<Notification> notifications = new ArrayList<>(recipientIds.length);
+        for (long recipientId : recipientIds) {
+            if (excludeUserId != null && excludeUserId == recipientId) {
+                continue;
+            }
+            notifications.add(Notification.builder()
+                .recipient(User.builder().userId(recipientId).build())
+                .syllabus(template.getSyllabus())
+                .type(template.getType())
+                .title(template.getTitle())
+                .message(template.getMessage())
+                .actionUrl(template.getActionUrl())
+                .triggeredBy(template.getTriggeredBy())
+                .isRead(false)
+                .createdAt(now)
+                .build());
+        }
+        
+        List<Notification> remaining = coalescer.absorbAll(notifications);
+        List<Notification> buffer = pending.get();
+        if (buffer != null) {
+            buffer.addAll(remaining);
+        } else {
+            insertAll(remaining);
+        }
+        return notifications.size();
+    }
+
+    private void insertAll(List<Notification> notifications) {
+        notificationJdbcRepository.insertAll(notifications);
+        if (!notifications.isEmpty()) {
+            eventPublisher.publishEvent(NotificationsCreatedEvent.of(notifications));
+        }
+    }
+
     /**
      * Helper method to notify lecturer
      */
@@ -285,7 +486,7 @@ public void notifySyllabusPublished(Syllabus syllabus, String publishedBy) {
             .isRead(false)
             .build();
         
-        notificationRepository.save(notification);
+        persist(notification);
         log.info("Notification sent to lecturer {} for syllabus {}", 
             syllabus.getLecturer().getUsername(), syllabus.getSyllabusId());
     }
@@ -302,6 +503,86 @@ public void notifySyllabusPublished(Syllabus syllabus, String publishedBy) {
             .map(NotificationResponse::fromEntity);
     }
 
+    /**
+     * Keyset-paginated feed, newest first. The user id comes from the authenticated principal and the
+     * page is read in index order after the cursor, so deep pages cost the same as the first one.
+     */
+    @Transactional(readOnly = true)
+    public NotificationFeedResponse getNotificationFeed(UserDetails principal, String cursor, int limit) {
+        Long userId = userIdOf(principal);
+        Pageable page = PageRequest.of(0, limit + 1);
+        
+        List<Notification> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = notificationRepository.findFeedFirstPage(userId, page);
+        } else {
+            FeedCursor after = FeedCursor.decode(cursor);
+            rows = notificationRepository.findFeedAfter(userId, after.createdAt(), after.id(), page);
+        }
+        
+        boolean hasMore = rows.size() > limit;
+        List<Notification> items = hasMore ? rows.subList(0, limit) : rows;
+        // Đã đọc nhưng chưa flush (write-behind): hiển thị như đã đọc
+        Set<Long> pendingRead = readReceipts.pending(userId);
+        String nextCursor = null;
+        if (hasMore) {
+            Notification last = items.get(items.size() - 1);
+            nextCursor = new FeedCursor(last.getCreatedAt(), last.getNotificationId()).encode();
+        }
+        return NotificationFeedResponse.builder()
+            .items(items.stream()
+                .map(notification -> {
+                    NotificationResponse response = NotificationResponse.fromEntity(notification);
+                    if (pendingRead.contains(notification.getNotificationId())) {
+                        response.setIsRead(true);
+                    }
+                    return response;
+                })
+                .collect(Collectors.toList()))
+            .nextCursor(nextCursor)
+            .hasMore(hasMore)
+            .build();
+    }
+
+    /**
+     * Total number of notifications of the user (only computed when the client asks for it)
+     */
+    @Transactional(readOnly = true)
+    public long countNotifications(UserDetails principal) {
+        return notificationRepository.countByRecipient_UserId(userIdOf(principal));
+    }
+
+    private Long userIdOf(UserDetails principal) {
+        if (principal instanceof AuthenticatedUser authenticated) {
+            return authenticated.getUserId();
+        }
+        return userRepository.findByUsername(principal.getUsername())
+            .orElseThrow(() -> new ResourceNotFoundException("User not found"))
+            .getUserId();
+    }
+
+    /**
+     * Vị trí trong feed: (createdAt, notificationId) của dòng cuối trang, mã hóa base64url
+     */
+    private record FeedCursor(LocalDateTime createdAt, Long id) {
+
+        String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((createdAt + "_" + id).getBytes(StandardCharsets.UTF_8));
+        }
+
+        static FeedCursor decode(String cursor) {
+            try {
+                String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = value.lastIndexOf('_');
+                return new FeedCursor(LocalDateTime.parse(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new InvalidDataException("cursor", cursor, "Cursor không hợp lệ");
+            }
+        }
+    }
+
     /**
      * Get unread notifications
      */
@@ -328,7 +609,17 @@ public void notifySyllabusPublished(Syllabus syllabus, String publishedBy) {
             throw new IllegalStateException("Not authorized to mark this notification as read");
         }
         
-        notificationRepository.markAsRead(notificationId, LocalDateTime.now());
+        if (notificationRepository.markAsRead(notificationId, LocalDateTime.now()) > 0) {
+            unreadCounter.markedRead(notification.getRecipient().getUserId(), notification.getType());
+        }
+    }
+
+    /**
+     * Mark many notifications as read with one UPDATE scoped to the current user; ids that belong to
+     * someone else or are already read are ignored. With write-behind enabled the ids are only buffered.
+     */
+    public int markAsRead(Collection<Long> notificationIds, UserDetails principal) {
+        return readReceipts.markRead(userIdOf(principal), notificationIds);
     }
 
     /**
@@ -340,6 +631,36 @@ public void notifySyllabusPublished(Syllabus syllabus, String publishedBy) {
             .orElseThrow(() -> new ResourceNotFoundException("User not found"));
         
         notificationRepository.markAllAsRead(user, LocalDateTime.now());
+        unreadCounter.markedAllRead(user.getUserId());
+    }
+
+    /**
+     * Get notification preferences
+     */
+    @Transactional(readOnly = true)
+    public NotificationPreferences getPreferences(String username) {
+        User user = userRepository.findByUsername(username)
+            .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        
+        return NotificationPreferences.builder()
+            .digestEnabled(Boolean.TRUE.equals(user.getNotificationDigest()))
+            .build();
+    }
+
+    /**
+     * Update notification preferences (opt in / out of the daily digest)
+     */
+    @Transactional
+    public NotificationPreferences updatePreferences(String username, NotificationPreferences preferences) {
+        User user = userRepository.findByUsername(username)
+            .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        
+        if (preferences.getDigestEnabled() != null) {
+            user.setNotificationDigest(preferences.getDigestEnabled());
+        }
+        return NotificationPreferences.builder()
+            .digestEnabled(Boolean.TRUE.equals(user.getNotificationDigest()))
+            .build();
     }
 
     /**
@@ -350,24 +671,20 @@ public void notifySyllabusPublished(Syllabus syllabus, String publishedBy) {
         User user = userRepository.findByUsername(username)
             .orElseThrow(() -> new ResourceNotFoundException("User not found"));
         
-        Long totalUnread = notificationRepository.countByRecipientAndIsReadFalse(user);
+        // Bộ đếm unread theo loại (Redis), không load danh sách notification
+        Map<Notification.NotificationType, Long> unread = unreadCounter.get(user.getUserId());
         
-        // Count by specific types
-        List<Notification> unreadNotifications = notificationRepository
-            .findByRecipientAndIsReadFalseOrderByCreatedAtDesc(user);
+        Long totalUnread = unread.values().stream().mapToLong(Long::longValue).sum();
         
-        Long pendingReviews = unreadNotifications.stream()
-            .filter(n -> n.getType() == Notification.NotificationType.SYLLABUS_SUBMITTED)
-            .count();
+        Long pendingReviews = unread.get(Notification.NotificationType.SYLLABUS_SUBMITTED);
         
-        Long pendingApprovals = unreadNotifications.stream()
-            .filter(n -> n.getType() == Notification.NotificationType.SYLLABUS_APPROVED_BY_HOD ||
-                        n.getType() == Notification.NotificationType.SYLLABUS_APPROVED_BY_AA)
-            .count();
+        Long pendingApprovals = unread.get(Notification.NotificationType.SYLLABUS_APPROVED_BY_HOD)
+            + unread.get(Notification.NotificationType.SYLLABUS_APPROVED_BY_AA);
         
-        Long rejectedSyllabuses = unreadNotifications.stream()
-            .filter(n -> n.getType().name().contains("REJECTED"))
-            .count();
+        Long rejectedSyllabuses = unread.entrySet().stream()
+            .filter(e -> e.getKey().name().contains("REJECTED"))
+            .mapToLong(Map.Entry::getValue)
+            .sum();
         
         return NotificationStats.builder()
             .totalUnread(totalUnread)
@@ -378,13 +695,13 @@ public void notifySyllabusPublished(Syllabus syllabus, String publishedBy) {
     }
 
     /**
-     * Delete old notifications (cleanup job)
+     * Delete old notifications (cleanup job): drop whole monthly partitions that end before the cutoff,
+     * so up to one extra month is kept. Scheduled retention runs in NotificationPartitionService.
      */
-    @Transactional
     public void deleteOldNotifications(int daysToKeep) {
-        LocalDateTime cutoffDate = LocalDateTime.now().minusDays(daysToKeep);
-        notificationRepository.deleteOlderThan(cutoffDate);
-        log.info("Deleted notifications older than {}", cutoffDate);
+        YearMonth firstKept = YearMonth.from(LocalDateTime.now().minusDays(daysToKeep));
+        int dropped = partitionService.dropPartitionsBefore(firstKept);
+        log.info("Dropped {} notification partitions before {}", dropped, firstKept);
     }
 
     /**
@@ -414,7 +731,7 @@ public void notifySyllabusPublished(Syllabus syllabus, String publishedBy) {
                     .isRead(false)
                     .build();
                 
-                notificationRepository.save(lecturerNotification);
+                persist(lecturerNotification);
                 log.info("Notification sent to lecturer {}", lecturer.getUsername());
             }
             
@@ -437,38 +754,29 @@ public void notifySyllabusPublished(Syllabus syllabus, String publishedBy) {
                         .isRead(false)
                         .build();
                     
-                    notificationRepository.save(hodNotification);
+                    persist(hodNotification);
                     log.info("Notification sent to HOD {}", hod.getUsername());
                 }
             }
             
             // Notify Academic Affairs users if syllabus is in their review stage
-            if (syllabus.getCurrentStatus() != null && 
-                (syllabus.getCurrentStatus().equals("PENDING_APPROVAL") || 
-                syllabus.getCurrentStatus().equals("APPROVED"))) {
+            if (syllabus.getCurrentStatus() == Syllabus.SyllabusStatus.PENDING_APPROVAL ||
+                syllabus.getCurrentStatus() == Syllabus.SyllabusStatus.APPROVED) {
                 
-                List<User> aaUsers = userRepository.findByRole_RoleName("ACADEMIC_AFFAIRS");
-                for (User aaUser : aaUsers) {
-                    if (!aaUser.getUserId().equals(commenter.getUserId())) {
-                        Notification aaNotification = Notification.builder()
-                            .recipient(aaUser)
-                            .syllabus(syllabus)
-                            .type(Notification.NotificationType.COMMENT_ADDED)
-                            .title("New Comment on Syllabus Under Review")
-                            .message(String.format("%s commented on syllabus: %s (%s) v%d",
-                                commenter.getFullName(),
-                                syllabus.getCourse().getCourseName(),
-                                syllabus.getCourse().getCourseCode(),
-                                syllabus.getVersionNo()))
-                            .actionUrl("/api/syllabuses/" + syllabus.getSyllabusId())
-                            .triggeredBy(commenter.getUsername())
-                            .isRead(false)
-                            .build();
-                        
-                        notificationRepository.save(aaNotification);
-                    }
-                }
-                log.info("Notifications sent to {} Academic Affairs users", aaUsers.size());
+                int sent = persistToRole("ACADEMIC_AFFAIRS", commenter.getUserId(), Notification.builder()
+                    .syllabus(syllabus)
+                    .type(Notification.NotificationType.COMMENT_ADDED)
+                    .title("New Comment on Syllabus Under Review")
+                    .message(String.format("%s commented on syllabus: %s (%s) v%d",
+                        commenter.getFullName(),
+                        syllabus.getCourse().getCourseName(),
+                        syllabus.getCourse().getCourseCode(),
+                        syllabus.getVersionNo()))
+                    .actionUrl("/api/syllabuses/" + syllabus.getSyllabusId())
+                    .triggeredBy(commenter.getUsername())
+                    .isRead(false)
+                    .build());
+                log.info("Notifications sent to {} Academic Affairs users", sent);
             }
             
             log.info("✅ Comment notification processing completed for syllabus {}", syllabus.getSyllabusId());
@@ -0,0 +1,262 @@
+package com.smd.core.service;
+
+import com.smd.core.dto.NotificationResponse;
+import com.smd.core.entity.Notification;
+import com.smd.core.entity.User;
+import com.smd.core.event.NotificationsCreatedEvent;
+import com.smd.core.exception.ResourceNotFoundException;
+import com.smd.core.exception.ServiceUnavailableException;
+import com.smd.core.repository.NotificationRepository;
+import com.smd.core.repository.UserRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Đẩy notification realtime qua Server-Sent Events.
+ *
+ * Khi notification được lưu (NotificationsCreatedEvent, sau commit) id người nhận được publish lên kênh Redis;
+ * mọi node nhận được và chỉ node đang giữ kết nối của user đó đọc các notification mới rồi đẩy xuống.
+ * Event id = notificationId nên client reconnect với Last-Event-ID sẽ nhận lại phần bị lỡ.
+ *
+ * notification_id lấy từ sequence nhưng các transaction commit không theo thứ tự id (fan-out JDBC, listener async):
+ * một id nhỏ hơn id đã gửi có thể xuất hiện sau. Vì vậy mỗi lần đọc lùi lại replay-window id so với id đã gửi
+ * lớn nhất và bỏ qua các id đã gửi trên kết nối. Client không bỏ trùng: lúc mở kết nối (mới hoặc reconnect bằng
+ * Last-Event-ID) các id đã có trong cửa sổ và không lớn hơn id client đã nhận được coi như đã gửi.
+ */
+@Service
+@Slf4j
+public class NotificationStreamService implements MessageListener {
+
+    private static final String CHANNEL = "notifications:created";
+    private static final int PAGE_SIZE = 100;
+
+    private final NotificationRepository notificationRepository;
+    private final UserRepository userRepository;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ThreadPoolTaskExecutor pushExecutor;
+
+    private final Map<Long, List<Connection>> connections = new ConcurrentHashMap<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+
+    @Value("${notification.sse.max-connections:2000}")
+    private int maxConnections;
+
+    @Value("${notification.sse.max-connections-per-user:5}")
+    private int maxConnectionsPerUser;
+
+    @Value("${notification.sse.timeout:PT30M}")
+    private Duration timeout;
+
+    // Số id (sequence dùng chung mọi user) đọc lùi lại để bắt các notification commit muộn
+    @Value("${notification.sse.replay-window:10000}")
+    private long replayWindow;
+
+    public NotificationStreamService(NotificationRepository notificationRepository,
+                                     UserRepository userRepository,
+                                     RedisTemplate<String, Object> redisTemplate,
+                                     RedisMessageListenerContainer listenerContainer,
+                                     @Qualifier("notificationPushExecutor") ThreadPoolTaskExecutor pushExecutor,
+                                     MeterRegistry meterRegistry) {
+        this.notificationRepository = notificationRepository;
+        this.userRepository = userRepository;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.pushExecutor = pushExecutor;
+        Gauge.builder("smd.notification.sse.connections", connectionCount, AtomicInteger::get)
+                .description("Open notification streams on this node")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    /**
+     * Mở stream cho user; {@code lastEventId} != null thì gửi lại các notification sau id đó trước
+     */
+    public SseEmitter connect(String username, Long lastEventId) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "username", username));
+
+        if (connectionCount.incrementAndGet() > maxConnections) {
+            connectionCount.decrementAndGet();
+            throw new ServiceUnavailableException("Too many notification streams on this server, fall back to polling");
+        }
+
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        // Kết nối mới: các notification đang có coi như đã gửi. Reconnect: client đã nhận tới Last-Event-ID,
+        // chỉ gửi id lớn hơn; id nhỏ hơn commit muộn (chưa có trong DB lúc này) vẫn được đẩy
+        long acknowledged = lastEventId != null
+                ? lastEventId
+                : notificationRepository.findLatestIdByRecipient(user.getUserId());
+        Connection connection = new Connection(user.getUserId(), emitter, acknowledged);
+        for (Long id : notificationRepository.findStreamIds(user.getUserId(), acknowledged - replayWindow)) {
+            if (id <= acknowledged) {
+                connection.sent.add(id);
+            }
+        }
+
+        List<Connection> userConnections = connections.computeIfAbsent(user.getUserId(), id -> new CopyOnWriteArrayList<>());
+        userConnections.add(connection);
+        // Quá số tab của một user: đóng kết nối cũ nhất
+        while (userConnections.size() > maxConnectionsPerUser) {
+            Connection oldest = userConnections.get(0);
+            remove(oldest);
+            oldest.emitter.complete();
+        }
+
+        emitter.onCompletion(() -> remove(connection));
+        emitter.onTimeout(() -> remove(connection));
+        emitter.onError(e -> remove(connection));
+
+        if (lastEventId != null) {
+            pushExecutor.execute(connection::flush);
+        }
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNotificationsCreated(NotificationsCreatedEvent event) {
+        if (event.recipientIds().isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(CHANNEL, new ArrayList<>(event.recipientIds()));
+        } catch (Exception e) {
+            // Redis không dùng được: ít nhất đẩy cho các kết nối trên node này
+            log.warn("Could not publish notification signal, delivering locally: {}", e.getMessage());
+            deliverLocally(event.recipientIds());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            Object payload = redisTemplate.getValueSerializer().deserialize(message.getBody());
+            if (payload instanceof Collection<?> ids) {
+                List<Long> recipientIds = new ArrayList<>(ids.size());
+                for (Object id : ids) {
+                    if (id instanceof Number n) {
+                        recipientIds.add(n.longValue());
+                    }
+                }
+                deliverLocally(recipientIds);
+            }
+        } catch (Exception e) {
+            log.warn("Invalid notification signal: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notification.sse.heartbeat:PT25S}")
+    public void heartbeat() {
+        for (List<Connection> userConnections : connections.values()) {
+            for (Connection connection : userConnections) {
+                connection.send(SseEmitter.event().comment("heartbeat"));
+            }
+        }
+    }
+
+    private void deliverLocally(Collection<Long> recipientIds) {
+        Set<Long> unique = Set.copyOf(recipientIds);
+        for (Long userId : unique) {
+            List<Connection> userConnections = connections.get(userId);
+            if (userConnections != null) {
+                for (Connection connection : userConnections) {
+                    pushExecutor.execute(connection::flush);
+                }
+            }
+        }
+    }
+
+    private void remove(Connection connection) {
+        List<Connection> userConnections = connections.get(connection.userId);
+        if (userConnections != null && userConnections.remove(connection)) {
+            connectionCount.decrementAndGet();
+            if (userConnections.isEmpty()) {
+                connections.remove(connection.userId, userConnections);
+            }
+        }
+    }
+
+    private final class Connection {
+        private final Long userId;
+        private final SseEmitter emitter;
+        private long lastSentId;
+        // Id đã gửi trong cửa sổ (lastSentId - replayWindow, lastSentId]
+        private final Set<Long> sent = new HashSet<>();
+
+        private Connection(Long userId, SseEmitter emitter, long lastSentId) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.lastSentId = lastSentId;
+        }
+
+        /**
+         * Gửi các notification chưa gửi từ lastSentId - replayWindow trở đi (index user_id, notification_id mỗi trang)
+         */
+        synchronized void flush() {
+            try {
+                long cursor = lastSentId - replayWindow;
+                List<Notification> batch;
+                do {
+                    batch = notificationRepository.findStreamBatch(userId, cursor, PageRequest.of(0, PAGE_SIZE));
+                    for (Notification notification : batch) {
+                        Long id = notification.getNotificationId();
+                        cursor = id;
+                        if (!sent.add(id)) {
+                            continue;
+                        }
+                        emitter.send(SseEmitter.event()
+                                .id(String.valueOf(id))
+                                .name("notification")
+                                .data(NotificationResponse.fromEntity(notification)));
+                        lastSentId = Math.max(lastSentId, id);
+                    }
+                } while (batch.size() == PAGE_SIZE);
+                long windowStart = lastSentId - replayWindow;
+                sent.removeIf(id -> id <= windowStart);
+            } catch (IOException | IllegalStateException e) {
+                remove(this);
+            } catch (Exception e) {
+                log.warn("Could not push notifications to user {}: {}", userId, e.getMessage());
+            }
+        }
+
+        synchronized void send(SseEmitter.SseEventBuilder event) {
+            try {
+                emitter.send(event);
+            } catch (IOException | IllegalStateException e) {
+                remove(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.smd.core.service;
+
+import com.smd.core.entity.Notification.NotificationType;
+import com.smd.core.event.NotificationsCreatedEvent;
+import com.smd.core.repository.NotificationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bộ đếm notification chưa đọc theo user và loại: một Redis hash mỗi user (field = NotificationType).
+ *
+ * Tạo notification cộng sau commit (NotificationsCreatedEvent); markAsRead trừ một khi thật sự chuyển từ
+ * chưa đọc sang đã đọc (không xuống dưới 0); markAllAsRead xóa hash. Hash chưa có thì được dựng lại từ DB ở lần
+ * đọc đầu tiên, và reconcile định kỳ ghi đè toàn bộ để sửa sai lệch.
+ *
+ * Mỗi thay đổi (script Lua) tăng một version riêng của user. Bản đếm từ DB chỉ được ghi nếu version không đổi
+ * kể từ trước lúc đếm: một thay đổi xen giữa không bị ghi đè bởi snapshot cũ (lần đọc / reconcile sau làm lại).
+ */
+@Service
+@Slf4j
+public class NotificationUnreadCounter {
+
+    private static final String KEY_PREFIX = "notifications:unread:";
+    // Không khớp KEY_PREFIX + "*" của reconcile
+    private static final String VERSION_PREFIX = "notifications:unread-version:";
+
+    // KEYS[1] = hash, KEYS[2] = version; ARGV = field, delta, field, delta...
+    private static final RedisScript<Long> APPLY_DELTAS = new DefaultRedisScript<>(
+            "redis.call('INCR', KEYS[2]) " +
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+            "for i = 1, #ARGV, 2 do " +
+            "if redis.call('HINCRBY', KEYS[1], ARGV[i], ARGV[i + 1]) < 0 then redis.call('HSET', KEYS[1], ARGV[i], 0) end " +
+            "end return 1", Long.class);
+
+    // KEYS[1] = hash, KEYS[2] = version; ARGV[1] = version đọc trước khi đếm, sau đó field, value...
+    private static final RedisScript<Long> REPLACE_IF_UNCHANGED = new DefaultRedisScript<>(
+            "if tonumber(redis.call('GET', KEYS[2]) or '0') ~= tonumber(ARGV[1]) then return 0 end " +
+            "redis.call('DEL', KEYS[1]) " +
+            "redis.call('HSET', KEYS[1], unpack(ARGV, 2)) return 1", Long.class);
+
+    private static final RedisScript<Long> RESET = new DefaultRedisScript<>(
+            "redis.call('INCR', KEYS[2]) return redis.call('DEL', KEYS[1])", Long.class);
+
+    private static final RedisScript<Long> READ_VERSION = new DefaultRedisScript<>(
+            "return tonumber(redis.call('GET', KEYS[1]) or '0')", Long.class);
+
+    // Tham số script dạng chuỗi thuần (không qua JSON serializer của template)
+    private static final RedisSerializer<String> ARGS = StringRedisSerializer.UTF_8;
+    private static final RedisSerializer<Long> RESULT = new GenericToStringSerializer<>(Long.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final NotificationRepository notificationRepository;
+
+    @Value("${notification.unread.reconcile-enabled:true}")
+    private boolean reconcileEnabled;
+
+    public NotificationUnreadCounter(RedisTemplate<String, Object> redisTemplate,
+                                     NotificationRepository notificationRepository) {
+        this.redisTemplate = redisTemplate;
+        this.notificationRepository = notificationRepository;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNotificationsCreated(NotificationsCreatedEvent event) {
+        event.countsByRecipient().forEach((userId, byType) -> {
+            Map<String, Long> deltas = new HashMap<>();
+            byType.forEach((type, count) -> deltas.put(type.name(), count));
+            increment(userId, deltas);
+        });
+    }
+
+    /**
+     * Một notification vừa được đánh dấu đã đọc (trong transaction của caller)
+     */
+    public void markedRead(Long userId, NotificationType type) {
+        afterCommit(() -> increment(userId, Map.of(type.name(), -1L)));
+    }
+
+    /**
+     * Nhiều notification vừa được đánh dấu đã đọc (số dòng thực sự đổi, theo loại)
+     */
+    public void markedRead(Long userId, Map<NotificationType, Long> counts) {
+        if (counts.isEmpty()) {
+            return;
+        }
+        Map<String, Long> deltas = new HashMap<>();
+        counts.forEach((type, count) -> deltas.put(type.name(), -count));
+        afterCommit(() -> increment(userId, deltas));
+    }
+
+    public void markedAllRead(Long userId) {
+        // Xóa thay vì ghi 0: notification tạo sau commit này có thể đã được cộng vào hash
+        afterCommit(() -> {
+            try {
+                run(RESET, userId);
+            } catch (Exception e) {
+                log.warn("Could not reset unread counters for user {}: {}", userId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Số chưa đọc theo loại của user: một HGETALL; dựng lại từ DB nếu hash chưa có / Redis lỗi
+     */
+    public Map<NotificationType, Long> get(Long userId) {
+        Long version = null;
+        try {
+            Map<Object, Object> entries = redisTemplate.opsForHash().entries(key(userId));
+            if (!entries.isEmpty()) {
+                Map<NotificationType, Long> counts = new EnumMap<>(NotificationType.class);
+                for (NotificationType type : NotificationType.values()) {
+                    Object value = entries.get(type.name());
+                    counts.put(type, value instanceof Number n ? Math.max(0, n.longValue()) : 0L);
+                }
+                return counts;
+            }
+            version = run(READ_VERSION, userId);
+        } catch (Exception e) {
+            log.warn("Unread counters unavailable for user {}, counting from DB: {}", userId, e.getMessage());
+        }
+
+        Map<NotificationType, Long> counts = new EnumMap<>(NotificationType.class);
+        for (NotificationType type : NotificationType.values()) {
+            counts.put(type, 0L);
+        }
+        for (Object[] row : notificationRepository.countUnreadByType(userId)) {
+            counts.put((NotificationType) row[0], ((Number) row[1]).longValue());
+        }
+        if (version != null) {
+            replaceIfUnchanged(userId, version, counts);
+        }
+        return counts;
+    }
+
+    /**
+     * Ghi đè bộ đếm của mọi user đang có hash bằng số đếm từ DB
+     */
+    @Scheduled(cron = "${notification.unread.reconcile-cron:0 30 * * * *}")
+    public void reconcile() {
+        if (!reconcileEnabled) {
+            return;
+        }
+        // Version đọc trước khi đếm từ DB
+        Map<Long, Long> versions = new HashMap<>();
+        ScanOptions options = ScanOptions.scanOptions().match(KEY_PREFIX + "*").count(500).build();
+        try (Cursor<String> keys = redisTemplate.scan(options)) {
+            while (keys.hasNext()) {
+                Long userId = Long.valueOf(keys.next().substring(KEY_PREFIX.length()));
+                versions.put(userId, run(READ_VERSION, userId));
+            }
+        } catch (Exception e) {
+            log.warn("Unread counter reconciliation failed: {}", e.getMessage());
+            return;
+        }
+
+        Map<Long, Map<NotificationType, Long>> fromDb = new HashMap<>();
+        for (Object[] row : notificationRepository.countUnreadByRecipientAndType()) {
+            fromDb.computeIfAbsent((Long) row[0], id -> new EnumMap<>(NotificationType.class))
+                    .put((NotificationType) row[1], ((Number) row[2]).longValue());
+        }
+
+        int repaired = 0;
+        int skipped = 0;
+        for (Map.Entry<Long, Long> entry : versions.entrySet()) {
+            Map<NotificationType, Long> counts = new EnumMap<>(NotificationType.class);
+            for (NotificationType type : NotificationType.values()) {
+                counts.put(type, 0L);
+            }
+            counts.putAll(fromDb.getOrDefault(entry.getKey(), Map.of()));
+            if (replaceIfUnchanged(entry.getKey(), entry.getValue(), counts)) {
+                repaired++;
+            } else {
+                skipped++;
+            }
+        }
+        if (skipped > 0) {
+            log.debug("Unread counters of {} users changed during reconciliation, left for the next run", skipped);
+        }
+        log.debug("Unread counters reconciled for {} users", repaired);
+    }
+
+    /**
+     * Cộng / trừ trong một script; hash chưa có thì bỏ qua (lần đọc đầu tiên sẽ đếm từ DB) nhưng version vẫn tăng
+     */
+    private void increment(Long userId, Map<String, Long> deltas) {
+        List<String> args = new ArrayList<>(deltas.size() * 2);
+        deltas.forEach((field, delta) -> {
+            args.add(field);
+            args.add(String.valueOf(delta));
+        });
+        try {
+            run(APPLY_DELTAS, userId, args.toArray());
+        } catch (Exception e) {
+            log.warn("Could not update unread counters for user {} (reconcile will repair): {}", userId, e.getMessage());
+        }
+    }
+
+    private boolean replaceIfUnchanged(Long userId, long version, Map<NotificationType, Long> counts) {
+        List<String> args = new ArrayList<>(counts.size() * 2 + 1);
+        args.add(String.valueOf(version));
+        counts.forEach((type, count) -> {
+            args.add(type.name());
+            args.add(String.valueOf(count));
+        });
+        try {
+            return Long.valueOf(1L).equals(run(REPLACE_IF_UNCHANGED, userId, args.toArray()));
+        } catch (Exception e) {
+            log.warn("Could not store unread counters for user {}: {}", userId, e.getMessage());
+            return false;
+        }
+    }
+
+    private Long run(RedisScript<Long> script, Long userId, Object... args) {
+        List<String> keys = script == READ_VERSION ? List.of(versionKey(userId)) : List.of(key(userId), versionKey(userId));
+        return redisTemplate.execute(script, ARGS, RESULT, keys, args);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static String key(Long userId) {
+        return KEY_PREFIX + userId;
+    }
+
+    private static String versionKey(Long userId) {
+        return VERSION_PREFIX + userId;
+    }
+}
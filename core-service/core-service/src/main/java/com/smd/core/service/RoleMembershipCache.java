@@ -0,0 +1,130 @@
+package com.smd.core.service;
+
+import com.smd.core.repository.UserRoleRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Danh sách user id theo role trong bộ nhớ, dùng cho fan-out notification tới cả một role
+ * (ACADEMIC_AFFAIRS, PRINCIPAL) thay vì query DISTINCT user/user_role/role và load User mỗi sự kiện.
+ *
+ * Load toàn bộ lúc khởi động; mỗi thay đổi role (gán/gỡ role, sửa/xóa user, import) gọi {@link #invalidate()}:
+ * sau commit node đó load lại và báo các node khác qua kênh Redis để chúng cũng load lại.
+ */
+@Component
+@Slf4j
+public class RoleMembershipCache implements MessageListener {
+
+    private static final String CHANNEL = "roles:membership-changed";
+    private static final long[] NONE = new long[0];
+
+    private final UserRoleRepository userRoleRepository;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    // Snapshot bất biến, thay nguyên cả map khi load lại
+    private volatile Map<String, long[]> membersByRole;
+
+    public RoleMembershipCache(UserRoleRepository userRoleRepository,
+                               RedisTemplate<String, Object> redisTemplate,
+                               RedisMessageListenerContainer listenerContainer) {
+        this.userRoleRepository = userRoleRepository;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+    }
+
+    @PostConstruct
+    void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        reload();
+    }
+
+    /**
+     * Id của các user đang có role {@code roleName} (không được sửa mảng trả về)
+     */
+    public long[] userIds(String roleName) {
+        Map<String, long[]> snapshot = membersByRole;
+        if (snapshot == null) {
+            snapshot = reload();
+        }
+        return snapshot.getOrDefault(roleName, NONE);
+    }
+
+    /**
+     * Role của user đã thay đổi: load lại sau commit (rollback thì không) và báo các node khác
+     */
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reloadAndBroadcast();
+                }
+            });
+        } else {
+            reloadAndBroadcast();
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            Object sender = redisTemplate.getValueSerializer().deserialize(message.getBody());
+            if (!nodeId.equals(sender)) {
+                reload();
+            }
+        } catch (Exception e) {
+            log.warn("Could not reload role membership after remote change: {}", e.getMessage());
+        }
+    }
+
+    private void reloadAndBroadcast() {
+        try {
+            reload();
+        } catch (Exception e) {
+            // Snapshot cũ bị bỏ, lần đọc sau load lại
+            membersByRole = null;
+            log.warn("Could not reload role membership: {}", e.getMessage());
+        }
+        try {
+            redisTemplate.convertAndSend(CHANNEL, nodeId);
+        } catch (Exception e) {
+            log.warn("Could not broadcast role membership change: {}", e.getMessage());
+        }
+    }
+
+    private synchronized Map<String, long[]> reload() {
+        Map<String, List<Long>> grouped = new HashMap<>();
+        for (Object[] row : userRoleRepository.findAllRoleMemberships()) {
+            grouped.computeIfAbsent((String) row[0], role -> new ArrayList<>()).add((Long) row[1]);
+        }
+
+        Map<String, long[]> snapshot = new HashMap<>();
+        grouped.forEach((role, ids) -> snapshot.put(role, ids.stream().mapToLong(Long::longValue).distinct().toArray()));
+        membersByRole = Map.copyOf(snapshot);
+        log.debug("Role membership loaded: {} roles, {} assignments", snapshot.size(),
+                grouped.values().stream().mapToInt(List::size).sum());
+        return membersByRole;
+    }
+}
@@ -29,6 +29,9 @@ public class RoleService {
     @Autowired
     private UserRoleRepository userRoleRepository;
 
+    @Autowired
+    private RoleMembershipCache roleMembershipCache;
+
     /**
      * Get all available roles in the system
      */
@@ -83,6 +86,7 @@ public class RoleService {
                 .build();
 
         userRoleRepository.save(userRole);
+        roleMembershipCache.invalidate();
 
         // Get all roles of the user
         List<String> userRoles = userRoleRepository.findByUser_UserId(user.getUserId()).stream()
@@ -121,6 +125,7 @@ public class RoleService {
                         "User does not have role: " + roleName));
 
         userRoleRepository.delete(userRole);
+        roleMembershipCache.invalidate();
 
         // Get remaining roles
         List<String> remainingRoles = userRoleRepository.findByUser_UserId(userId).stream()
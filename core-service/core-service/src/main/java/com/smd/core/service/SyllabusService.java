@@ -1,28 +1,43 @@
 package com.smd.core.service;
 
 import com.smd.core.document.SyllabusDocument;
+import com.smd.core.document.SyllabusPageDocument;
 import com.smd.core.dto.*;
 import com.smd.core.entity.*;
+import com.smd.core.event.SyllabusDocumentDeletedEvent;
+import com.smd.core.event.SyllabusDocumentUploadedEvent;
 import com.smd.core.exception.DuplicateResourceException;
 import com.smd.core.exception.InvalidDataException;
 import com.smd.core.exception.ResourceNotFoundException;
 import com.smd.core.repository.*;
+import com.smd.core.util.HashUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -35,6 +50,12 @@ public class SyllabusService {
     @Autowired
     private SyllabusSearchRepository elasticRepo; 
 
+    @Autowired
+    private SyllabusPageSearchRepository pageSearchRepo;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
     
@@ -52,6 +73,15 @@ public class SyllabusService {
     
     @Autowired
     private MaterialRepository materialRepository;
+
+    @Autowired
+    private AiTaskResultStore aiTaskResultStore;
+
+    @Autowired
+    private WorkflowInboxCounter inboxCounter;
+
+    @Autowired
+    private DeadlineReminderScheduler deadlineReminderScheduler;
     
     @Value("${file.upload.path:uploads/syllabus/pdf}")
     private String uploadPath; 
@@ -219,6 +249,19 @@ public class SyllabusService {
                 ));
     }
 
+    // Tóm tắt AI mới nhất của syllabus (chỉ cột summary trong ai_task_result)
+    public String getLatestAiSummary(Long syllabusId) {
+        return aiTaskResultStore.latestSummary(syllabusId);
+    }
+
+    // Tóm tắt AI mới nhất của cả danh sách syllabus (cho list / search, không query từng dòng)
+    public Map<Long, String> getLatestAiSummaries(List<Syllabus> syllabuses) {
+        if (syllabuses.isEmpty()) {
+            return Map.of();
+        }
+        return aiTaskResultStore.latestSummaries(syllabuses.stream().map(Syllabus::getSyllabusId).toList());
+    }
+
     // 2. READ BY ID (with Redis cache)
     @Transactional(readOnly = true)
     public Syllabus getSyllabusById(Long id) {
@@ -275,7 +318,7 @@ public class SyllabusService {
         
         // Convert to DTO using static method
         SyllabusDetailResponse response = SyllabusDetailResponse.fromEntity(
-                syllabus, sessionPlans, assessments, materials);
+                syllabus, sessionPlans, assessments, materials, aiTaskResultStore.latestSummary(syllabusId));
         
         System.out.println("==> [DETAIL SUCCESS] Retrieved detail with " + 
                 response.getSessionPlans().size() + " session plans, " +
@@ -293,17 +336,19 @@ public class SyllabusService {
                     .findBySubjectNameContainingOrSubjectCodeContainingOrFullTextContaining(
                         keyword, keyword, keyword
                     );
-            
-            if (documents.isEmpty()) {
+
+            // Bước 2: Extract IDs từ search results (metadata trước, sau đó nội dung file)
+            Set<Long> idSet = new LinkedHashSet<>();
+            documents.forEach(d -> idSet.add(d.getId()));
+            searchContent(keyword, 50).forEach(hit -> idSet.add(hit.getSyllabusId()));
+
+            if (idSet.isEmpty()) {
                 System.out.println("--> [SEARCH] Không tìm thấy trong Elasticsearch, fallback PostgreSQL");
                 // Fallback: Search trực tiếp trong PostgreSQL
                 return syllabusRepo.searchByKeyword(keyword);
             }
 
-            // Bước 2: Extract IDs từ search results
-            List<Long> ids = documents.stream()
-                    .map(SyllabusDocument::getId)
-                    .collect(Collectors.toList());
+            List<Long> ids = new ArrayList<>(idSet);
             
             // Bước 3: Query PostgreSQL để lấy FULL thông tin (với relationships)
             List<Syllabus> fullResults = syllabusRepo.findAllById(ids);
@@ -318,6 +363,31 @@ public class SyllabusService {
         }
     }
     
+    /**
+     * Search inside extracted document text, one hit per matching page with a highlighted snippet
+     */
+    public List<SyllabusContentHit> searchContent(String keyword, int limit) {
+        try {
+            SearchHits<SyllabusPageDocument> hits = pageSearchRepo.searchByContent(keyword, PageRequest.of(0, limit));
+            List<SyllabusContentHit> results = new ArrayList<>();
+            for (SearchHit<SyllabusPageDocument> hit : hits) {
+                SyllabusPageDocument page = hit.getContent();
+                List<String> fragments = hit.getHighlightField("content");
+                results.add(SyllabusContentHit.builder()
+                        .syllabusId(page.getSyllabusId())
+                        .pageNumber(page.getPageNumber())
+                        .startOffset(page.getStartOffset())
+                        .snippet(fragments.isEmpty() ? null : fragments.get(0))
+                        .score(hit.getScore())
+                        .build());
+            }
+            return results;
+        } catch (Exception e) {
+            System.err.println("--> [SEARCH CONTENT ERROR] " + e.getMessage());
+            return List.of();
+        }
+    }
+    
     // 4. READ ALL
     @Transactional(readOnly = true)
     public List<Syllabus> getAllSyllabuses() {
@@ -332,6 +402,8 @@ public class SyllabusService {
     public Syllabus updateSyllabus(Long id, Syllabus syllabusDetails) {
         Syllabus existing = syllabusRepo.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Syllabus", "syllabusId", id));
+        Syllabus.SyllabusStatus previousStatus = existing.getCurrentStatus();
+        Long previousDepartmentId = WorkflowInboxCounter.departmentOf(existing);
         
         // Update fields
         if (syllabusDetails.getCourse() != null) {
@@ -349,8 +421,11 @@ public class SyllabusService {
         if (syllabusDetails.getVersionNo() != null) {
             existing.setVersionNo(syllabusDetails.getVersionNo());
         }
-        if (syllabusDetails.getCurrentStatus() != null) {
+        boolean statusChanged = syllabusDetails.getCurrentStatus() != null
+                && syllabusDetails.getCurrentStatus() != previousStatus;
+        if (statusChanged) {
             existing.setCurrentStatus(syllabusDetails.getCurrentStatus());
+            existing.setStatusChangedAt(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
         }
         if (syllabusDetails.getDescription() != null) {
             existing.setDescription(syllabusDetails.getDescription());
@@ -358,6 +433,11 @@ public class SyllabusService {
         
         // Save to PostgreSQL
         Syllabus updated = syllabusRepo.save(existing);
+        inboxCounter.move(previousDepartmentId, previousStatus,
+                WorkflowInboxCounter.departmentOf(updated), updated.getCurrentStatus());
+        if (statusChanged) {
+            deadlineReminderScheduler.schedule(List.of(id), updated.getCurrentStatus(), updated.getStatusChangedAt());
+        }
         
         // Update Elasticsearch
         syncToElasticsearch(updated);
@@ -373,12 +453,12 @@ public class SyllabusService {
     // 6. DELETE
     @Transactional
     public void deleteSyllabus(Long id) {
-        if (!syllabusRepo.existsById(id)) {
-            throw new ResourceNotFoundException("Syllabus", "syllabusId", id);
-        }
+        Syllabus existing = syllabusRepo.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Syllabus", "syllabusId", id));
         
         // Delete from PostgreSQL
-        syllabusRepo.deleteById(id);
+        syllabusRepo.delete(existing);
+        inboxCounter.move(WorkflowInboxCounter.departmentOf(existing), existing.getCurrentStatus(), null, null);
         
         // Delete from Elasticsearch
         elasticRepo.deleteById(id);
@@ -589,9 +669,13 @@ public class SyllabusService {
             }
             String newFilename = syllabusId + "_" + UUID.randomUUID().toString() + fileExtension;
             
-            // Save file
+            // Save file (hash computed while streaming to disk)
             Path filePath = uploadDir.resolve(newFilename);
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+            MessageDigest digest = HashUtils.sha256();
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                Files.copy(in, filePath, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String contentHash = HashUtils.toHex(digest);
             System.out.println("==> File saved to: " + filePath.toAbsolutePath());
 
             // Delete old file if exists
@@ -609,7 +693,12 @@ public class SyllabusService {
             syllabus.setPdfFilePath(filePath.toString());
             syllabus.setPdfFileName(originalFilename);
             syllabus.setPdfUploadedAt(LocalDateTime.now());
+            syllabus.setPdfContentHash(contentHash);
             syllabusRepo.save(syllabus);
+
+            // Text extraction / preview chạy sau khi commit
+            eventPublisher.publishEvent(new SyllabusDocumentUploadedEvent(
+                syllabusId, filePath.toString(), originalFilename, contentHash));
             
             // Audit log
             java.util.Map<String, Object> additionalData = new java.util.HashMap<>();
@@ -730,7 +819,10 @@ public class SyllabusService {
             syllabus.setPdfFilePath(null);
             syllabus.setPdfFileName(null);
             syllabus.setPdfUploadedAt(null);
+            syllabus.setPdfContentHash(null);
             syllabusRepo.save(syllabus);
+
+            eventPublisher.publishEvent(new SyllabusDocumentDeletedEvent(syllabusId));
             
             // Audit log
             auditLogService.logAction(
@@ -0,0 +1,252 @@
+package com.smd.core.service;
+
+import com.smd.core.repository.SyllabusRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Background reconciler for the document upload directory.
+ *
+ * Files whose path is no longer referenced by any syllabus (failed delete of the
+ * previous document, rolled back upload...) are first moved to a quarantine folder
+ * once they are older than the grace period, then deleted for good after the
+ * quarantine retention. A quarantined file that becomes referenced again is restored.
+ * Preview artifact directories whose content hash is no longer referenced are removed too.
+ */
+@Service
+@Slf4j
+public class UploadOrphanCollector {
+
+    private static final String QUARANTINE_DIR = ".quarantine";
+
+    private final SyllabusRepository syllabusRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Timer scanTimer;
+    private final Counter freedBytesCounter;
+    private final Counter quarantinedCounter;
+    private final Counter deletedCounter;
+
+    @Value("${file.upload.path:uploads/syllabus/pdf}")
+    private String uploadPath;
+
+    @Value("${file.preview.path:uploads/syllabus/preview}")
+    private String previewPath;
+
+    @Value("${file.upload.gc.enabled:true}")
+    private boolean enabled;
+
+    @Value("${file.upload.gc.grace-period:PT1H}")
+    private Duration gracePeriod;
+
+    @Value("${file.upload.gc.quarantine-retention:P7D}")
+    private Duration quarantineRetention;
+
+    public UploadOrphanCollector(SyllabusRepository syllabusRepository,
+                                 TransactionTemplate transactionTemplate,
+                                 MeterRegistry meterRegistry) {
+        this.syllabusRepository = syllabusRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.scanTimer = Timer.builder("smd.upload.gc.scan")
+                .description("Duration of an upload directory reconciliation pass")
+                .register(meterRegistry);
+        this.freedBytesCounter = Counter.builder("smd.upload.gc.freed")
+                .baseUnit("bytes")
+                .description("Bytes reclaimed by deleting orphaned uploads")
+                .register(meterRegistry);
+        this.quarantinedCounter = Counter.builder("smd.upload.gc.quarantined")
+                .description("Orphaned uploads moved to quarantine")
+                .register(meterRegistry);
+        this.deletedCounter = Counter.builder("smd.upload.gc.deleted")
+                .description("Quarantined uploads deleted permanently")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${file.upload.gc.cron:0 15 * * * *}")
+    public void collect() {
+        if (!enabled) {
+            return;
+        }
+
+        Path uploadDir = Paths.get(uploadPath).toAbsolutePath().normalize();
+        if (!Files.isDirectory(uploadDir)) {
+            return;
+        }
+
+        Timer.Sample sample = Timer.start();
+        try {
+            Set<Path> referenced = loadReferencedPaths();
+            Path quarantineDir = uploadDir.resolve(QUARANTINE_DIR);
+            Files.createDirectories(quarantineDir);
+
+            Instant now = Instant.now();
+            int quarantined = quarantineOrphans(uploadDir, quarantineDir, referenced, now.minus(gracePeriod), now);
+            long freed = purgeQuarantine(uploadDir, quarantineDir, referenced, now.minus(quarantineRetention));
+            freed += purgePreviews(now.minus(gracePeriod));
+
+            log.info("Upload GC finished: {} referenced, {} quarantined, {} bytes freed",
+                    referenced.size(), quarantined, freed);
+        } catch (Exception e) {
+            log.error("Upload GC failed for {}: {}", uploadDir, e.getMessage(), e);
+        } finally {
+            sample.stop(scanTimer);
+        }
+    }
+
+    /**
+     * Stream every pdf_file_path from the DB into a set of normalized absolute paths
+     */
+    private Set<Path> loadReferencedPaths() {
+        Set<Path> referenced = transactionTemplate.execute(status -> {
+            try (Stream<String> paths = syllabusRepository.streamPdfFilePaths()) {
+                Set<Path> result = new HashSet<>();
+                paths.forEach(p -> {
+                    try {
+                        result.add(Paths.get(p).toAbsolutePath().normalize());
+                    } catch (InvalidPathException e) {
+                        log.warn("Skipping invalid stored path: {}", p);
+                    }
+                });
+                return result;
+            }
+        });
+        return referenced != null ? referenced : Set.of();
+    }
+
+    private int quarantineOrphans(Path uploadDir, Path quarantineDir, Set<Path> referenced,
+                                  Instant cutoff, Instant now) throws IOException {
+        List<Path> orphans;
+        try (Stream<Path> files = Files.list(uploadDir)) {
+            orphans = files.parallel()
+                    .filter(Files::isRegularFile)
+                    .filter(p -> !referenced.contains(p.toAbsolutePath().normalize()))
+                    .filter(p -> lastModifiedBefore(p, cutoff))
+                    .collect(Collectors.toList());
+        }
+
+        AtomicInteger moved = new AtomicInteger();
+        orphans.parallelStream().forEach(orphan -> {
+            try {
+                Path target = quarantineDir.resolve(orphan.getFileName());
+                Files.move(orphan, target, StandardCopyOption.REPLACE_EXISTING);
+                // Quarantine retention is counted from the move, not from the upload
+                Files.setLastModifiedTime(target, FileTime.from(now));
+                moved.incrementAndGet();
+                log.info("Quarantined orphaned upload: {}", orphan.getFileName());
+            } catch (IOException e) {
+                log.warn("Could not quarantine {}: {}", orphan, e.getMessage());
+            }
+        });
+
+        quarantinedCounter.increment(moved.get());
+        return moved.get();
+    }
+
+    private long purgeQuarantine(Path uploadDir, Path quarantineDir, Set<Path> referenced,
+                                 Instant cutoff) throws IOException {
+        List<Path> quarantined;
+        try (Stream<Path> files = Files.list(quarantineDir)) {
+            quarantined = files.parallel()
+                    .filter(Files::isRegularFile)
+                    .collect(Collectors.toList());
+        }
+
+        AtomicLong freed = new AtomicLong();
+        quarantined.parallelStream().forEach(file -> {
+            Path original = uploadDir.resolve(file.getFileName());
+            try {
+                if (referenced.contains(original)) {
+                    Files.move(file, original, StandardCopyOption.REPLACE_EXISTING);
+                    log.warn("Restored quarantined upload that is referenced again: {}", original);
+                    return;
+                }
+                if (!lastModifiedBefore(file, cutoff)) {
+                    return;
+                }
+                long size = Files.size(file);
+                if (Files.deleteIfExists(file)) {
+                    freed.addAndGet(size);
+                    deletedCounter.increment();
+                }
+            } catch (IOException e) {
+                log.warn("Could not purge quarantined file {}: {}", file, e.getMessage());
+            }
+        });
+
+        freedBytesCounter.increment(freed.get());
+        return freed.get();
+    }
+
+    /**
+     * Remove preview directories ({hash}/page-N.png) of documents no syllabus points to anymore
+     */
+    private long purgePreviews(Instant cutoff) throws IOException {
+        Path previewDir = Paths.get(previewPath).toAbsolutePath().normalize();
+        if (!Files.isDirectory(previewDir)) {
+            return 0;
+        }
+
+        Set<String> hashes = transactionTemplate.execute(status -> {
+            try (Stream<String> stream = syllabusRepository.streamPdfContentHashes()) {
+                return stream.collect(Collectors.toSet());
+            }
+        });
+        Set<String> referencedHashes = hashes != null ? hashes : Set.of();
+
+        List<Path> stale;
+        try (Stream<Path> dirs = Files.list(previewDir)) {
+            stale = dirs.filter(Files::isDirectory)
+                    .filter(d -> !referencedHashes.contains(d.getFileName().toString()))
+                    .filter(d -> lastModifiedBefore(d, cutoff))
+                    .collect(Collectors.toList());
+        }
+
+        long freed = 0;
+        for (Path dir : stale) {
+            try (Stream<Path> walk = Files.walk(dir)) {
+                for (Path p : walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                    long size = Files.isRegularFile(p) ? Files.size(p) : 0;
+                    Files.deleteIfExists(p);
+                    freed += size;
+                }
+            } catch (IOException e) {
+                log.warn("Could not delete preview artifacts {}: {}", dir, e.getMessage());
+            }
+        }
+
+        freedBytesCounter.increment(freed);
+        return freed;
+    }
+
+    private boolean lastModifiedBefore(Path file, Instant cutoff) {
+        try {
+            return Files.getLastModifiedTime(file).toInstant().isBefore(cutoff);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
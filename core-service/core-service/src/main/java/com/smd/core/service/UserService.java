@@ -31,6 +31,9 @@ public class UserService {
     @Autowired
     private UserRoleRepository userRoleRepository;
 
+    @Autowired
+    private RoleMembershipCache roleMembershipCache;
+
     /**
      * Get all users
      */
@@ -100,6 +103,7 @@ public class UserService {
             userRole.setUser(user);
             userRole.setRole(role);
             user.getUserRoles().add(userRole);
+            roleMembershipCache.invalidate();
         }
 
         User updatedUser = userRepository.save(user);
@@ -114,6 +118,7 @@ public class UserService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "userId", userId));
         userRepository.delete(user);
+        roleMembershipCache.invalidate();
     }
 
     /**
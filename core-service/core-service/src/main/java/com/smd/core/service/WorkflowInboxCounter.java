@@ -0,0 +1,188 @@
+package com.smd.core.service;
+
+import com.smd.core.entity.Syllabus;
+import com.smd.core.entity.Syllabus.SyllabusStatus;
+import com.smd.core.repository.SyllabusRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Bộ đếm hộp thư duyệt (số syllabus đang chờ) trong một Redis hash.
+ *
+ * Field "STATUS" là số toàn hệ thống, "STATUS:dept:{id}" là số theo khoa. Workflow engine
+ * cộng / trừ bằng HINCRBY sau khi transaction commit; đọc badge chỉ là một HMGET.
+ * Recount định kỳ dựng lại toàn bộ hash từ DB để sửa sai lệch (rollback, cập nhật ngoài workflow...).
+ */
+@Service
+@Slf4j
+public class WorkflowInboxCounter {
+
+    private static final String KEY = "workflow:inbox-counts";
+
+    /** Các trạng thái có người đang chờ xử lý */
+    public static final Set<SyllabusStatus> TRACKED = EnumSet.of(
+            SyllabusStatus.PENDING_REVIEW, SyllabusStatus.PENDING_APPROVAL, SyllabusStatus.APPROVED);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final SyllabusRepository syllabusRepository;
+
+    @Value("${workflow.inbox.recount-enabled:true}")
+    private boolean recountEnabled;
+
+    public WorkflowInboxCounter(RedisTemplate<String, Object> redisTemplate,
+                                SyllabusRepository syllabusRepository) {
+        this.redisTemplate = redisTemplate;
+        this.syllabusRepository = syllabusRepository;
+    }
+
+    /**
+     * Một syllabus đổi trạng thái (hoặc khoa); null = không thuộc trạng thái nào (tạo mới / xóa)
+     */
+    public void move(Long fromDepartmentId, SyllabusStatus from, Long toDepartmentId, SyllabusStatus to) {
+        if (from == to && Objects.equals(fromDepartmentId, toDepartmentId)) {
+            return;
+        }
+        Map<String, Long> deltas = new HashMap<>();
+        addDeltas(deltas, fromDepartmentId, from, -1);
+        addDeltas(deltas, toDepartmentId, to, 1);
+        applyAfterCommit(deltas);
+    }
+
+    /**
+     * Batch transition: số syllabus đã chuyển theo từng khoa
+     */
+    public void moveAll(Map<Long, Long> countsByDepartment, SyllabusStatus from, SyllabusStatus to) {
+        Map<String, Long> deltas = new HashMap<>();
+        countsByDepartment.forEach((departmentId, count) -> {
+            addDeltas(deltas, departmentId, from, -count);
+            addDeltas(deltas, departmentId, to, count);
+        });
+        applyAfterCommit(deltas);
+    }
+
+    public long count(SyllabusStatus status) {
+        return get(List.of(status.name())).get(0);
+    }
+
+    public long count(SyllabusStatus status, Long departmentId) {
+        return get(List.of(departmentField(status, departmentId))).get(0);
+    }
+
+    /**
+     * Dựng lại hash từ DB: ghi vào key tạm rồi RENAME để người đọc không thấy hash rỗng
+     */
+    @Scheduled(fixedDelayString = "${workflow.inbox.recount-interval:PT15M}",
+               initialDelayString = "${workflow.inbox.recount-initial-delay:PT1M}")
+    public void scheduledRecount() {
+        if (recountEnabled) {
+            recount();
+        }
+    }
+
+    public Map<String, Long> recount() {
+        Map<String, Long> counts = new HashMap<>();
+        for (SyllabusStatus status : TRACKED) {
+            counts.put(status.name(), 0L);
+        }
+        for (Object[] row : syllabusRepository.countByStatusAndDepartment(TRACKED)) {
+            Long departmentId = (Long) row[0];
+            SyllabusStatus status = (SyllabusStatus) row[1];
+            long count = ((Number) row[2]).longValue();
+            counts.merge(status.name(), count, Long::sum);
+            if (departmentId != null) {
+                counts.put(departmentField(status, departmentId), count);
+            }
+        }
+
+        try {
+            String tmpKey = KEY + ":rebuild";
+            redisTemplate.delete(tmpKey);
+            redisTemplate.opsForHash().putAll(tmpKey, counts);
+            redisTemplate.rename(tmpKey, KEY);
+            log.debug("Workflow inbox counters rebuilt: {} fields", counts.size());
+        } catch (Exception e) {
+            log.warn("Could not rebuild workflow inbox counters: {}", e.getMessage());
+        }
+        return counts;
+    }
+
+    private List<Long> get(List<String> fields) {
+        try {
+            if (Boolean.TRUE.equals(redisTemplate.hasKey(KEY))) {
+                List<Object> values = redisTemplate.opsForHash().multiGet(KEY, new ArrayList<>(fields));
+                List<Long> result = new ArrayList<>(values.size());
+                for (Object value : values) {
+                    result.add(value instanceof Number n ? Math.max(0, n.longValue()) : 0L);
+                }
+                return result;
+            }
+        } catch (Exception e) {
+            log.warn("Workflow inbox counters unavailable, counting from DB: {}", e.getMessage());
+        }
+        // Redis trống (mới khởi động / bị flush) hoặc lỗi: đếm lại một lần
+        Map<String, Long> counts = recount();
+        return fields.stream().map(f -> counts.getOrDefault(f, 0L)).toList();
+    }
+
+    private void applyAfterCommit(Map<String, Long> deltas) {
+        deltas.values().removeIf(delta -> delta == 0);
+        if (deltas.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(deltas);
+                }
+            });
+        } else {
+            apply(deltas);
+        }
+    }
+
+    private void apply(Map<String, Long> deltas) {
+        try {
+            // Hash chưa được dựng: bỏ qua, lần đọc đầu tiên sẽ recount
+            if (!Boolean.TRUE.equals(redisTemplate.hasKey(KEY))) {
+                return;
+            }
+            deltas.forEach((field, delta) -> redisTemplate.opsForHash().increment(KEY, field, delta));
+        } catch (Exception e) {
+            log.warn("Could not update workflow inbox counters (recount will repair): {}", e.getMessage());
+        }
+    }
+
+    private static void addDeltas(Map<String, Long> deltas, Long departmentId, SyllabusStatus status, long delta) {
+        if (status == null || !TRACKED.contains(status)) {
+            return;
+        }
+        deltas.merge(status.name(), delta, Long::sum);
+        if (departmentId != null) {
+            deltas.merge(departmentField(status, departmentId), delta, Long::sum);
+        }
+    }
+
+    private static String departmentField(SyllabusStatus status, Long departmentId) {
+        return status.name() + ":dept:" + departmentId;
+    }
+
+    public static Long departmentOf(Syllabus syllabus) {
+        return syllabus.getCourse() != null && syllabus.getCourse().getDepartment() != null
+                ? syllabus.getCourse().getDepartment().getDepartmentId()
+                : null;
+    }
+}
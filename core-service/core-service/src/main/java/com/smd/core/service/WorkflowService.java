@@ -1,24 +1,41 @@
 package com.smd.core.service;
 
+import com.smd.core.dto.WorkflowBatchItemResult;
+import com.smd.core.dto.WorkflowInboxResponse;
 import com.smd.core.dto.WorkflowTransitionRequest;
 import com.smd.core.dto.WorkflowTransitionResponse;
 import com.smd.core.entity.*;
 import com.smd.core.entity.Syllabus.SyllabusStatus;
-import com.smd.core.entity.SyllabusAuditLog;
 import com.smd.core.entity.SyllabusWorkflowHistory.WorkflowAction;
+import com.smd.core.event.WorkflowBatchTransitionedEvent;
+import com.smd.core.exception.ConflictException;
 import com.smd.core.exception.InvalidDataException;
 import com.smd.core.exception.ResourceNotFoundException;
 import com.smd.core.exception.UnauthorizedException;
 import com.smd.core.repository.*;
+import com.smd.core.service.WorkflowTransitions.Actor;
+import com.smd.core.service.WorkflowTransitions.Command;
+import com.smd.core.service.WorkflowTransitions.Transition;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -31,7 +48,22 @@ public class WorkflowService {
     private SyllabusWorkflowHistoryRepository workflowHistoryRepository;
     
     @Autowired
-    private WorkflowStepRepository workflowStepRepository;
+    private WorkflowStepCache workflowStepCache;
+    
+    @Autowired
+    private WorkflowBatchJdbcRepository workflowBatchJdbcRepository;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private WorkflowInboxCounter inboxCounter;
+    
+    @Autowired
+    private DeadlineReminderScheduler deadlineReminderScheduler;
+    
+    @Value("${workflow.batch.max-items:200}")
+    private int batchMaxItems;
     
     @Autowired
     private UserRepository userRepository;
@@ -50,53 +82,7 @@ public class WorkflowService {
      */
     @Transactional
     public WorkflowTransitionResponse submitForReview(WorkflowTransitionRequest request, String username) {
-        log.info("Lecturer {} submitting syllabus {} for review", username, request.getSyllabusId());
-        
-        Syllabus syllabus = getSyllabusOrThrow(request.getSyllabusId());
-        User user = getUserOrThrow(username);
-        
-        // Validate: Only LECTURER can submit
-        validateUserHasRole(user, "LECTURER");
-        
-        // Validate: Only owner can submit
-        if (!syllabus.getLecturer().getUserId().equals(user.getUserId())) {
-            throw new UnauthorizedException("You can only submit your own syllabus");
-        }
-        
-        // Validate: Must be in DRAFT status
-        if (syllabus.getCurrentStatus() != SyllabusStatus.DRAFT) {
-            throw new InvalidDataException("Syllabus must be in DRAFT status to submit for review. Current status: " + syllabus.getCurrentStatus());
-        }
-        
-        // Update status
-        String previousStatus = syllabus.getCurrentStatus().name();
-        syllabus.setCurrentStatus(SyllabusStatus.PENDING_REVIEW);
-        syllabusRepository.save(syllabus);
-        
-        // Record history
-        recordWorkflowHistory(syllabus, user, WorkflowAction.SUBMIT, "Pending Review", request.getComment());
-        
-        // Audit log
-        auditLogService.logStatusChange(
-            syllabus,
-            SyllabusAuditLog.AuditAction.SUBMIT_FOR_REVIEW.name(),
-            username,
-            previousStatus,
-            SyllabusStatus.PENDING_REVIEW.name(),
-            request.getComment()
-        );
-        
-        // Send notification to HOD
-        notificationService.notifySyllabusSubmitted(syllabus, username);
-        
-        return WorkflowTransitionResponse.fromSyllabus(
-            syllabus, 
-            previousStatus, 
-            "SUBMIT", 
-            username,
-            request.getComment(),
-            "Syllabus submitted for HOD review successfully"
-        );
+        return transition(request, username, Actor.LECTURER, Command.SUBMIT);
     }
     
     /**
@@ -104,48 +90,7 @@ public class WorkflowService {
      */
     @Transactional
     public WorkflowTransitionResponse approveByHOD(WorkflowTransitionRequest request, String username) {
-        log.info("HOD {} approving syllabus {}", username, request.getSyllabusId());
-        
-        Syllabus syllabus = getSyllabusOrThrow(request.getSyllabusId());
-        User user = getUserOrThrow(username);
-        
-        // Validate: Only HEAD_OF_DEPARTMENT can approve
-        validateUserHasRole(user, "HEAD_OF_DEPARTMENT");
-        
-        // Validate: Must be in PENDING_REVIEW status
-        if (syllabus.getCurrentStatus() != SyllabusStatus.PENDING_REVIEW) {
-            throw new InvalidDataException("Syllabus must be in PENDING_REVIEW status. Current status: " + syllabus.getCurrentStatus());
-        }
-        
-        // Update status
-        String previousStatus = syllabus.getCurrentStatus().name();
-        syllabus.setCurrentStatus(SyllabusStatus.PENDING_APPROVAL);
-        syllabusRepository.save(syllabus);
-        
-        // Record history
-        recordWorkflowHistory(syllabus, user, WorkflowAction.APPROVE, "Pending Approval", request.getComment());
-        
-        // Audit log
-        auditLogService.logStatusChange(
-            syllabus,
-            SyllabusAuditLog.AuditAction.HOD_APPROVE.name(),
-            username,
-            previousStatus,
-            SyllabusStatus.PENDING_APPROVAL.name(),
-            request.getComment()
-        );
-        
-        // Send notifications (to lecturer and AA)
-        notificationService.notifyHODApproved(syllabus, username);
-        
-        return WorkflowTransitionResponse.fromSyllabus(
-            syllabus, 
-            previousStatus, 
-            "APPROVE", 
-            username,
-            request.getComment(),
-            "Syllabus approved by HOD, now pending Academic Affairs approval"
-        );
+        return transition(request, username, Actor.HEAD_OF_DEPARTMENT, Command.APPROVE);
     }
     
     /**
@@ -153,48 +98,7 @@ public class WorkflowService {
      */
     @Transactional
     public WorkflowTransitionResponse rejectByHOD(WorkflowTransitionRequest request, String username) {
-        log.info("HOD {} rejecting syllabus {}", username, request.getSyllabusId());
-        
-        Syllabus syllabus = getSyllabusOrThrow(request.getSyllabusId());
-        User user = getUserOrThrow(username);
-        
-        // Validate: Only HEAD_OF_DEPARTMENT can reject
-        validateUserHasRole(user, "HEAD_OF_DEPARTMENT");
-        
-        // Validate: Must be in PENDING_REVIEW status
-        if (syllabus.getCurrentStatus() != SyllabusStatus.PENDING_REVIEW) {
-            throw new InvalidDataException("Syllabus must be in PENDING_REVIEW status. Current status: " + syllabus.getCurrentStatus());
-        }
-        
-        // Update status - Return to DRAFT
-        String previousStatus = syllabus.getCurrentStatus().name();
-        syllabus.setCurrentStatus(SyllabusStatus.DRAFT);
-        syllabusRepository.save(syllabus);
-        
-        // Record history
-        recordWorkflowHistory(syllabus, user, WorkflowAction.REJECT, "Draft", request.getComment());
-        
-        // Audit log
-        auditLogService.logStatusChange(
-            syllabus,
-            SyllabusAuditLog.AuditAction.HOD_REJECT.name(),
-            username,
-            previousStatus,
-            SyllabusStatus.DRAFT.name(),
-            request.getComment()
-        );
-        
-        // Send notification to lecturer
-        notificationService.notifyHODRejected(syllabus, username, request.getComment());
-        
-        return WorkflowTransitionResponse.fromSyllabus(
-            syllabus, 
-            previousStatus, 
-            "REJECT", 
-            username,
-            request.getComment(),
-            "Syllabus rejected by HOD, returned to DRAFT for revision"
-        );
+        return transition(request, username, Actor.HEAD_OF_DEPARTMENT, Command.REJECT);
     }
     
     /**
@@ -202,48 +106,7 @@ public class WorkflowService {
      */
     @Transactional
     public WorkflowTransitionResponse approveByAA(WorkflowTransitionRequest request, String username) {
-        log.info("Academic Affairs {} approving syllabus {}", username, request.getSyllabusId());
-        
-        Syllabus syllabus = getSyllabusOrThrow(request.getSyllabusId());
-        User user = getUserOrThrow(username);
-        
-        // Validate: Only ACADEMIC_AFFAIRS can approve
-        validateUserHasRole(user, "ACADEMIC_AFFAIRS");
-        
-        // Validate: Must be in PENDING_APPROVAL status
-        if (syllabus.getCurrentStatus() != SyllabusStatus.PENDING_APPROVAL) {
-            throw new InvalidDataException("Syllabus must be in PENDING_APPROVAL status. Current status: " + syllabus.getCurrentStatus());
-        }
-        
-        // Update status
-        String previousStatus = syllabus.getCurrentStatus().name();
-        syllabus.setCurrentStatus(SyllabusStatus.APPROVED);
-        syllabusRepository.save(syllabus);
-        
-        // Record history
-        recordWorkflowHistory(syllabus, user, WorkflowAction.APPROVE, "Approved", request.getComment());
-        
-        // Audit log
-        auditLogService.logStatusChange(
-            syllabus,
-            SyllabusAuditLog.AuditAction.AA_APPROVE.name(),
-            username,
-            previousStatus,
-            SyllabusStatus.APPROVED.name(),
-            request.getComment()
-        );
-        
-        // Send notifications (to lecturer and Principal)
-        notificationService.notifyAAApproved(syllabus, username);
-        
-        return WorkflowTransitionResponse.fromSyllabus(
-            syllabus, 
-            previousStatus, 
-            "APPROVE", 
-            username,
-            request.getComment(),
-            "Syllabus approved by Academic Affairs, now pending Principal approval"
-        );
+        return transition(request, username, Actor.ACADEMIC_AFFAIRS, Command.APPROVE);
     }
     
     /**
@@ -251,48 +114,7 @@ public class WorkflowService {
      */
     @Transactional
     public WorkflowTransitionResponse rejectByAA(WorkflowTransitionRequest request, String username) {
-        log.info("Academic Affairs {} rejecting syllabus {}", username, request.getSyllabusId());
-        
-        Syllabus syllabus = getSyllabusOrThrow(request.getSyllabusId());
-        User user = getUserOrThrow(username);
-        
-        // Validate: Only ACADEMIC_AFFAIRS can reject
-        validateUserHasRole(user, "ACADEMIC_AFFAIRS");
-        
-        // Validate: Must be in PENDING_APPROVAL status
-        if (syllabus.getCurrentStatus() != SyllabusStatus.PENDING_APPROVAL) {
-            throw new InvalidDataException("Syllabus must be in PENDING_APPROVAL status. Current status: " + syllabus.getCurrentStatus());
-        }
-        
-        // Update status - Return to PENDING_REVIEW for HOD to review again
-        String previousStatus = syllabus.getCurrentStatus().name();
-        syllabus.setCurrentStatus(SyllabusStatus.PENDING_REVIEW);
-        syllabusRepository.save(syllabus);
-        
-        // Record history
-        recordWorkflowHistory(syllabus, user, WorkflowAction.REJECT, "Pending Review", request.getComment());
-        
-        // Audit log
-        auditLogService.logStatusChange(
-            syllabus,
-            SyllabusAuditLog.AuditAction.AA_REJECT.name(),
-            username,
-            previousStatus,
-            SyllabusStatus.PENDING_REVIEW.name(),
-            request.getComment()
-        );
-        
-        // Send notification to lecturer
-        notificationService.notifyAARejected(syllabus, username, request.getComment());
-        
-        return WorkflowTransitionResponse.fromSyllabus(
-            syllabus, 
-            previousStatus, 
-            "REJECT", 
-            username,
-            request.getComment(),
-            "Syllabus rejected by Academic Affairs, returned to PENDING_REVIEW"
-        );
+        return transition(request, username, Actor.ACADEMIC_AFFAIRS, Command.REJECT);
     }
     
     /**
@@ -300,98 +122,169 @@ public class WorkflowService {
      */
     @Transactional
     public WorkflowTransitionResponse approveByPrincipal(WorkflowTransitionRequest request, String username) {
-        log.info("Principal {} approving syllabus {}", username, request.getSyllabusId());
+        return transition(request, username, Actor.PRINCIPAL, Command.APPROVE);
+    }
+    
+    /**
+     * PRINCIPAL: Reject syllabus (APPROVED -> PENDING_APPROVAL)
+     */
+    @Transactional
+    public WorkflowTransitionResponse rejectByPrincipal(WorkflowTransitionRequest request, String username) {
+        return transition(request, username, Actor.PRINCIPAL, Command.REJECT);
+    }
+    
+    /**
+     * Generic transition engine driven by {@link WorkflowTransitions}.
+     * Per call: load syllabus, load user, update syllabus, insert history (step from cache),
+     * insert audit log, then the notifications of the transition.
+     */
+    @Transactional
+    public WorkflowTransitionResponse transition(WorkflowTransitionRequest request, String username,
+                                                 Actor actor, Command command) {
+        Transition transition = WorkflowTransitions.find(actor, command)
+                .orElseThrow(() -> new InvalidDataException(actor + " cannot " + command + " a syllabus"));
+        log.info("{} {} {} syllabus {}", actor, username, command, request.getSyllabusId());
         
         Syllabus syllabus = getSyllabusOrThrow(request.getSyllabusId());
         User user = getUserOrThrow(username);
         
-        // Validate: Only PRINCIPAL can approve
-        validateUserHasRole(user, "PRINCIPAL");
+        validateUserHasRole(user, actor.name());
         
-        // Validate: Must be in APPROVED status
-        if (syllabus.getCurrentStatus() != SyllabusStatus.APPROVED) {
-            throw new InvalidDataException("Syllabus must be in APPROVED status. Current status: " + syllabus.getCurrentStatus());
+        // Validate: Only owner can submit
+        if (transition.ownerOnly() && !syllabus.getLecturer().getUserId().equals(user.getUserId())) {
+            throw new UnauthorizedException("You can only submit your own syllabus");
+        }
+        
+        if (request.getExpectedVersion() != null && !request.getExpectedVersion().equals(syllabus.getLockVersion())) {
+            throw new ConflictException("Syllabus " + syllabus.getSyllabusId() + " was modified concurrently (expected version "
+                    + request.getExpectedVersion() + ", current " + syllabus.getLockVersion() + ")");
+        }
+        
+        if (syllabus.getCurrentStatus() != transition.from()) {
+            throw new InvalidDataException("Syllabus must be in " + transition.from()
+                    + " status. Current status: " + syllabus.getCurrentStatus());
         }
         
         // Update status
         String previousStatus = syllabus.getCurrentStatus().name();
-        syllabus.setCurrentStatus(SyllabusStatus.PUBLISHED);
-        syllabus.setPublishedAt(LocalDateTime.now());
-        syllabusRepository.save(syllabus);
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        syllabus.setCurrentStatus(transition.to());
+        syllabus.setStatusChangedAt(now);
+        if (transition.to() == SyllabusStatus.PUBLISHED) {
+            syllabus.setPublishedAt(now);
+        }
+        // Flush ngay: xung đột @Version bị phát hiện trước khi ghi history / audit / notification
+        syllabusRepository.saveAndFlush(syllabus);
+        Long departmentId = WorkflowInboxCounter.departmentOf(syllabus);
+        inboxCounter.move(departmentId, transition.from(), departmentId, transition.to());
+        deadlineReminderScheduler.schedule(List.of(syllabus.getSyllabusId()), transition.to(), now);
         
         // Record history
-        recordWorkflowHistory(syllabus, user, WorkflowAction.PUBLISH, "Published", request.getComment());
+        recordWorkflowHistory(syllabus, user, transition.historyAction(), transition.stepName(), request.getComment());
         
-        // Audit log
+        // Audit log (vai trò đã biết từ bảng chuyển trạng thái, không cần tra lại user)
         auditLogService.logStatusChange(
             syllabus,
-            SyllabusAuditLog.AuditAction.PRINCIPAL_APPROVE.name(),
+            transition.auditAction().name(),
             username,
+            actor.name(),
             previousStatus,
-            SyllabusStatus.PUBLISHED.name(),
+            transition.to().name(),
             request.getComment()
         );
         
-        // Send notification to lecturer
-        notificationService.notifySyllabusPublished(syllabus, username);
+        transition.notifier().notify(notificationService, syllabus, username, request.getComment());
         
         return WorkflowTransitionResponse.fromSyllabus(
             syllabus, 
             previousStatus, 
-            "PUBLISH", 
+            transition.responseAction(), 
             username,
             request.getComment(),
-            "Syllabus published successfully by Principal"
+            transition.message()
         );
     }
     
     /**
-     * PRINCIPAL: Reject syllabus (APPROVED -> PENDING_APPROVAL)
+     * Batch transition: one validation query, one set-based UPDATE, JDBC-batched history and audit rows.
+     * Notifications are created in bulk after commit. Ineligible syllabuses are reported per item
+     * and do not fail the rest of the batch.
      */
     @Transactional
-    public WorkflowTransitionResponse rejectByPrincipal(WorkflowTransitionRequest request, String username) {
-        log.info("Principal {} rejecting syllabus {}", username, request.getSyllabusId());
+    public List<WorkflowBatchItemResult> transitionBatch(List<Long> syllabusIds, Command command,
+                                                         Actor requestedRole, String comment, String username) {
+        Set<Long> ids = new LinkedHashSet<>(syllabusIds);
+        if (ids.isEmpty()) {
+            throw new InvalidDataException("syllabusIds must not be empty");
+        }
+        if (ids.size() > batchMaxItems) {
+            throw new InvalidDataException("At most " + batchMaxItems + " syllabuses per batch");
+        }
         
-        Syllabus syllabus = getSyllabusOrThrow(request.getSyllabusId());
         User user = getUserOrThrow(username);
-        
-        // Validate: Only PRINCIPAL can reject
-        validateUserHasRole(user, "PRINCIPAL");
-        
-        // Validate: Must be in APPROVED status
-        if (syllabus.getCurrentStatus() != SyllabusStatus.APPROVED) {
-            throw new InvalidDataException("Syllabus must be in APPROVED status. Current status: " + syllabus.getCurrentStatus());
+        Actor actor = resolveActor(user, command, requestedRole);
+        Transition transition = WorkflowTransitions.find(actor, command)
+                .orElseThrow(() -> new InvalidDataException(actor + " cannot " + command + " a syllabus"));
+        log.info("{} {} {} {} syllabuses (batch)", actor, username, command, ids.size());
+        
+        Map<Long, String> errors = new HashMap<>();
+        List<Long> eligible = new ArrayList<>();
+        Map<Long, Object[]> states = new HashMap<>();
+        for (Object[] row : syllabusRepository.findWorkflowStates(ids)) {
+            states.put((Long) row[0], row);
+        }
+        for (Long id : ids) {
+            Object[] state = states.get(id);
+            if (state == null) {
+                errors.put(id, "Syllabus not found");
+            } else if (state[1] != transition.from()) {
+                errors.put(id, "Syllabus must be in " + transition.from() + " status. Current status: " + state[1]);
+            } else if (transition.ownerOnly() && !user.getUserId().equals(state[2])) {
+                errors.put(id, "You can only submit your own syllabus");
+            } else {
+                eligible.add(id);
+            }
         }
         
-        // Update status - Return to PENDING_APPROVAL for AA to review again
-        String previousStatus = syllabus.getCurrentStatus().name();
-        syllabus.setCurrentStatus(SyllabusStatus.PENDING_APPROVAL);
-        syllabusRepository.save(syllabus);
-        
-        // Record history
-        recordWorkflowHistory(syllabus, user, WorkflowAction.REJECT, "Pending Approval", request.getComment());
-        
-        // Audit log
-        auditLogService.logStatusChange(
-            syllabus,
-            SyllabusAuditLog.AuditAction.PRINCIPAL_REJECT.name(),
-            username,
-            previousStatus,
-            SyllabusStatus.PENDING_APPROVAL.name(),
-            request.getComment()
-        );
+        // Cắt về micro giây như cột timestamp của Postgres (status_changed_at được so sánh với lịch nhắc)
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        List<Long> updated = workflowBatchJdbcRepository.updateStatus(eligible, transition.from().name(),
+                transition.to().name(), now, transition.to() == SyllabusStatus.PUBLISHED);
+        Set<Long> updatedIds = new HashSet<>(updated);
+        for (Long id : eligible) {
+            if (!updatedIds.contains(id)) {
+                errors.put(id, "Syllabus status was changed concurrently");
+            }
+        }
         
-        // Send notification to lecturer
-        notificationService.notifyPrincipalRejected(syllabus, username, request.getComment());
+        if (!updated.isEmpty()) {
+            WorkflowStep step = workflowStepCache.get(transition.stepName());
+            workflowBatchJdbcRepository.insertHistory(updated, step.getStepId(), user.getUserId(),
+                    transition.historyAction().name(), comment, now);
+            auditLogService.logStatusChanges(updated, transition.auditAction().name(), username, actor.name(),
+                    transition.from().name(), transition.to().name(), comment);
+            eventPublisher.publishEvent(new WorkflowBatchTransitionedEvent(transition, updated, username, comment));
+            
+            Map<Long, Long> byDepartment = new HashMap<>();
+            for (Long id : updated) {
+                byDepartment.merge((Long) states.get(id)[3], 1L, Long::sum);
+            }
+            inboxCounter.moveAll(byDepartment, transition.from(), transition.to());
+            deadlineReminderScheduler.schedule(updated, transition.to(), now);
+        }
         
-        return WorkflowTransitionResponse.fromSyllabus(
-            syllabus, 
-            previousStatus, 
-            "REJECT", 
-            username,
-            request.getComment(),
-            "Syllabus rejected by Principal, returned to PENDING_APPROVAL"
-        );
+        List<WorkflowBatchItemResult> results = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            String error = errors.get(id);
+            results.add(WorkflowBatchItemResult.builder()
+                    .syllabusId(id)
+                    .success(error == null)
+                    .previousStatus(states.containsKey(id) ? String.valueOf(states.get(id)[1]) : null)
+                    .newStatus(error == null ? transition.to().name() : null)
+                    .error(error)
+                    .build());
+        }
+        return results;
     }
     
     /**
@@ -406,37 +299,50 @@ public class WorkflowService {
      * Get syllabuses by status for a user
      */
     @Transactional(readOnly = true)
-    public List<Syllabus> getSyllabusesByStatus(SyllabusStatus status, String username) {
+    public Page<Syllabus> getSyllabusesByStatus(SyllabusStatus status, String username, Pageable pageable) {
         User user = getUserOrThrow(username);
-        Set<String> roleNames = user.getUserRoles().stream()
-                .map(ur -> ur.getRole().getRoleName())
-                .collect(Collectors.toSet());
-        
-        List<Syllabus> syllabuses = syllabusRepository.findByCurrentStatus(status);
         
-        // Filter based on role
-        if (roleNames.contains("ADMIN") || roleNames.contains("ACADEMIC_AFFAIRS") || roleNames.contains("PRINCIPAL")) {
+        // Filter based on role (trong query, không load cả trạng thái rồi lọc bằng Java)
+        if (hasRole(user, "ADMIN") || hasRole(user, "ACADEMIC_AFFAIRS") || hasRole(user, "PRINCIPAL")) {
             // ADMIN, AA, and PRINCIPAL can see all
-            return syllabuses;
-        } else if (roleNames.contains("HEAD_OF_DEPARTMENT")) {
+            return syllabusRepository.findByCurrentStatus(status, pageable);
+        } else if (hasRole(user, "HEAD_OF_DEPARTMENT")) {
             // HOD can see syllabuses from their department
             if (user.getDepartment() != null) {
-                return syllabuses.stream()
-                        .filter(s -> s.getCourse() != null && 
-                                    s.getCourse().getDepartment() != null &&
-                                    s.getCourse().getDepartment().getDepartmentId()
-                                            .equals(user.getDepartment().getDepartmentId()))
-                        .collect(Collectors.toList());
+                return syllabusRepository.findByCurrentStatusAndDepartment(
+                        status, user.getDepartment().getDepartmentId(), pageable);
             }
-            return List.of();
-        } else if (roleNames.contains("LECTURER")) {
+            return Page.empty(pageable);
+        } else if (hasRole(user, "LECTURER")) {
             // LECTURER can only see their own
-            return syllabuses.stream()
-                    .filter(s -> s.getLecturer().getUserId().equals(user.getUserId()))
-                    .collect(Collectors.toList());
+            return syllabusRepository.findByCurrentStatusAndLecturer_UserId(status, user.getUserId(), pageable);
         }
         
-        return List.of();
+        return Page.empty(pageable);
+    }
+    
+    /**
+     * Badge "đang chờ tôi xử lý" cho dashboard, đọc từ bộ đếm (không load danh sách)
+     */
+    public WorkflowInboxResponse getInboxCounts(String username) {
+        User user = getUserOrThrow(username);
+        boolean admin = hasRole(user, "ADMIN");
+        WorkflowInboxResponse.WorkflowInboxResponseBuilder builder = WorkflowInboxResponse.builder();
+        
+        if (hasRole(user, "HEAD_OF_DEPARTMENT") && user.getDepartment() != null) {
+            Long departmentId = user.getDepartment().getDepartmentId();
+            builder.departmentId(departmentId)
+                    .pendingReview(inboxCounter.count(SyllabusStatus.PENDING_REVIEW, departmentId));
+        } else if (admin) {
+            builder.pendingReview(inboxCounter.count(SyllabusStatus.PENDING_REVIEW));
+        }
+        if (admin || hasRole(user, "ACADEMIC_AFFAIRS")) {
+            builder.pendingApproval(inboxCounter.count(SyllabusStatus.PENDING_APPROVAL));
+        }
+        if (admin || hasRole(user, "PRINCIPAL")) {
+            builder.awaitingPublication(inboxCounter.count(SyllabusStatus.APPROVED));
+        }
+        return builder.build();
     }
     
     // ==================== HELPER METHODS ====================
@@ -451,26 +357,50 @@ public class WorkflowService {
                 .orElseThrow(() -> new ResourceNotFoundException("User", "username", username));
     }
     
+    /**
+     * Vai trò thực hiện batch: vai trò được chỉ định, hoặc vai trò duy nhất của user có thể làm action này
+     */
+    private Actor resolveActor(User user, Command command, Actor requestedRole) {
+        if (requestedRole != null) {
+            validateUserHasRole(user, requestedRole.name());
+            return requestedRole;
+        }
+        List<Actor> candidates = new ArrayList<>();
+        for (Actor actor : Actor.values()) {
+            if (WorkflowTransitions.find(actor, command).isPresent() && hasRole(user, actor.name())) {
+                candidates.add(actor);
+            }
+        }
+        if (candidates.isEmpty()) {
+            throw new UnauthorizedException("You do not have a role that can " + command + " syllabuses");
+        }
+        if (candidates.size() > 1) {
+            throw new InvalidDataException("Multiple roles can " + command + " syllabuses, specify one of " + candidates);
+        }
+        return candidates.get(0);
+    }
+    
     private void validateUserHasRole(User user, String requiredRole) {
-        boolean hasRole = user.getUserRoles().stream()
-                .anyMatch(ur -> ur.getRole().getRoleName().equals(requiredRole));
-        
-        if (!hasRole) {
+        if (!hasRole(user, requiredRole)) {
             throw new UnauthorizedException("You must have " + requiredRole + " role to perform this action");
         }
     }
     
+    private boolean hasRole(User user, String requiredRole) {
+        // Trong request: dùng authorities đã nạp bởi JwtAuthenticationFilter, không duyệt lại userRoles
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && user.getUsername().equals(authentication.getName())) {
+            String authority = "ROLE_" + requiredRole;
+            return authentication.getAuthorities().stream()
+                    .anyMatch(a -> authority.equals(a.getAuthority()));
+        }
+        return user.getUserRoles().stream()
+                .anyMatch(ur -> ur.getRole().getRoleName().equals(requiredRole));
+    }
+    
     private void recordWorkflowHistory(Syllabus syllabus, User user, WorkflowAction action, 
                                       String stepName, String comment) {
-        // Get or create workflow step
-        WorkflowStep step = workflowStepRepository.findByStepName(stepName)
-                .orElseGet(() -> {
-                    WorkflowStep newStep = WorkflowStep.builder()
-                            .stepName(stepName)
-                            .stepOrder(getStepOrder(stepName))
-                            .build();
-                    return workflowStepRepository.save(newStep);
-                });
+        WorkflowStep step = workflowStepCache.get(stepName);
         
         // Create history record
         SyllabusWorkflowHistory history = SyllabusWorkflowHistory.builder()
@@ -484,15 +414,4 @@ public class WorkflowService {
         workflowHistoryRepository.save(history);
         log.info("Recorded workflow history: {} by {} on syllabus {}", action, user.getUsername(), syllabus.getSyllabusId());
     }
-    
-    private Integer getStepOrder(String stepName) {
-        return switch (stepName) {
-            case "Draft" -> 1;
-            case "Pending Review" -> 2;
-            case "Pending Approval" -> 3;
-            case "Approved" -> 4;
-            case "Published" -> 5;
-            default -> 0;
-        };
-    }
 }
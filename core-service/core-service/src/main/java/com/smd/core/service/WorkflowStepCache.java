@@ -0,0 +1,48 @@
+package com.smd.core.service;
+
+import com.smd.core.entity.WorkflowStep;
+import com.smd.core.repository.WorkflowStepRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache WorkflowStep theo tên: các bước gần như không đổi nên chỉ đọc DB một lần cho mỗi bước.
+ * Bước chưa có được tạo trong transaction riêng để id trong cache không bị mất khi transaction
+ * của workflow rollback.
+ */
+@Component
+@Slf4j
+public class WorkflowStepCache {
+
+    private final WorkflowStepRepository workflowStepRepository;
+    private final TransactionTemplate requiresNew;
+    private final Map<String, WorkflowStep> steps = new ConcurrentHashMap<>();
+
+    public WorkflowStepCache(WorkflowStepRepository workflowStepRepository,
+                             PlatformTransactionManager transactionManager) {
+        this.workflowStepRepository = workflowStepRepository;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public WorkflowStep get(String stepName) {
+        return steps.computeIfAbsent(stepName, this::loadOrCreate);
+    }
+
+    private WorkflowStep loadOrCreate(String stepName) {
+        return requiresNew.execute(status -> workflowStepRepository.findByStepName(stepName)
+                .orElseGet(() -> {
+                    log.info("Creating workflow step '{}'", stepName);
+                    return workflowStepRepository.save(WorkflowStep.builder()
+                            .stepName(stepName)
+                            .stepOrder(WorkflowTransitions.stepOrder(stepName))
+                            .build());
+                }));
+    }
+}
@@ -0,0 +1,136 @@
+package com.smd.core.service;
+
+import com.smd.core.entity.Syllabus;
+import com.smd.core.entity.Syllabus.SyllabusStatus;
+import com.smd.core.entity.SyllabusAuditLog.AuditAction;
+import com.smd.core.entity.SyllabusWorkflowHistory.WorkflowAction;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Bảng chuyển trạng thái của quy trình duyệt syllabus (immutable, dựng một lần khi load class).
+ *
+ * (vai trò, hành động) -> (trạng thái nguồn, trạng thái đích, bước workflow, audit action, thông báo).
+ * WorkflowService chỉ tra bảng này rồi chạy các side effect chung, không còn một method riêng cho từng bước.
+ */
+public final class WorkflowTransitions {
+
+    /**
+     * Vai trò thực hiện chuyển trạng thái (tên trùng với Role.roleName)
+     */
+    public enum Actor {
+        LECTURER,
+        HEAD_OF_DEPARTMENT,
+        ACADEMIC_AFFAIRS,
+        PRINCIPAL
+    }
+
+    public enum Command {
+        SUBMIT,
+        APPROVE,
+        REJECT
+    }
+
+    /**
+     * Gửi thông báo sau khi chuyển trạng thái
+     */
+    @FunctionalInterface
+    public interface Notifier {
+        void notify(NotificationService notificationService, Syllabus syllabus, String username, String comment);
+    }
+
+    public record Transition(
+            Actor actor,
+            Command command,
+            SyllabusStatus from,
+            SyllabusStatus to,
+            WorkflowAction historyAction,
+            String stepName,
+            AuditAction auditAction,
+            String responseAction,
+            String message,
+            boolean ownerOnly,
+            Notifier notifier) {
+    }
+
+    private static final Map<Actor, Map<Command, Transition>> TABLE;
+
+    static {
+        EnumMap<Actor, Map<Command, Transition>> table = new EnumMap<>(Actor.class);
+
+        add(table, new Transition(Actor.LECTURER, Command.SUBMIT,
+                SyllabusStatus.DRAFT, SyllabusStatus.PENDING_REVIEW,
+                WorkflowAction.SUBMIT, "Pending Review", AuditAction.SUBMIT_FOR_REVIEW, "SUBMIT",
+                "Syllabus submitted for HOD review successfully", true,
+                (n, s, user, comment) -> n.notifySyllabusSubmitted(s, user)));
+
+        add(table, new Transition(Actor.HEAD_OF_DEPARTMENT, Command.APPROVE,
+                SyllabusStatus.PENDING_REVIEW, SyllabusStatus.PENDING_APPROVAL,
+                WorkflowAction.APPROVE, "Pending Approval", AuditAction.HOD_APPROVE, "APPROVE",
+                "Syllabus approved by HOD, now pending Academic Affairs approval", false,
+                (n, s, user, comment) -> n.notifyHODApproved(s, user)));
+
+        add(table, new Transition(Actor.HEAD_OF_DEPARTMENT, Command.REJECT,
+                SyllabusStatus.PENDING_REVIEW, SyllabusStatus.DRAFT,
+                WorkflowAction.REJECT, "Draft", AuditAction.HOD_REJECT, "REJECT",
+                "Syllabus rejected by HOD, returned to DRAFT for revision", false,
+                NotificationService::notifyHODRejected));
+
+        add(table, new Transition(Actor.ACADEMIC_AFFAIRS, Command.APPROVE,
+                SyllabusStatus.PENDING_APPROVAL, SyllabusStatus.APPROVED,
+                WorkflowAction.APPROVE, "Approved", AuditAction.AA_APPROVE, "APPROVE",
+                "Syllabus approved by Academic Affairs, now pending Principal approval", false,
+                (n, s, user, comment) -> n.notifyAAApproved(s, user)));
+
+        add(table, new Transition(Actor.ACADEMIC_AFFAIRS, Command.REJECT,
+                SyllabusStatus.PENDING_APPROVAL, SyllabusStatus.PENDING_REVIEW,
+                WorkflowAction.REJECT, "Pending Review", AuditAction.AA_REJECT, "REJECT",
+                "Syllabus rejected by Academic Affairs, returned to PENDING_REVIEW", false,
+                NotificationService::notifyAARejected));
+
+        add(table, new Transition(Actor.PRINCIPAL, Command.APPROVE,
+                SyllabusStatus.APPROVED, SyllabusStatus.PUBLISHED,
+                WorkflowAction.PUBLISH, "Published", AuditAction.PRINCIPAL_APPROVE, "PUBLISH",
+                "Syllabus published successfully by Principal", false,
+                (n, s, user, comment) -> n.notifySyllabusPublished(s, user)));
+
+        add(table, new Transition(Actor.PRINCIPAL, Command.REJECT,
+                SyllabusStatus.APPROVED, SyllabusStatus.PENDING_APPROVAL,
+                WorkflowAction.REJECT, "Pending Approval", AuditAction.PRINCIPAL_REJECT, "REJECT",
+                "Syllabus rejected by Principal, returned to PENDING_APPROVAL", false,
+                NotificationService::notifyPrincipalRejected));
+
+        table.replaceAll((actor, byCommand) -> Collections.unmodifiableMap(byCommand));
+        TABLE = Collections.unmodifiableMap(table);
+    }
+
+    private WorkflowTransitions() {
+    }
+
+    private static void add(EnumMap<Actor, Map<Command, Transition>> table, Transition transition) {
+        table.computeIfAbsent(transition.actor(), a -> new EnumMap<>(Command.class))
+                .put(transition.command(), transition);
+    }
+
+    public static Optional<Transition> find(Actor actor, Command command) {
+        Map<Command, Transition> byCommand = TABLE.get(actor);
+        return Optional.ofNullable(byCommand != null ? byCommand.get(command) : null);
+    }
+
+    /**
+     * Thứ tự của bước workflow (dùng khi tạo WorkflowStep)
+     */
+    public static int stepOrder(String stepName) {
+        return switch (stepName) {
+            case "Draft" -> 1;
+            case "Pending Review" -> 2;
+            case "Pending Approval" -> 3;
+            case "Approved" -> 4;
+            case "Published" -> 5;
+            default -> 0;
+        };
+    }
+}
@@ -0,0 +1,143 @@
+package com.smd.core.util;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Minimal count-based circuit breaker.
+ *
+ * CLOSED: calls go through, the outcome of the last {@code windowSize} calls is recorded.
+ * When at least {@code minimumCalls} were recorded and the failure rate reaches the
+ * threshold, the breaker OPENs and rejects calls for {@code openDuration}. After that a
+ * single probe call is let through (HALF_OPEN): success closes the breaker, failure opens it again.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final float failureRateThreshold;
+    private final Duration openDuration;
+    private final Clock clock;
+
+    private final boolean[] failuresWindow;
+    private int windowIndex;
+    private int recordedCalls;
+    private int failedCalls;
+
+    private State state = State.CLOSED;
+    private Instant openedAt;
+    private boolean probeInFlight;
+
+    public CircuitBreaker(String name, int windowSize, int minimumCalls,
+                          float failureRateThreshold, Duration openDuration) {
+        this(name, windowSize, minimumCalls, failureRateThreshold, openDuration, Clock.systemUTC());
+    }
+
+    public CircuitBreaker(String name, int windowSize, int minimumCalls,
+                          float failureRateThreshold, Duration openDuration, Clock clock) {
+        if (windowSize <= 0 || minimumCalls <= 0 || minimumCalls > windowSize) {
+            throw new IllegalArgumentException("Invalid circuit breaker window for " + name);
+        }
+        this.name = name;
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDuration = openDuration;
+        this.clock = clock;
+        this.failuresWindow = new boolean[windowSize];
+    }
+
+    /**
+     * @return true if the call may proceed; the caller must then report onSuccess/onError
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (clock.instant().isBefore(openedAt.plus(openDuration))) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probeInFlight) {
+                return false;
+            }
+            probeInFlight = true;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            close();
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onError() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(true);
+        if (recordedCalls >= minimumCalls && failureRate() >= failureRateThreshold) {
+            open();
+        }
+    }
+
+    public synchronized State getState() {
+        // An expired OPEN state is reported as HALF_OPEN even before the next call arrives
+        if (state == State.OPEN && !clock.instant().isBefore(openedAt.plus(openDuration))) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * Failure rate in percent over the current window, -1 while below minimumCalls
+     */
+    public synchronized float failureRate() {
+        if (recordedCalls < minimumCalls) {
+            return -1f;
+        }
+        return failedCalls * 100f / recordedCalls;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private void record(boolean failed) {
+        if (recordedCalls == windowSize) {
+            if (failuresWindow[windowIndex]) {
+                failedCalls--;
+            }
+        } else {
+            recordedCalls++;
+        }
+        failuresWindow[windowIndex] = failed;
+        if (failed) {
+            failedCalls++;
+        }
+        windowIndex = (windowIndex + 1) % windowSize;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = clock.instant();
+        probeInFlight = false;
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        probeInFlight = false;
+        recordedCalls = 0;
+        failedCalls = 0;
+        windowIndex = 0;
+    }
+}
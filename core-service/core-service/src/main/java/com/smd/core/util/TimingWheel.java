@@ -0,0 +1,165 @@
+package com.smd.core.util;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hierarchical timing wheel (in-memory, driven by {@link #advance(Instant)}).
+ *
+ * Level 0 has {@code wheelSize} buckets of {@code tick} each. Items due beyond its span go to an
+ * overflow wheel whose tick is the span of the level below, created on demand. When the lower wheel
+ * reaches the start of an overflow bucket, that bucket is re-distributed one level down, so adding
+ * and expiring an item is O(1) whatever the delay. Items are returned at most one tick late, never early.
+ *
+ * An item is scheduled at most once: adding it again moves it to the new due time, and {@link #cancel}
+ * drops it. Both only mark the old entry, which is discarded when its bucket is reached.
+ */
+public class TimingWheel<T> {
+
+    private static final class Entry<T> {
+        private final T item;
+        private final long expiration;
+        private boolean cancelled;
+
+        private Entry(T item, long expiration) {
+            this.item = item;
+            this.expiration = expiration;
+        }
+    }
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final long intervalMillis;
+    private final List<List<Entry<T>>> buckets;
+    private long currentTime;
+    private TimingWheel<T> overflow;
+
+    // Only used by level 0
+    private final List<Entry<T>> alreadyDue = new ArrayList<>();
+    private final Map<T, Entry<T>> scheduled = new HashMap<>();
+
+    public TimingWheel(Duration tick, int wheelSize, Instant start) {
+        this(tick.toMillis(), wheelSize, start.toEpochMilli());
+    }
+
+    private TimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("tick and wheelSize must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.intervalMillis = tickMillis * wheelSize;
+        this.currentTime = startMillis - (startMillis % tickMillis);
+        this.buckets = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            buckets.add(new ArrayList<>());
+        }
+    }
+
+    public synchronized void add(T item, Instant due) {
+        Entry<T> entry = new Entry<>(item, due.toEpochMilli());
+        Entry<T> previous = scheduled.put(item, entry);
+        if (previous != null) {
+            previous.cancelled = true;
+        }
+        if (!place(entry)) {
+            alreadyDue.add(entry);
+        }
+    }
+
+    /**
+     * Drop a scheduled item; false if it is not in the wheel (never added, already returned or cancelled)
+     */
+    public synchronized boolean cancel(T item) {
+        Entry<T> entry = scheduled.remove(item);
+        if (entry == null) {
+            return false;
+        }
+        entry.cancelled = true;
+        return true;
+    }
+
+    /**
+     * Move the clock to {@code now} and return every item whose due time has passed
+     */
+    public synchronized List<T> advance(Instant now) {
+        long time = now.toEpochMilli();
+        List<Entry<T>> expired = new ArrayList<>(alreadyDue);
+        alreadyDue.clear();
+
+        while (currentTime + tickMillis <= time) {
+            expired.addAll(takeBucket(currentTime));
+            currentTime += tickMillis;
+            if (overflow != null && currentTime % overflow.tickMillis == 0) {
+                overflow.onLowerWrap(currentTime, this, expired);
+            }
+        }
+
+        // Earliest due first; items due in the same millisecond keep their insertion order
+        expired.sort(Comparator.comparingLong(entry -> entry.expiration));
+        List<T> items = new ArrayList<>(expired.size());
+        for (Entry<T> entry : expired) {
+            if (!entry.cancelled) {
+                scheduled.remove(entry.item);
+                items.add(entry.item);
+            }
+        }
+        return items;
+    }
+
+    public synchronized int size() {
+        return scheduled.size();
+    }
+
+    /**
+     * false = already due, the caller must expire it
+     */
+    private boolean place(Entry<T> entry) {
+        if (entry.expiration < currentTime) {
+            return false;
+        }
+        if (entry.expiration < currentTime + intervalMillis) {
+            buckets.get(index(entry.expiration)).add(entry);
+            return true;
+        }
+        if (overflow == null) {
+            overflow = new TimingWheel<>(intervalMillis, wheelSize, currentTime);
+        }
+        return overflow.place(entry);
+    }
+
+    /**
+     * The wheel below reached {@code time} (a multiple of this wheel's tick): hand the bucket starting at
+     * {@code time} down to it, after letting the wheels above do the same for this one
+     */
+    private void onLowerWrap(long time, TimingWheel<T> lower, List<Entry<T>> expired) {
+        currentTime = time;
+        if (overflow != null && time % overflow.tickMillis == 0) {
+            overflow.onLowerWrap(time, this, expired);
+        }
+        for (Entry<T> entry : takeBucket(time)) {
+            if (!lower.place(entry)) {
+                expired.add(entry);
+            }
+        }
+    }
+
+    private List<Entry<T>> takeBucket(long time) {
+        int index = index(time);
+        List<Entry<T>> bucket = buckets.get(index);
+        if (bucket.isEmpty()) {
+            return List.of();
+        }
+        buckets.set(index, new ArrayList<>());
+        return bucket;
+    }
+
+    private int index(long time) {
+        return (int) ((time / tickMillis) % wheelSize);
+    }
+}
@@ -0,0 +1,212 @@
+package com.smd.core.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smd.core.repository.AuditLogJdbcRepository;
+import com.smd.core.repository.AuditLogJdbcRepository.AuditEntry;
+import com.smd.core.repository.AuditLogRollupJdbcRepository;
+import com.smd.core.repository.AuditLogRollupJdbcRepository.RollupKey;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditLogWriterTest {
+
+    private static final LocalDateTime AT = LocalDateTime.of(2024, 1, 1, 8, 0);
+
+    @TempDir
+    Path spillDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private FakeAuditLogRepository repository;
+    private AuditLogWriter writer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        repository = new FakeAuditLogRepository();
+        writer = new AuditLogWriter(repository, new FakeRollupRepository(), objectMapper,
+                new SimpleMeterRegistry(), new NoOpTransactionManager());
+        set("enabled", true);
+        set("capacity", 16);
+        set("batchSize", 2);
+        set("maxRetries", 0);
+        set("shutdownTimeout", Duration.ofSeconds(5));
+        set("spillEnabled", true);
+        set("spillPath", spillDir.toString());
+        set("replayInterval", Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.stop();
+    }
+
+    @Test
+    void replayWritesSpilledRowsAndMovesTheRejectedOneAside() throws Exception {
+        writeSpillFile("a", "b", "BAD", "c", "d");
+
+        writer.start();
+        await(() -> repository.inserted.size() == 4 && replayFiles().isEmpty());
+
+        assertThat(repository.inserted.stream().map(AuditEntry::actionType).toList())
+                .containsExactly("a", "b", "c", "d");
+        assertThat(actionTypes(spillDir.resolve("audit-rejected.jsonl"))).containsExactly("BAD");
+        assertThat(Files.exists(spillDir.resolve("audit-spill.jsonl"))).isFalse();
+    }
+
+    @Test
+    void replayTrimsTheFileAfterEachCommittedChunk() throws Exception {
+        writeSpillFile("a", "b", "c", "d", "e");
+        List<String> seenAtSecondChunk = new CopyOnWriteArrayList<>();
+        repository.beforeInsert = entries -> {
+            if (entries.get(0).actionType().equals("c")) {
+                if (seenAtSecondChunk.isEmpty()) {
+                    seenAtSecondChunk.addAll(actionTypes(replayFiles().get(0)));
+                }
+                repository.available = false;
+                throw new DataAccessResourceFailureException("connection refused");
+            }
+        };
+
+        writer.start();
+        await(() -> !repository.available && !seenAtSecondChunk.isEmpty() && replayFiles().size() == 1
+                && actionTypes(replayFiles().get(0)).size() == 3);
+
+        // Chunk [a, b] đã commit thì đã bị cắt khỏi file trước khi ghi chunk sau
+        assertThat(seenAtSecondChunk).containsExactly("c", "d", "e");
+        assertThat(repository.inserted.stream().map(AuditEntry::actionType).toList()).containsExactly("a", "b");
+        assertThat(actionTypes(replayFiles().get(0))).containsExactly("c", "d", "e");
+    }
+
+    private void writeSpillFile(String... actionTypes) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (String actionType : actionTypes) {
+            lines.add(objectMapper.writeValueAsString(new AuditEntry(1L, actionType, "lecturer@smd.edu", "LECTURER",
+                    null, null, null, null, "127.0.0.1", "junit", AT, null)));
+        }
+        Files.write(spillDir.resolve("audit-spill.jsonl"), lines, StandardCharsets.UTF_8);
+    }
+
+    private List<Path> replayFiles() {
+        try (Stream<Path> listing = Files.list(spillDir)) {
+            return listing.filter(path -> path.getFileName().toString().startsWith("audit-replay-")
+                    && path.getFileName().toString().endsWith(".jsonl")).sorted().toList();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private List<String> actionTypes(Path file) {
+        try {
+            List<String> result = new ArrayList<>();
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    result.add(objectMapper.readValue(line, AuditEntry.class).actionType());
+                }
+            }
+            return result;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void set(String name, Object value) throws Exception {
+        Field field = AuditLogWriter.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(writer, value);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("condition not met within 10s");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Ghi vào bộ nhớ; action type "BAD" bị từ chối như một vi phạm ràng buộc (DB vẫn sẵn sàng)
+     */
+    private static class FakeAuditLogRepository extends AuditLogJdbcRepository {
+
+        final List<AuditEntry> inserted = new CopyOnWriteArrayList<>();
+        volatile boolean available = true;
+        volatile Consumer<List<AuditEntry>> beforeInsert = entries -> { };
+
+        FakeAuditLogRepository() {
+            super(null);
+        }
+
+        @Override
+        public void insertAll(List<AuditEntry> entries) {
+            beforeInsert.accept(entries);
+            if (entries.stream().anyMatch(entry -> entry.actionType().equals("BAD"))) {
+                throw new DataIntegrityViolationException("value too long for type character varying(50)");
+            }
+            inserted.addAll(entries);
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return available;
+        }
+    }
+
+    private static class FakeRollupRepository extends AuditLogRollupJdbcRepository {
+
+        FakeRollupRepository() {
+            super(null);
+        }
+
+        @Override
+        public boolean isCounted(LocalDateTime timestamp) {
+            return false;
+        }
+
+        @Override
+        public void add(Map<RollupKey, Long> counts) {
+        }
+    }
+
+    private static class NoOpTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
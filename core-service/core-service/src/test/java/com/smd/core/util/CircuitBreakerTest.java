@@ -0,0 +1,133 @@
+package com.smd.core.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CircuitBreakerTest {
+
+    private static final Duration OPEN_DURATION = Duration.ofSeconds(30);
+
+    private MutableClock clock;
+    private CircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+        // Window of 4 calls, evaluated from 2 calls, opens at 50% failures
+        breaker = new CircuitBreaker("test", 4, 2, 50f, OPEN_DURATION, clock);
+    }
+
+    @Test
+    void staysClosedBelowMinimumCalls() {
+        fail();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.failureRate()).isEqualTo(-1f);
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+    }
+
+    @Test
+    void opensWhenFailureRateReachesThreshold() {
+        succeed();
+        fail();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+
+        clock.advance(OPEN_DURATION.minusMillis(1));
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+    }
+
+    @Test
+    void staysClosedBelowThreshold() {
+        succeed();
+        succeed();
+        succeed();
+        fail();
+
+        assertThat(breaker.failureRate()).isEqualTo(25f);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void oldOutcomesLeaveTheWindow() {
+        fail();
+        succeed();
+        succeed();
+        succeed();
+        // The first failure is overwritten by this success
+        succeed();
+
+        assertThat(breaker.failureRate()).isEqualTo(0f);
+    }
+
+    @Test
+    void letsOneProbeThroughAfterOpenDuration() {
+        trip();
+        clock.advance(OPEN_DURATION);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        // Only one probe at a time
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+    }
+
+    @Test
+    void successfulProbeClosesAndResetsTheWindow() {
+        trip();
+        clock.advance(OPEN_DURATION);
+
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        breaker.onSuccess();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.failureRate()).isEqualTo(-1f);
+        // One new failure alone does not reopen it
+        fail();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void failedProbeReopens() {
+        trip();
+        clock.advance(OPEN_DURATION);
+
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        breaker.onError();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+
+        // The open period restarts from the failed probe
+        clock.advance(OPEN_DURATION);
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+    }
+
+    @Test
+    void rejectsInvalidWindow() {
+        assertThatThrownBy(() -> new CircuitBreaker("bad", 2, 3, 50f, OPEN_DURATION))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void trip() {
+        fail();
+        fail();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    private void succeed() {
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        breaker.onSuccess();
+    }
+
+    private void fail() {
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        breaker.onError();
+    }
+}
@@ -0,0 +1,146 @@
+package com.smd.core.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimingWheelTest {
+
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+    private static final Duration TICK = Duration.ofSeconds(1);
+
+    // Level 0 spans 10s, level 1 100s, level 2 1000s
+    private TimingWheel<String> wheel;
+
+    @BeforeEach
+    void setUp() {
+        wheel = new TimingWheel<>(TICK, 10, START);
+    }
+
+    @Test
+    void firesWithinOneTickAndNeverEarly() {
+        wheel.add("a", at(2_500));
+
+        assertThat(wheel.advance(at(2_000))).isEmpty();
+        assertThat(wheel.advance(at(2_999))).isEmpty();
+        assertThat(wheel.advance(at(3_000))).containsExactly("a");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void pastDueItemsAreReturnedOnTheNextAdvance() {
+        wheel.advance(at(5_000));
+        wheel.add("late", at(1_000));
+
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.advance(at(5_000))).containsExactly("late");
+    }
+
+    @Test
+    void cascadesAcrossWheelLevels() {
+        Map<String, Long> due = new LinkedHashMap<>();
+        due.put("level0", 7_000L);
+        due.put("level1", 25_300L);
+        due.put("level1-edge", 99_999L);
+        due.put("level2", 250_000L);
+        due.put("level3", 1_234_567L);
+        due.forEach((item, millis) -> wheel.add(item, at(millis)));
+
+        Map<String, Long> firedAt = tickUntil(1_300_000);
+
+        assertThat(firedAt.keySet()).containsExactlyInAnyOrderElementsOf(due.keySet());
+        due.forEach((item, millis) -> {
+            assertThat(firedAt.get(item)).isGreaterThanOrEqualTo(millis);
+            assertThat(firedAt.get(item)).isLessThanOrEqualTo(millis + TICK.toMillis());
+        });
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void oneLargeAdvanceReturnsEverythingDueInOrder() {
+        wheel.add("c", at(600_000));
+        wheel.add("a", at(4_000));
+        wheel.add("b", at(45_000));
+        wheel.add("d", at(2_000_000));
+
+        assertThat(wheel.advance(at(700_000))).containsExactly("a", "b", "c");
+        assertThat(wheel.advance(at(2_001_000))).containsExactly("d");
+    }
+
+    @Test
+    void sameDueTimeKeepsInsertionOrder() {
+        wheel.add("first", at(3_000));
+        wheel.add("second", at(3_000));
+        wheel.add("earlier", at(2_000));
+
+        assertThat(wheel.advance(at(5_000))).containsExactly("earlier", "first", "second");
+    }
+
+    @Test
+    void cancelledItemsAreNotReturned() {
+        wheel.add("keep", at(3_000));
+        wheel.add("drop", at(3_000));
+        wheel.add("drop-overflow", at(150_000));
+
+        assertThat(wheel.cancel("drop")).isTrue();
+        assertThat(wheel.cancel("drop-overflow")).isTrue();
+        assertThat(wheel.size()).isEqualTo(1);
+
+        assertThat(wheel.advance(at(200_000))).containsExactly("keep");
+        assertThat(wheel.cancel("drop")).isFalse();
+        assertThat(wheel.cancel("keep")).isFalse();
+    }
+
+    @Test
+    void cancelAfterCascadeToALowerLevel() {
+        wheel.add("x", at(35_500));
+        // Level 1 bucket [30s, 40s) has been handed down to level 0
+        wheel.advance(at(31_000));
+
+        assertThat(wheel.cancel("x")).isTrue();
+        assertThat(wheel.advance(at(40_000))).isEmpty();
+    }
+
+    @Test
+    void addingAgainMovesTheDueTime() {
+        wheel.add("x", at(2_000));
+        wheel.add("x", at(60_000));
+
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.advance(at(30_000))).isEmpty();
+        assertThat(wheel.advance(at(61_000))).containsExactly("x");
+    }
+
+    @Test
+    void itemCanBeScheduledAgainAfterItFired() {
+        wheel.add("x", at(1_000));
+        assertThat(wheel.advance(at(2_000))).containsExactly("x");
+
+        wheel.add("x", at(5_000));
+        assertThat(wheel.advance(at(6_000))).containsExactly("x");
+    }
+
+    // Advance one tick at a time and record when each item came out
+    private Map<String, Long> tickUntil(long endMillis) {
+        Map<String, Long> firedAt = new LinkedHashMap<>();
+        for (long now = 0; now <= endMillis; now += TICK.toMillis()) {
+            List<String> items = new ArrayList<>(wheel.advance(at(now)));
+            for (String item : items) {
+                assertThat(firedAt.put(item, now)).isNull();
+            }
+        }
+        return firedAt;
+    }
+
+    private static Instant at(long millisFromStart) {
+        return START.plusMillis(millisFromStart);
+    }
+}